@@ -0,0 +1,35 @@
+package com.yetanotherx.mapnode.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON to
+ * mapnode-benchmarks.json (unless another result file or format is
+ * given). Takes the usual JMH command line options, so a subset can
+ * be run with a regular expression:
+ *
+ * java -jar target/benchmarks.jar GetObject -prof gc
+ *
+ * @author yetanotherx
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLine.getResult().orElse("mapnode-benchmarks.json"))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.yetanotherx.mapnode.benchmarks;
+
+import com.yetanotherx.mapnode.CompactMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CompactMap against HashMap and LinkedHashMap for the map sizes
+ * found in most nodes. Run with "-prof gc" to compare the memory
+ * allocated when building the maps.
+ *
+ * @author yetanotherx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactMapBenchmark {
+
+    @Param({"compact", "hash", "linked"})
+    public String type;
+    @Param({"2", "5", "8"})
+    public int entries;
+    private String[] keys;
+    private Map<String, Object> map;
+    private int counter = 0;
+
+    @Setup
+    public void setup() {
+        keys = new String[entries];
+        for (int i = 0; i < entries; ++i) {
+            keys[i] = "key" + i;
+        }
+        map = build();
+    }
+
+    private Map<String, Object> create() {
+        if ("compact".equals(type)) {
+            return new CompactMap<String, Object>();
+        } else if ("hash".equals(type)) {
+            return new HashMap<String, Object>();
+        }
+        return new LinkedHashMap<String, Object>();
+    }
+
+    @Benchmark
+    public Map<String, Object> build() {
+        Map<String, Object> out = create();
+        for (String key : keys) {
+            out.put(key, key);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Object get() {
+        return map.get(keys[counter++ % keys.length]);
+    }
+
+    @Benchmark
+    public Object getMissing() {
+        return map.get("missing");
+    }
+}
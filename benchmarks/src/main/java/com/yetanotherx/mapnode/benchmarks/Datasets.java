@@ -0,0 +1,102 @@
+package com.yetanotherx.mapnode.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generates the YAML documents used by the benchmarks. The documents
+ * only depend on their size and a fixed seed, so every run (and every
+ * machine) benchmarks exactly the same data.
+ *
+ * A document has a few top-level settings, a chain of nested maps
+ * ("deep.level1.level2...") and a list of items that all have the same
+ * keys, like the lists of records found in real configuration files.
+ *
+ * @author yetanotherx
+ */
+public final class Datasets {
+
+    /**
+     * Depth of the nested "deep" maps.
+     */
+    public static final int DEPTH = 8;
+    /**
+     * Path of the value at the bottom of the nested maps.
+     */
+    public static final String DEEP_PATH = deepPath();
+    private static final long SEED = 20120101L;
+
+    private Datasets() {
+    }
+
+    /**
+     * Returns the number of list items of the named size.
+     *
+     * @param size "small" or "large"
+     * @return
+     */
+    public static int items(String size) {
+        if ("small".equals(size)) {
+            return 10;
+        } else if ("large".equals(size)) {
+            return 10000;
+        }
+        throw new IllegalArgumentException("Unknown dataset size " + size);
+    }
+
+    /**
+     * Generates the document of the named size.
+     *
+     * @param size "small" or "large"
+     * @return
+     */
+    public static String yaml(String size) {
+        return yaml(items(size));
+    }
+
+    /**
+     * Generates a document with the given number of list items.
+     *
+     * @param items
+     * @return
+     */
+    public static String yaml(int items) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(items * 96 + 512);
+
+        sb.append("name: benchmark\n");
+        sb.append("enabled: true\n");
+        sb.append("version: 3\n");
+        sb.append("ratio: 0.75\n");
+
+        sb.append("deep:\n");
+        String indent = "    ";
+        for (int i = 1; i < DEPTH; ++i) {
+            sb.append(indent).append("level").append(i).append(":\n");
+            indent += "    ";
+        }
+        sb.append(indent).append("value: bottom\n");
+
+        sb.append("numbers:\n");
+        for (int i = 0; i < items; ++i) {
+            sb.append("    - ").append(random.nextInt(100000)).append('\n');
+        }
+
+        sb.append("items:\n");
+        for (int i = 0; i < items; ++i) {
+            sb.append("    -   id: ").append(i).append('\n');
+            sb.append("        name: item").append(random.nextInt(1000000)).append('\n');
+            sb.append("        weight: ").append(random.nextInt(10000) / 100.0).append('\n');
+            sb.append("        active: ").append(random.nextBoolean()).append('\n');
+            sb.append("        tags: [t").append(random.nextInt(10)).append(", t").append(random.nextInt(10)).append("]\n");
+        }
+        return sb.toString();
+    }
+
+    private static String deepPath() {
+        StringBuilder sb = new StringBuilder("deep");
+        for (int i = 1; i < DEPTH; ++i) {
+            sb.append(".level").append(i);
+        }
+        return sb.append(".value").toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.yetanotherx.mapnode.benchmarks;
+
+import com.yetanotherx.mapnode.MapNode;
+import com.yetanotherx.mapnode.MapNodeOptions;
+import com.yetanotherx.mapnode.MapNodePath;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Path lookups: a top-level key, a deeply nested key and a path
+ * through a list index, as strings and as compiled paths, with
+ * and without the path cache.
+ *
+ * @author yetanotherx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetObjectBenchmark {
+
+    @Param({"0", "256"})
+    public int cacheSize;
+    private MapNode node;
+    private String listPath;
+    private MapNodePath compiledDeep;
+    private MapNodePath compiledList;
+
+    @Setup
+    public void setup() {
+        node = new MapNode(null, new MapNodeOptions().setCacheSize(cacheSize));
+        node.loadYaml(Datasets.yaml("large"));
+        listPath = "items." + (Datasets.items("large") / 2) + ".name";
+        compiledDeep = MapNodePath.compile(Datasets.DEEP_PATH, node.getOptions());
+        compiledList = MapNodePath.compile(listPath, node.getOptions());
+    }
+
+    @Benchmark
+    public Object shallow() {
+        return node.getObject("name");
+    }
+
+    @Benchmark
+    public Object deep() {
+        return node.getObject(Datasets.DEEP_PATH);
+    }
+
+    @Benchmark
+    public Object deepCompiled() {
+        return node.getObject(compiledDeep);
+    }
+
+    @Benchmark
+    public Object listIndex() {
+        return node.getObject(listPath);
+    }
+
+    @Benchmark
+    public Object listIndexCompiled() {
+        return node.getObject(compiledList);
+    }
+}
@@ -0,0 +1,84 @@
+package com.yetanotherx.mapnode.benchmarks;
+
+import com.yetanotherx.mapnode.MapNode;
+import com.yetanotherx.mapnode.MapNodeOptions;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Typed getters, and the get*List family on the list of numbers
+ * and the list of items, with eager and lazy lists.
+ *
+ * @author yetanotherx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetterBenchmark {
+
+    @Param({"small", "large"})
+    public String size;
+    @Param({"false", "true"})
+    public boolean lazyLists;
+    private MapNode node;
+
+    @Setup
+    public void setup() {
+        node = new MapNode(null, new MapNodeOptions().setLazyLists(lazyLists));
+        node.loadYaml(Datasets.yaml(size));
+    }
+
+    @Benchmark
+    public String getString() {
+        return node.getString("items.1.name");
+    }
+
+    @Benchmark
+    public int getInt() {
+        return node.getInt("items.1.id", 0);
+    }
+
+    @Benchmark
+    public double getDouble() {
+        return node.getDouble("items.1.weight", 0.0D);
+    }
+
+    @Benchmark
+    public boolean getBoolean() {
+        return node.getBoolean("items.1.active", false);
+    }
+
+    @Benchmark
+    public List<Integer> getIntegerList() {
+        return node.getIntegerList("numbers");
+    }
+
+    @Benchmark
+    public int[] getIntArray() {
+        return node.getIntArray("numbers");
+    }
+
+    @Benchmark
+    public List<String> getStringList() {
+        return node.getStringList("items.1.tags");
+    }
+
+    @Benchmark
+    public List<MapNode> getMapNodeList() {
+        return node.getMapNodeList("items");
+    }
+}
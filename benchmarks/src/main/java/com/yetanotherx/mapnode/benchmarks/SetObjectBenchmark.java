@@ -0,0 +1,63 @@
+package com.yetanotherx.mapnode.benchmarks;
+
+import com.yetanotherx.mapnode.MapNode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * setObject() on existing top-level, nested and list paths, and
+ * on a path whose intermediate maps have to be created first.
+ *
+ * @author yetanotherx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetObjectBenchmark {
+
+    private MapNode node;
+    private int counter = 0;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        node = new MapNode();
+        node.loadYaml(Datasets.yaml("small"));
+    }
+
+    @Benchmark
+    public MapNode shallow() {
+        node.setObject("name", "changed");
+        return node;
+    }
+
+    @Benchmark
+    public MapNode deep() {
+        node.setObject(Datasets.DEEP_PATH, "changed");
+        return node;
+    }
+
+    @Benchmark
+    public MapNode listIndex() {
+        node.setObject("items.5.name", "changed");
+        return node;
+    }
+
+    @Benchmark
+    public MapNode create() {
+        node.setObject("created.a.b.c" + (counter++ & 1023), "value");
+        return node;
+    }
+}
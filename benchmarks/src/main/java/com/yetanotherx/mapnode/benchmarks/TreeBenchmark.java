@@ -0,0 +1,75 @@
+package com.yetanotherx.mapnode.benchmarks;
+
+import com.yetanotherx.mapnode.MapNode;
+import com.yetanotherx.mapnode.MapNodeOptions;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole-tree operations: clone(), deepCopy(), hashCode() (with and without
+ * memoized hashes, after a single change) and equals().
+ *
+ * @author yetanotherx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+
+    @Param({"small", "large"})
+    public String size;
+    @Param({"false", "true"})
+    public boolean cacheHashes;
+    private MapNode node;
+    private MapNode other;
+    private int counter = 0;
+
+    @Setup
+    public void setup() {
+        String yaml = Datasets.yaml(size);
+        node = new MapNode(null, new MapNodeOptions().setCacheHashes(cacheHashes));
+        node.loadYaml(yaml);
+        other = new MapNode(null, new MapNodeOptions().setCacheHashes(cacheHashes));
+        other.loadYaml(yaml);
+        other.setObject("name", "other");
+    }
+
+    @Benchmark
+    public Object cloneNode() throws CloneNotSupportedException {
+        return node.clone();
+    }
+
+    @Benchmark
+    public MapNode deepCopy() {
+        return node.deepCopy();
+    }
+
+    @Benchmark
+    public int hashCodeUnchanged() {
+        return node.hashCode();
+    }
+
+    @Benchmark
+    public int hashCodeAfterSet() {
+        node.setObject("items.3.id", counter++);
+        return node.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsDifferent() {
+        return node.equals(other);
+    }
+}
@@ -0,0 +1,60 @@
+package com.yetanotherx.mapnode.benchmarks;
+
+import com.yetanotherx.mapnode.MapNode;
+import com.yetanotherx.mapnode.MapNodeOptions;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * loadYaml() and debug() on the small and large documents, loading
+ * into the default maps and into CompactMaps. Run with "-prof gc"
+ * to compare the memory allocated by each kind of map.
+ *
+ * @author yetanotherx
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YamlBenchmark {
+
+    @Param({"small", "large"})
+    public String size;
+    @Param({"false", "true"})
+    public boolean compactMaps;
+    private String yaml;
+    private MapNodeOptions options;
+    private MapNode loaded;
+
+    @Setup
+    public void setup() {
+        yaml = Datasets.yaml(size);
+        options = new MapNodeOptions().setCompactMaps(compactMaps);
+        loaded = new MapNode(null, options);
+        loaded.loadYaml(yaml);
+    }
+
+    @Benchmark
+    public MapNode loadYaml() {
+        MapNode node = new MapNode(null, options);
+        node.loadYaml(yaml);
+        return node;
+    }
+
+    @Benchmark
+    public String debug() {
+        return loaded.debug();
+    }
+}
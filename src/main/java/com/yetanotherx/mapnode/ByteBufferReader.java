@@ -0,0 +1,81 @@
+package com.yetanotherx.mapnode;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Reader that decodes the bytes of a ByteBuffer (usually a
+ * memory-mapped file) a chunk at a time, so the whole content
+ * is never copied into a String or char array. A byte order
+ * mark at the start of the buffer is skipped.
+ * 
+ * @author yetanotherx
+ */
+class ByteBufferReader extends Reader {
+
+    private static final int CHUNK_SIZE = 8192;
+    private final ByteBuffer in;
+    private final CharsetDecoder decoder;
+    private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+    private boolean eof = false;
+    private boolean first = true;
+
+    ByteBufferReader(ByteBuffer in, Charset charset) {
+        this.in = in;
+        this.decoder = charset.newDecoder();
+        this.chars.flip();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+
+        int count = Math.min(len, chars.remaining());
+        chars.get(cbuf, off, count);
+        return count;
+    }
+
+    /**
+     * Decodes the next chunk. Returns false if there is
+     * nothing left to read.
+     * 
+     * @return
+     * @throws IOException 
+     */
+    private boolean fill() throws IOException {
+        chars.clear();
+        while (chars.position() == 0 && !eof) {
+            CoderResult result = decoder.decode(in, chars, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isUnderflow()) {
+                decoder.flush(chars);
+                eof = true;
+            }
+        }
+        chars.flip();
+
+        if (first) {
+            first = false;
+            if (chars.hasRemaining() && chars.get(chars.position()) == '\uFEFF') {
+                chars.get();
+            }
+        }
+        return chars.hasRemaining();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,321 @@
+package com.yetanotherx.mapnode;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map for the small maps that make up most of a tree. Up to THRESHOLD
+ * entries are kept in two flat arrays (one for the keys, one for the
+ * values) and looked up by scanning the keys, which for a handful of
+ * entries is as fast as hashing, and takes no table or entry objects.
+ * A map that grows past THRESHOLD entries moves its entries into a
+ * LinkedHashMap and uses that from then on.
+ *
+ * Like a LinkedHashMap, the map iterates in insertion order, and it
+ * accepts null keys and values. It is not thread-safe.
+ *
+ * A MapNode uses CompactMaps when options.compactMaps is set, both for
+ * the maps created by loadYaml() and by setObject(). EasyHashMap.compact()
+ * creates a filled-in CompactMap.
+ *
+ * @author yetanotherx
+ */
+public class CompactMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+    /**
+     * Maximum number of entries kept in the flat arrays.
+     */
+    public static final int THRESHOLD = 8;
+    private static final long serialVersionUID = 61572095781L;
+    private static final Object[] EMPTY = new Object[0];
+    private Object[] keys = EMPTY;
+    private Object[] values = EMPTY;
+    private int size = 0;
+    private LinkedHashMap<K, V> hashed;
+    private transient int modCount = 0;
+    private transient Set<Map.Entry<K, V>> entrySet;
+
+    /**
+     * Creates an empty map.
+     */
+    public CompactMap() {
+    }
+
+    /**
+     * Creates a map with the entries of the given map.
+     *
+     * @param map
+     */
+    public CompactMap(Map<? extends K, ? extends V> map) {
+        if (map.size() > THRESHOLD) {
+            hashed = new LinkedHashMap<K, V>(map);
+        } else {
+            putAll(map);
+        }
+    }
+
+    /**
+     * Returns true if the entries have been moved into a LinkedHashMap.
+     *
+     * @return
+     */
+    public boolean isHashed() {
+        return hashed != null;
+    }
+
+    private int indexOf(Object key) {
+        if (key == null) {
+            for (int i = 0; i < size; ++i) {
+                if (keys[i] == null) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = 0; i < size; ++i) {
+                Object k = keys[i];
+                if (k == key || key.equals(k)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (hashed != null) {
+            return hashed.get(key);
+        }
+
+        int index = indexOf(key);
+        return index == -1 ? null : (V) values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (hashed != null) {
+            return hashed.containsKey(key);
+        }
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (hashed != null) {
+            return hashed.put(key, value);
+        }
+
+        int index = indexOf(key);
+        if (index != -1) {
+            V old = (V) values[index];
+            values[index] = value;
+            return old;
+        }
+
+        ++modCount;
+        if (size == THRESHOLD) {
+            hashed = new LinkedHashMap<K, V>(THRESHOLD * 4);
+            for (int i = 0; i < size; ++i) {
+                hashed.put((K) keys[i], (V) values[i]);
+            }
+            keys = EMPTY;
+            values = EMPTY;
+            size = 0;
+            return hashed.put(key, value);
+        }
+
+        if (size == keys.length) {
+            int capacity = Math.min(THRESHOLD, Math.max(2, size * 2));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        values[size] = value;
+        ++size;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (hashed != null) {
+            return hashed.remove(key);
+        }
+
+        int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+
+        V old = (V) values[index];
+        removeAt(index);
+        return old;
+    }
+
+    private void removeAt(int index) {
+        ++modCount;
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        --size;
+        keys[size] = null;
+        values[size] = null;
+    }
+
+    @Override
+    public int size() {
+        return hashed != null ? hashed.size() : size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Removes all entries. A map that was moved into a
+     * LinkedHashMap goes back to the flat arrays.
+     */
+    @Override
+    public void clear() {
+        ++modCount;
+        hashed = null;
+        keys = EMPTY;
+        values = EMPTY;
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<K, V>>() {
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return hashed != null ? hashed.entrySet().iterator() : new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return CompactMap.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    CompactMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Iterator over the flat arrays.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private int next = 0;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+
+            last = next++;
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry that reads and writes the flat arrays at its index.
+     */
+    private final class Entry implements Map.Entry<K, V> {
+
+        private final int index;
+
+        Entry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            return (K) keys[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) values[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            V old = (V) values[index];
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            Object key = getKey();
+            Object value = getValue();
+            return (key == null ? other.getKey() == null : key.equals(other.getKey()))
+                    && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object key = getKey();
+            Object value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
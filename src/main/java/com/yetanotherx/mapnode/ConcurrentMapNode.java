@@ -0,0 +1,315 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * MapNode that can be shared between threads without any external
+ * locking. Every map in the tree is a ConcurrentHashMap and every
+ * list is a CopyOnWriteArrayList, so reads never block: getObject()
+ * and the typed getters only walk the maps like a plain MapNode does.
+ *
+ * When a map or list is given to this node (in the constructor, with
+ * setBase(), setObject() or loadYaml()), the tree is copied into
+ * concurrent maps and lists. Maps that already are ConcurrentHashMaps
+ * and lists that already are CopyOnWriteArrayLists are kept, and only
+ * their children are converted. Modifying the original map after
+ * passing it in is therefore not seen by the node.
+ *
+ * Intermediate maps created by setObject() are added atomically, so two
+ * threads setting "base.a" and "base.b" at the same time will always
+ * end up sharing the same "base" map. Changes to lists (which have to
+ * check the size before changing it) are done while holding the lock
+ * of the list.
+ *
+ * ConcurrentHashMaps cannot hold null, so setting a value to null
+ * removes it instead, and null values in given maps are dropped. They
+ * also do not keep the insertion order, so debug() and toBytes() may
+ * list keys in a different order than the YAML they were loaded from.
+ *
+ * The path cache (options.cacheSize) is synchronized, so leave it
+ * disabled if readers should never wait on each other.
+ *
+ * @author yetanotherx
+ */
+public class ConcurrentMapNode extends MapNode {
+
+    /**
+     * Creates a new ConcurrentMapNode object with an empty map
+     * and a default set of options.
+     */
+    public ConcurrentMapNode() {
+        super(new ConcurrentHashMap<String, Object>(), new MapNodeOptions());
+    }
+
+    /**
+     * Creates a new ConcurrentMapNode object with a concurrent
+     * copy of the given map and a default set of options.
+     *
+     * @param base
+     */
+    public ConcurrentMapNode(Map<String, Object> base) {
+        super(toConcurrentMap(base, false), new MapNodeOptions());
+    }
+
+    /**
+     * Creates a new ConcurrentMapNode object with a concurrent
+     * copy of the given map and the given set of options.
+     *
+     * @param base
+     * @param options
+     */
+    public ConcurrentMapNode(Map<String, Object> base, MapNodeOptions options) {
+        super(toConcurrentMap(base, false), options);
+    }
+
+    /**
+     * Wraps a map that is already part of a concurrent tree, without
+     * converting it. The flag only tells this constructor apart
+     * from the public one.
+     *
+     * @param base
+     * @param options
+     * @param converted
+     */
+    protected ConcurrentMapNode(ConcurrentMap<String, Object> base, MapNodeOptions options, boolean converted) {
+        super(base, options);
+    }
+
+    /**
+     * Sets the base map to a concurrent copy of the given map.
+     *
+     * @param base
+     */
+    @Override
+    public void setBase(Map<String, Object> base) {
+        super.setBase(toConcurrentMap(base, false));
+    }
+
+    @Override
+    protected Map<String, Object> newMap() {
+        return new ConcurrentHashMap<String, Object>();
+    }
+
+    @Override
+    protected MapNode newNode(Map<String, Object> map) {
+        if (map instanceof ConcurrentMap) {
+            return new ConcurrentMapNode((ConcurrentMap<String, Object>) map, options, true);
+        }
+        return new ConcurrentMapNode(map, options);
+    }
+
+    /**
+     * Returns the child of the given map or list. A list can shrink
+     * between checking its size and reading the element, in which
+     * case null is returned as if the index was never valid.
+     *
+     * @param parent
+     * @param key
+     * @return
+     */
+    @Override
+    protected Object getChild(Object parent, String key) {
+        try {
+            return super.getChild(parent, key);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sets the child of the given map or list. The value is converted
+     * to concurrent maps and lists first. Setting a map entry to null
+     * removes it.
+     *
+     * @param parent
+     * @param key
+     * @param value
+     * @return
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected boolean putChild(Object parent, String key, Object value) {
+        if (parent instanceof Map && value == null) {
+            ((Map<String, Object>) parent).remove(key);
+            return true;
+        }
+
+        value = toConcurrent(value, false);
+        if (parent instanceof List) {
+            synchronized (parent) {
+                return super.putChild(parent, key, value);
+            }
+        }
+        return super.putChild(parent, key, value);
+    }
+
+    @Override
+    protected boolean removeChild(Object parent, String key) {
+        if (parent instanceof List) {
+            synchronized (parent) {
+                return super.removeChild(parent, key);
+            }
+        }
+        return super.removeChild(parent, key);
+    }
+
+    /**
+     * Returns the map or list stored in the parent with the given key,
+     * creating a new map if there is neither. For maps this is done with
+     * putIfAbsent() and replace(), retrying if another thread got there
+     * first, so every thread ends up with the same child map.
+     *
+     * @param parent
+     * @param key
+     * @return
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Object getOrCreateChild(Object parent, String key) {
+        if (parent instanceof ConcurrentMap) {
+            ConcurrentMap<String, Object> map = (ConcurrentMap<String, Object>) parent;
+            Map<String, Object> created = null;
+
+            while (true) {
+                Object got = map.get(key);
+                if (got instanceof Map || got instanceof List) {
+                    return got;
+                }
+
+                if (created == null) {
+                    created = newMap();
+                }
+                if (got == null) {
+                    got = map.putIfAbsent(key, created);
+                    if (got == null) {
+                        return created;
+                    }
+                } else if (map.replace(key, got, created)) {
+                    return created;
+                }
+            }
+        } else if (parent instanceof List) {
+            synchronized (parent) {
+                return super.getOrCreateChild(parent, key);
+            }
+        }
+        return super.getOrCreateChild(parent, key);
+    }
+
+    /**
+     * Returns a new ConcurrentMapNode with a concurrent copy of
+     * the whole tree and a copy of the options.
+     *
+     * @return
+     */
+    @Override
+    public ConcurrentMapNode deepCopy() {
+        return new ConcurrentMapNode(toConcurrentMap(base, true), (MapNodeOptions) options.clone(), true);
+    }
+
+    /**
+     * Same as deepCopy(), but the top-level values of the base map
+     * are copied in parallel on the given executor (see
+     * MapNodeCopier), and then converted to concurrent maps and lists.
+     *
+     * @throws MapNodeException if the copy fails or is interrupted
+     * @param executor
+     * @return
+     */
+    @Override
+    public ConcurrentMapNode deepCopy(ExecutorService executor) {
+        return new ConcurrentMapNode(MapNodeCopier.copy(base, executor), (MapNodeOptions) options.clone());
+    }
+
+    /**
+     * Clones the ConcurrentMapNode. This is the same as deepCopy(),
+     * so the clone is a ConcurrentMapNode as well, and can be modified
+     * without affecting this node.
+     *
+     * @return
+     * @throws CloneNotSupportedException
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        return deepCopy();
+    }
+
+    /**
+     * Converts the given map into a ConcurrentHashMap, converting
+     * all the maps and lists in it as well. If copy is false, maps
+     * and lists that already are concurrent are converted in place.
+     *
+     * @param map
+     * @param copy
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected static ConcurrentMap<String, Object> toConcurrentMap(Map<String, Object> map, boolean copy) {
+        return (ConcurrentMap<String, Object>) toConcurrent(map, copy);
+    }
+
+    /**
+     * Converts the given value: maps become ConcurrentHashMaps and
+     * lists become CopyOnWriteArrayLists, recursively. Null keys
+     * and values are dropped from maps. Any other value is returned
+     * as it is.
+     *
+     * @param value
+     * @param copy
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected static Object toConcurrent(Object value, boolean copy) {
+        if (value instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) value;
+
+            if (!copy && map instanceof ConcurrentHashMap) {
+                for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                    Object converted = toConcurrent(entry.getValue(), false);
+                    if (converted != entry.getValue()) {
+                        entry.setValue(converted);
+                    }
+                }
+                return map;
+            }
+
+            ConcurrentHashMap<Object, Object> out = new ConcurrentHashMap<Object, Object>(Math.max(16, (int) (map.size() / 0.75f) + 1));
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    out.put(entry.getKey(), toConcurrent(entry.getValue(), copy));
+                }
+            }
+            return out;
+        } else if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+
+            if (!copy && list instanceof CopyOnWriteArrayList) {
+                synchronized (list) {
+                    for (ListIterator<Object> it = list.listIterator(); it.hasNext();) {
+                        int index = it.nextIndex();
+                        Object element = it.next();
+                        Object converted = toConcurrent(element, false);
+                        if (converted != element) {
+                            list.set(index, converted);
+                        }
+                    }
+                }
+                return list;
+            }
+
+            List<Object> out = new ArrayList<Object>(list.size());
+            for (Object element : list) {
+                out.add(toConcurrent(element, copy));
+            }
+            return new CopyOnWriteArrayList<Object>(out);
+        }
+        return value;
+    }
+}
@@ -1,6 +1,7 @@
 package com.yetanotherx.mapnode;
 
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Simple HashMap utility. Initialize with an even number
@@ -8,6 +9,9 @@ import java.util.HashMap;
  * 
  * new EasyHashMap<String, Integer>("foo", 1, "bar", 2)
  * 
+ * EasyHashMap.compact() fills in a CompactMap the same way, which
+ * takes less memory for a small number of entries.
+ * 
  * @author yetanotherx
  */
 public class EasyHashMap<T, U> extends HashMap<T, U> {
@@ -22,8 +26,27 @@ public class EasyHashMap<T, U> extends HashMap<T, U> {
      * @throws MapNodeException
      * @param values 
      */
-    @SuppressWarnings("unchecked")
     public EasyHashMap(Object... values) {
+        fill(this, values);
+    }
+
+    /**
+     * Creates a CompactMap filled in with a list of values.
+     * If the number of arguments is not even, then
+     * it throws a MapNodeException (runtime).
+     * 
+     * @throws MapNodeException
+     * @param values
+     * @return 
+     */
+    public static <T, U> CompactMap<T, U> compact(Object... values) {
+        CompactMap<T, U> map = new CompactMap<T, U>();
+        fill(map, values);
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, U> void fill(Map<T, U> map, Object... values) {
         if (values.length % 2 != 0) {
             throw new MapNodeException("Value count must be even");
         }
@@ -35,7 +58,7 @@ public class EasyHashMap<T, U> extends HashMap<T, U> {
                 saved = (T) value;
             } else {
                 first = true;
-                this.put(saved, (U) value);
+                map.put(saved, (U) value);
                 saved = null;
             }
         }
@@ -0,0 +1,237 @@
+package com.yetanotherx.mapnode;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool of map keys. Documents often repeat the same keys in every entry
+ * of a list, and a parser creates a new String for each of them. With a
+ * pool set in the options (see MapNodeOptions.setKeyPool()), a MapNode
+ * replaces every key by the pooled String with the same contents when a
+ * document is loaded and when a value is set (by setObject(), a cursor
+ * or a batch), so each distinct key is only stored once.
+ *
+ * The pool only holds weak references, so keys that are no longer used
+ * by any tree can still be garbage collected. A pool can be shared by
+ * all nodes (getGlobal()) or created for a single node or group of nodes.
+ *
+ * The pool counts the duplicate Strings it replaced, and estimates the
+ * memory they took (see getBytesSaved()).
+ *
+ * @author yetanotherx
+ */
+public class KeyPool {
+
+    private static final KeyPool GLOBAL = new KeyPool();
+    protected final Map<String, WeakReference<String>> pool = new WeakHashMap<String, WeakReference<String>>();
+    protected long duplicates = 0;
+    protected long bytesSaved = 0;
+
+    /**
+     * Returns the pool shared by the whole JVM.
+     *
+     * @return
+     */
+    public static KeyPool getGlobal() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the pooled String equal to the given key, adding
+     * the key to the pool if there is none yet.
+     *
+     * @param key
+     * @return
+     */
+    public synchronized String intern(String key) {
+        if (key == null) {
+            return null;
+        }
+
+        WeakReference<String> ref = pool.get(key);
+        String pooled = ref != null ? ref.get() : null;
+        if (pooled == null) {
+            pool.put(key, new WeakReference<String>(key));
+            return key;
+        }
+
+        if (pooled != key) {
+            ++duplicates;
+            bytesSaved += estimateSize(key);
+        }
+        return pooled;
+    }
+
+    /**
+     * Returns the given tree with the String keys of every map replaced
+     * by their pooled Strings. Maps are never changed in place: a map
+     * with keys to replace is rebuilt as a new map of the same family
+     * (keeping its iteration order), which takes its place in the map or
+     * list that holds it, so readers of a shared tree see either the old
+     * or the new map. The root of the tree is rebuilt the same way, so
+     * the returned tree should be used instead of the given one.
+     *
+     * Every map and list is walked once, even if it is reachable from
+     * several places or contains itself. Unmodifiable maps are rebuilt
+     * as modifiable ones, but an unmodifiable map or list that holds a
+     * rebuilt map keeps the old one. Persistent maps (see
+     * MapNodeSnapshot) are left as they are.
+     *
+     * @param tree
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Object internKeys(Object tree) {
+        if (!(tree instanceof Map || tree instanceof List) || tree instanceof PersistentMap) {
+            return tree;
+        }
+
+        // Each frame is {parent, key or index, value}
+        Map<Object, Object> walked = new IdentityHashMap<Object, Object>();
+        Deque<Object[]> stack = new ArrayDeque<Object[]>();
+        stack.push(new Object[]{null, null, tree});
+        Object root = tree;
+        while (!stack.isEmpty()) {
+            Object[] frame = stack.pop();
+            Object value = frame[2];
+            Object interned = walked.get(value);
+            boolean seen = interned != null;
+            if (!seen) {
+                interned = value instanceof Map ? internKeys((Map<Object, Object>) value) : value;
+                walked.put(value, interned);
+            }
+
+            if (frame[0] == null) {
+                root = interned;
+            } else if (interned != value) {
+                replace(frame[0], frame[1], interned);
+            }
+            if (seen) {
+                continue;
+            }
+
+            if (interned instanceof Map) {
+                for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) interned).entrySet()) {
+                    push(stack, interned, entry.getKey(), entry.getValue());
+                }
+            } else {
+                int index = 0;
+                for (Object child : (List<Object>) interned) {
+                    push(stack, interned, index++, child);
+                }
+            }
+        }
+        return root;
+    }
+
+    private static void push(Deque<Object[]> stack, Object parent, Object key, Object child) {
+        if ((child instanceof Map || child instanceof List) && !(child instanceof PersistentMap)) {
+            stack.push(new Object[]{parent, key, child});
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void replace(Object parent, Object key, Object value) {
+        try {
+            if (parent instanceof Map) {
+                ((Map<Object, Object>) parent).put(key, value);
+            } else {
+                ((List<Object>) parent).set((Integer) key, value);
+            }
+        } catch (UnsupportedOperationException e) {
+            // The parent cannot be changed, so it keeps the old map
+        }
+    }
+
+    /**
+     * Interns the keys of a single map. Keys of a map cannot be
+     * replaced, so if any key is a duplicate, a new map with the
+     * pooled keys is returned. Otherwise the map itself is returned.
+     *
+     * @param map
+     * @return
+     */
+    private Map<Object, Object> internKeys(Map<Object, Object> map) {
+        boolean changed = false;
+        List<Object> keys = new ArrayList<Object>(map.size());
+        for (Object key : map.keySet()) {
+            Object pooled = key instanceof String ? intern((String) key) : key;
+            changed |= pooled != key;
+            keys.add(pooled);
+        }
+        if (!changed) {
+            return map;
+        }
+
+        Map<Object, Object> out;
+        if (map instanceof SortedMap) {
+            out = new TreeMap<Object, Object>(((SortedMap<Object, Object>) map).comparator());
+        } else if (map instanceof ConcurrentMap) {
+            out = new ConcurrentHashMap<Object, Object>(map.size());
+        } else if (map instanceof CompactMap) {
+            out = new CompactMap<Object, Object>();
+        } else {
+            out = new LinkedHashMap<Object, Object>(Math.max(16, (int) (map.size() / 0.75f) + 1));
+        }
+
+        int i = 0;
+        for (Object value : map.values()) {
+            out.put(keys.get(i++), value);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the number of distinct keys in the pool.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return pool.size();
+    }
+
+    /**
+     * Returns the number of duplicate Strings that
+     * were replaced by pooled ones.
+     *
+     * @return
+     */
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Returns an estimate of the memory taken by the duplicate Strings
+     * that were replaced, in bytes. Each String is counted as its object
+     * header and fields plus its character array, as laid out by a 64-bit
+     * JVM with compressed references (2 bytes per character; JVMs that
+     * store Latin-1 strings with 1 byte per character save less).
+     *
+     * @return
+     */
+    public synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * Estimates the memory taken by a String, in bytes.
+     *
+     * @param key
+     * @return
+     */
+    protected static long estimateSize(String key) {
+        long array = 16 + 2L * key.length();
+        return 24 + ((array + 7) & ~7L);
+    }
+}
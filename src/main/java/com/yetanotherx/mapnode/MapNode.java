@@ -1,35 +1,78 @@
 package com.yetanotherx.mapnode;
 
+import com.yetanotherx.mapnode.MapNodeMetrics.Operation;
 import com.yetanotherx.mapnode.converter.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileOwnerAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
-import org.yaml.snakeyaml.DumperOptions;
-import org.yaml.snakeyaml.Yaml;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
 
 /**
  * Main MapNode class. This stores a Map<String, Object> in
  * a way that can easily access values without knowing the
  * content of the map. This works well when dealing with JSONObjects,
  * YAML results, and any other application that deals with
- * Maps of Maps. It accepts any type of Map<String, Object>, however,
- * clone() is supported only if the base is a HashMap<String, Object>.
+ * Maps of Maps. It accepts any type of Map<String, Object>.
  * 
  * @author yetanotherx
  */
 public class MapNode implements Cloneable {
 
     /**
-     * Map base instance.
+     * Map base instance. Volatile so that a base swapped in by
+     * setBase() is seen by readers on other threads.
      */
-    protected Map<String, Object> base;
+    protected volatile Map<String, Object> base;
     /**
      * Options to use in this node. Properties
      * set will be used in all sub-nodes.
      */
     protected MapNodeOptions options;
+    /**
+     * Cache of resolved paths. Created on first use if
+     * options.cacheSize is greater than 0.
+     */
+    protected volatile MapNodeCache cache;
+    /**
+     * Listeners of this node. Created when the first
+     * listener is added.
+     */
+    protected volatile MapNodeListeners listeners;
+    /**
+     * Memoized hash codes of the maps and lists in the tree.
+     * Created on first use if options.cacheHashes is true.
+     */
+    protected volatile MapNodeHashes hashes;
+    /**
+     * Time the last loadYaml() call took, in nanoseconds.
+     */
+    protected long lastLoadTime = 0;
+    private static final int[] EMPTY_INT_ARRAY = new int[0];
+    private static final double[] EMPTY_DOUBLE_ARRAY = new double[0];
 
     /**
      * Creates a new MapNode object with an empty HashMap
@@ -77,6 +120,9 @@ public class MapNode implements Cloneable {
      */
     public void setBase(Map<String, Object> base) {
         this.base = base;
+        invalidateCache();
+        invalidateHashes();
+        fireChanged(MapNodePath.ROOT);
     }
 
     /**
@@ -95,6 +141,192 @@ public class MapNode implements Cloneable {
      */
     public void setOptions(MapNodeOptions props) {
         this.options = props;
+        this.cache = null;
+        this.hashes = null;
+    }
+
+    /**
+     * Returns the path cache of this node, or null if caching
+     * is disabled in the options. The cache keeps hit and miss
+     * counters.
+     * 
+     * @return 
+     */
+    public MapNodeCache getCache() {
+        MapNodeCache pathCache = cache;
+        if (pathCache == null && options.cacheSize > 0) {
+            synchronized (this) {
+                if (cache == null) {
+                    cache = new MapNodeCache(options.cacheSize);
+                }
+                pathCache = cache;
+            }
+        }
+        if (pathCache != null) {
+            pathCache.checkSeparator(options.separatorChar);
+        }
+        return pathCache;
+    }
+
+    /**
+     * Clears the path cache. This is done automatically when the
+     * node is modified through its own methods, but has to be
+     * called by hand if the maps are modified directly, or through
+     * another MapNode (such as one returned by getMapNode()).
+     */
+    public void invalidateCache() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the memoized hash codes of this node, or null if
+     * hash caching is disabled in the options.
+     * 
+     * @return 
+     */
+    public MapNodeHashes getHashes() {
+        MapNodeHashes out = hashes;
+        if (out == null && options.cacheHashes) {
+            synchronized (this) {
+                if (hashes == null) {
+                    hashes = new MapNodeHashes();
+                }
+                out = hashes;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Forgets the memoized hash codes. This is done automatically
+     * when the node is modified through its own methods or through
+     * a node returned by its getMapNode() (which shares the memoized
+     * hash codes), but has to be called by hand if the maps are
+     * modified directly, or through any other MapNode.
+     */
+    public void invalidateHashes() {
+        if (hashes != null) {
+            hashes.clear();
+        }
+    }
+
+    /**
+     * Forgets the memoized hash codes of the maps and lists on the
+     * path, and of the old value that was replaced or removed.
+     * 
+     * @param path
+     * @param oldValue 
+     */
+    protected void invalidateHashes(MapNodePath path, Object oldValue) {
+        MapNodeHashes memo = hashes;
+        if (memo != null) {
+            memo.invalidate(this, path, oldValue);
+        }
+    }
+
+    /**
+     * Adds a listener that is notified when the value at the given
+     * path, or anything inside it, is changed through this node with
+     * setObject(), removeObject(), setBase(), loadYaml() or reset().
+     * Changes are collected and passed to the listener in batches,
+     * on the listener executor (see MapNodeListener).
+     * 
+     * Changes made through another node, such as one returned
+     * by getMapNode(), or made to the maps directly, are not seen.
+     * 
+     * If prop == null, it throws a MapNodeException (runtime). Use
+     * "" to listen to every change.
+     * 
+     * @throws MapNodeException
+     * @param prop
+     * @param listener 
+     */
+    public void addListener(String prop, MapNodeListener listener) {
+        if (prop == null) {
+            throw new MapNodeException("Listener path cannot be null");
+        }
+        addListener(MapNodePath.compile(prop, options), listener);
+    }
+
+    /**
+     * Same as addListener(String, MapNodeListener), but uses
+     * a precompiled path.
+     * 
+     * @throws MapNodeException
+     * @param path
+     * @param listener 
+     */
+    public void addListener(MapNodePath path, MapNodeListener listener) {
+        if (path == null) {
+            throw new MapNodeException("Listener path cannot be null");
+        }
+        getListeners().add(path, listener);
+    }
+
+    /**
+     * Removes the listener from every path it was added to.
+     * 
+     * @param listener 
+     */
+    public void removeListener(MapNodeListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Sets the executor the listeners of this node are called on.
+     * By default, they are called on a shared daemon thread.
+     * 
+     * @param executor 
+     */
+    public void setListenerExecutor(Executor executor) {
+        getListeners().setExecutor(executor);
+    }
+
+    /**
+     * Returns the listeners of this node, creating them if needed.
+     * 
+     * @return 
+     */
+    protected MapNodeListeners getListeners() {
+        MapNodeListeners out = listeners;
+        if (out == null) {
+            synchronized (this) {
+                if (listeners == null) {
+                    listeners = new MapNodeListeners(this);
+                }
+                out = listeners;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Notifies the listeners that the value at the given path changed.
+     * 
+     * @param path 
+     */
+    protected void fireChanged(MapNodePath path) {
+        MapNodeListeners out = listeners;
+        if (out != null && !out.isEmpty()) {
+            out.changed(path);
+        }
+    }
+
+    /**
+     * Same as fireChanged(MapNodePath), but only compiles
+     * the path if there are listeners.
+     * 
+     * @param prop 
+     */
+    protected void fireChanged(String prop) {
+        MapNodeListeners out = listeners;
+        if (out != null && !out.isEmpty()) {
+            out.changed(MapNodePath.compile(prop, options));
+        }
     }
 
     /**
@@ -108,64 +340,215 @@ public class MapNode implements Cloneable {
      * signature {base={core={test=foo}}}, calling the method
      * as getObject("base.core.test") would return "foo";
      * 
+     * Elements of a List can be accessed by their index, so
+     * getObject("base.list.0") returns the first element of the
+     * List stored at base.list.
+     * 
      * If prop == null, it will return null;
      * If prop == "", it will return the base map itself.
      * 
      * @param prop
      * @return 
      */
-    @SuppressWarnings("unchecked")
     public Object getObject(String prop) {
         if (prop == null) {
             return null;
         }
 
-        if (prop.contains(options.separatorChar)) {
-
-            String[] split = prop.split(Pattern.quote(options.separatorChar));
-
-            Map<String, Object> newBase = this.base;
-            Object out = null;
-            for (String splat : split) {
-                Object got = newBase.get(splat);
-
-                if (got == null) {
-                    return null;
-                } else {
-
-                    try {
-                        if (got instanceof Map) {
-                            newBase = (Map<String, Object>) got;
-                            out = newBase;
-                        } else if (got instanceof List) {
-                            //Makes a map with the key the numerical values
-
-                            Map<String, Object> newMap = new HashMap<String, Object>();
-                            Integer i = 0;
-
-                            for (Object obj : (List<Object>) got) {
-                                newMap.put(i.toString(), obj);
-                                ++i;
-                            }
-                            newBase = newMap;
-                            out = newBase;
-                        } else {
-                            out = got;
-                        }
-                    } catch (ClassCastException ex) {
-                        out = got;
-                    }
-                }
+        MapNodeMetrics metrics = options.metrics;
+        if (metrics == null) {
+            return lookup(prop);
+        }
 
-            }
-            return out;
-        } else {
+        long start = System.nanoTime();
+        Object out = lookup(prop);
+        metrics.record(Operation.GET, prop, depth(prop), start);
+        return out;
+    }
+
+    /**
+     * Gets the raw object with the given path, using the
+     * cache if it is enabled. The path cannot be null.
+     * 
+     * @param prop
+     * @return 
+     */
+    protected Object lookup(String prop) {
+        if (prop.indexOf(options.separatorChar) == -1) {
             if (prop.length() == 0) {
                 return base;
             }
 
             return base.get(prop);
         }
+
+        MapNodeCache pathCache = getCache();
+        if (pathCache != null) {
+            Object out = pathCache.get(prop);
+            if (out == MapNodeCache.MISSING) {
+                long generation = pathCache.getGeneration();
+                out = resolve(MapNodePath.compile(prop, options));
+                pathCache.put(prop, out, generation);
+            }
+            return out;
+        }
+
+        return resolve(MapNodePath.compile(prop, options));
+    }
+
+    /**
+     * Gets the raw object with the given precompiled path.
+     * This does not need to parse the path, so it only walks
+     * the maps. See getObject(String) for a description of
+     * the node syntax.
+     * 
+     * If path == null, it will return null;
+     * If path is the root path, it will return the base map itself.
+     * 
+     * @param path
+     * @return 
+     */
+    public Object getObject(MapNodePath path) {
+        if (path == null) {
+            return null;
+        }
+
+        MapNodeMetrics metrics = options.metrics;
+        if (metrics == null) {
+            return lookup(path);
+        }
+
+        long start = System.nanoTime();
+        Object out = lookup(path);
+        metrics.record(Operation.GET, path.path, path.segments.length, start);
+        return out;
+    }
+
+    /**
+     * Gets the raw object with the given precompiled path, using
+     * the cache if it is enabled. The path cannot be null.
+     * 
+     * @param path
+     * @return 
+     */
+    protected Object lookup(MapNodePath path) {
+        MapNodeCache pathCache = path.segments.length > 1 ? getCache() : null;
+        String key = pathCache != null ? path.getKey(options.separatorChar) : null;
+        if (key != null) {
+            Object out = pathCache.get(key);
+            if (out == MapNodeCache.MISSING) {
+                long generation = pathCache.getGeneration();
+                out = resolve(path);
+                pathCache.put(key, out, generation);
+            }
+            return out;
+        }
+
+        return resolve(path);
+    }
+
+    /**
+     * Walks the maps along the given path, without using the cache.
+     * 
+     * @param path
+     * @return 
+     */
+    protected Object resolve(MapNodePath path) {
+        Object out = base;
+        for (String segment : path.segments) {
+            out = getChild(out, segment);
+
+            if (out == null) {
+                return null;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Gets the raw objects at all the given paths (see getObject(String)
+     * for a description of the node syntax). The paths are put in a trie
+     * first, so a prefix that several paths share, such as "servers.eu"
+     * in "servers.eu.host" and "servers.eu.port", is only walked once,
+     * no matter how many paths start with it. The path cache is not used.
+     * 
+     * The returned map has an entry for every path, in the order of
+     * the collection, with null for the paths that were not found.
+     * Null paths are skipped.
+     * 
+     * @param paths
+     * @return 
+     */
+    public Map<String, Object> getAll(Collection<String> paths) {
+        Map<String, Object> out = new LinkedHashMap<String, Object>(Math.max(16, (int) (paths.size() / 0.75f) + 1));
+        PathTrie root = new PathTrie();
+        for (String prop : paths) {
+            if (prop != null && !out.containsKey(prop)) {
+                out.put(prop, null);
+                root.add(prop, MapNodePath.compile(prop, options).segments);
+            }
+        }
+
+        collect(root, base, out);
+        return out;
+    }
+
+    /**
+     * Stores the value for every path ending at the given trie
+     * node, then walks on to the children of the trie node.
+     * Missing values are already null in the output.
+     * 
+     * @param trie
+     * @param value
+     * @param out 
+     */
+    private void collect(PathTrie trie, Object value, Map<String, Object> out) {
+        if (value == null) {
+            return;
+        }
+
+        if (trie.paths != null) {
+            for (String prop : trie.paths) {
+                out.put(prop, value);
+            }
+        }
+
+        if (trie.children != null) {
+            for (Map.Entry<String, PathTrie> entry : trie.children.entrySet()) {
+                collect(entry.getValue(), getChild(value, entry.getKey()), out);
+            }
+        }
+    }
+
+    /**
+     * Node of the trie built by getAll(). Holds the paths that end
+     * here, and a child for every next segment of the longer paths.
+     */
+    private static final class PathTrie {
+
+        List<String> paths;
+        Map<String, PathTrie> children;
+
+        void add(String prop, String[] segments) {
+            PathTrie trie = this;
+            for (String segment : segments) {
+                if (trie.children == null) {
+                    trie.children = new HashMap<String, PathTrie>();
+                }
+
+                PathTrie child = trie.children.get(segment);
+                if (child == null) {
+                    child = new PathTrie();
+                    trie.children.put(segment, child);
+                }
+                trie = child;
+            }
+
+            if (trie.paths == null) {
+                trie.paths = new ArrayList<String>(1);
+            }
+            trie.paths.add(prop);
+        }
     }
 
     /**
@@ -185,63 +568,97 @@ public class MapNode implements Cloneable {
      * only if the value is a Map. Otherwise, it will not
      * set anything).
      * 
+     * If a key pool is set in the options, a map in the value
+     * whose keys are not all pooled yet is replaced by a new map
+     * with the pooled keys, so the stored value is not always the
+     * given one, and later changes to the given map are not seen
+     * (see MapNodeOptions.setKeyPool()).
+     * 
      * @param prop
      * @param value
      * @return 
      */
-    @SuppressWarnings("unchecked")
     public void setObject(String prop, Object value) {
         if (prop == null) {
             return;
         }
 
-        if (prop.contains(options.separatorChar)) {
-
-            String[] split = prop.split(Pattern.quote(options.separatorChar));
+        MapNodeMetrics metrics = options.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (prop.length() != 0 && prop.indexOf(options.separatorChar) == -1) {
+            Object oldValue = hashes != null ? getChild(base, prop) : null;
+            putChild(base, prop, internKeys(value));
+            invalidateCache();
+            if (hashes != null) {
+                invalidateHashes(MapNodePath.of(options.separatorChar, prop), oldValue);
+            }
+            fireChanged(prop);
+        } else {
+            store(MapNodePath.compile(prop, options), value);
+        }
 
-            Map<String, Object> newBase = this.base;
+        if (metrics != null) {
+            metrics.record(Operation.SET, prop, depth(prop), start);
+        }
+    }
 
-            for (int i = 0; i < split.length; ++i) {
-                Object got = newBase.get(split[i]);
+    /**
+     * Sets the object at the given precompiled path to the
+     * given value. See setObject(String, Object) for a
+     * description of the node syntax.
+     * 
+     * @param path
+     * @param value 
+     */
+    public void setObject(MapNodePath path, Object value) {
+        if (path == null) {
+            return;
+        }
 
-                if (i == split.length - 1) {
-                    newBase.put(split[i], value);
-                    return;
-                }
+        MapNodeMetrics metrics = options.metrics;
+        if (metrics == null) {
+            store(path, value);
+            return;
+        }
 
-                try {
-                    if (got == null) {
-                        newBase.put(split[i], new HashMap<String, Object>());
-                    } else {
-                        if (got instanceof Map) {
-                            newBase = (Map<String, Object>) got;
-                        } else if (got instanceof List) {
-                            //Makes a map with the key the numerical values
-
-                            Map<String, Object> newMap = new HashMap<String, Object>();
-                            Integer j = 0;
-
-                            for (Object obj : (List<Object>) got) {
-                                newMap.put(j.toString(), obj);
-                                ++j;
-                            }
-                            newBase = newMap;
-                        } else {
-                            newBase.put(split[i], new HashMap<String, Object>());
-                        }
-                    }
-
-                } catch (ClassCastException ex) {
-                    newBase.put(split[i], new HashMap<String, Object>());
-                }
+        long start = System.nanoTime();
+        store(path, value);
+        metrics.record(Operation.SET, path.path, path.segments.length, start);
+    }
 
+    /**
+     * Sets the object at the given precompiled path to the
+     * given value. The path cannot be null.
+     * 
+     * @param path
+     * @param value 
+     */
+    @SuppressWarnings("unchecked")
+    protected void store(MapNodePath path, Object value) {
+        value = internKeys(value);
+        if (path.isRoot()) {
+            if (value instanceof Map) {
+                setBase((Map<String, Object>) value);
             }
-        } else {
-            if (prop.length() == 0 && value instanceof Map) {
-                base = (Map<String, Object>) value;
-            }
+            return;
+        }
 
-            base.put(prop, value);
+        String[] split = path.segments;
+        Object newBase = this.base;
+        for (int i = 0; i < split.length - 1; ++i) {
+            newBase = getOrCreateChild(newBase, split[i]);
+
+            if (newBase == null) {
+                invalidateCache();
+                return;
+            }
+        }
+        Object oldValue = hashes != null ? getChild(newBase, split[split.length - 1]) : null;
+        boolean changed = putChild(newBase, split[split.length - 1], value);
+        invalidateCache();
+        if (changed) {
+            invalidateHashes(path, oldValue);
+            fireChanged(path);
         }
     }
 
@@ -260,83 +677,455 @@ public class MapNode implements Cloneable {
      * 
      * If prop == null, it will not remove anything;
      * If prop == "", it will set the base map to an
-     * empty HashMap<String, Object>();
+     * empty map (see newMap());
      * 
      * @param prop
      * @return 
      */
-    @SuppressWarnings("unchecked")
     public void removeObject(String prop) {
         if (prop == null) {
             return;
         }
 
-        if (prop.contains(options.separatorChar)) {
-
-            String[] split = prop.split(Pattern.quote(options.separatorChar));
-
-            Map<String, Object> newBase = this.base;
-
-            for (int i = 0; i < split.length; ++i) {
-                Object got = newBase.get(split[i]);
-
-                if (i == split.length - 1) {
-                    newBase.remove(split[i]);
-                    return;
-                }
-
-                try {
-                    newBase = (Map<String, Object>) got;
-                } catch (ClassCastException ex) {
-                    return;
+        MapNodeMetrics metrics = options.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (prop.length() != 0 && prop.indexOf(options.separatorChar) == -1) {
+            Object oldValue = hashes != null ? getChild(base, prop) : null;
+            if (removeChild(base, prop)) {
+                invalidateCache();
+                if (hashes != null) {
+                    invalidateHashes(MapNodePath.of(options.separatorChar, prop), oldValue);
                 }
-
+                fireChanged(prop);
             }
         } else {
-            if (prop.length() == 0) {
-                base = new HashMap<String, Object>();
-            }
+            delete(MapNodePath.compile(prop, options));
+        }
 
-            base.remove(prop);
+        if (metrics != null) {
+            metrics.record(Operation.REMOVE, prop, depth(prop), start);
         }
     }
 
     /**
-     * Gets the String value of the value with the given
-     * location (see getProperty for a description of the
-     * node syntax). If no property is found, or is equal
-     * to null, it will return either null or an empty string
-     * depending on the options set. If options.returnNull
-     * is true, then it will return null if no value is found. 
-     * If it is false, then it will return an empty string.
+     * Removes the object at the given precompiled path. See
+     * removeObject(String) for a description of the node syntax.
      * 
-     * @param prop
-     * @return 
+     * @param path 
      */
-    public String getString(String prop) {
-        if (options.returnNull) {
-            return getString(prop, null);
-        } else {
-            return getString(prop, "");
+    public void removeObject(MapNodePath path) {
+        if (path == null) {
+            return;
+        }
+
+        MapNodeMetrics metrics = options.metrics;
+        if (metrics == null) {
+            delete(path);
+            return;
         }
+
+        long start = System.nanoTime();
+        delete(path);
+        metrics.record(Operation.REMOVE, path.path, path.segments.length, start);
     }
 
     /**
-     * Gets the String value of the value with the given
-     * location (see getProperty for a description of the
-     * node syntax). If no property is found, or is equal
-     * to null, it will return the given default value.
+     * Removes the object at the given precompiled
+     * path. The path cannot be null.
      * 
-     * @param prop
-     * @param defaultResult
-     * @return 
+     * @param path 
      */
-    public String getString(String prop, String defaultResult) {
-        Object out = this.getObject(prop);
-        if (out == null) {
-            return defaultResult;
-        } else {
-            return out.toString();
+    protected void delete(MapNodePath path) {
+        if (path.isRoot()) {
+            setBase(newMap());
+            return;
+        }
+
+        String[] split = path.segments;
+        Object newBase = this.base;
+        for (int i = 0; i < split.length - 1; ++i) {
+            newBase = getChild(newBase, split[i]);
+        }
+        Object oldValue = hashes != null ? getChild(newBase, split[split.length - 1]) : null;
+        if (removeChild(newBase, split[split.length - 1])) {
+            invalidateCache();
+            invalidateHashes(path, oldValue);
+            fireChanged(path);
+        }
+    }
+
+    /**
+     * Returns the values matching the given query (see MapNodeQuery
+     * for the wildcards it supports) with their paths, as a stream
+     * that finds them while it is consumed. For example,
+     * query("servers.*.port") returns the port of every server.
+     * 
+     * @throws MapNodeException
+     * @param query
+     * @return 
+     */
+    public Stream<MapNodeQuery.Match> query(String query) {
+        return MapNodeQuery.compile(query, options).stream(this);
+    }
+
+    /**
+     * Same as query(String), but uses a precompiled query.
+     * 
+     * @param query
+     * @return 
+     */
+    public Stream<MapNodeQuery.Match> query(MapNodeQuery query) {
+        return query.stream(this);
+    }
+
+    /**
+     * Returns a new cursor at the root of this node, which can be
+     * moved to a part of the tree and read and write paths relative
+     * to it (see MapNodeCursor).
+     * 
+     * @return 
+     */
+    public MapNodeCursor cursor() {
+        return new MapNodeCursor(this);
+    }
+
+    /**
+     * Returns a new batch of writes to this node. The writes are
+     * only applied, all at once, when the batch is committed (see
+     * MapNodeBatch).
+     * 
+     * A commit replaces the base map with a new one, so the map this
+     * node was created with, and maps and nodes (getMapNode()) taken
+     * from it before the commit, are detached from the node: later
+     * writes through them are not seen by the node. A setObject() or
+     * removeObject() made by another thread during the commit is lost.
+     * 
+     * @return 
+     */
+    public MapNodeBatch batch() {
+        return new MapNodeBatch(this);
+    }
+
+    /**
+     * Runs the transaction, then commits the writes it added to the
+     * batch all at once. If the transaction throws an exception, or
+     * one of its writes cannot be applied, none of them are applied.
+     * References taken before the commit go stale, and concurrent
+     * writes can be lost, as described in batch().
+     * 
+     * @throws MapNodeException
+     * @param transaction 
+     */
+    public void transaction(MapNodeBatch.Transaction transaction) {
+        MapNodeBatch batch = batch();
+        transaction.run(batch);
+        batch.commit();
+    }
+
+    /**
+     * Returns the child of the given map or list with the given
+     * key. Lists are indexed directly by the numerical value
+     * of the key. If the parent is neither, or the key is not
+     * a valid index of the list, it will return null.
+     * 
+     * @param parent
+     * @param key
+     * @return 
+     */
+    @SuppressWarnings("unchecked")
+    protected Object getChild(Object parent, String key) {
+        if (parent instanceof Map) {
+            return ((Map<String, Object>) parent).get(key);
+        } else if (parent instanceof List) {
+            List<Object> list = (List<Object>) parent;
+            int index = parseIndex(key);
+
+            if (index >= 0 && index < list.size()) {
+                return list.get(index);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the child of the given map or list with the given key.
+     * For lists, the element at the index is replaced, or the
+     * value is appended if the index is equal to the size of the list.
+     * Returns false if nothing could be set.
+     * 
+     * @param parent
+     * @param key
+     * @param value
+     * @return 
+     */
+    @SuppressWarnings("unchecked")
+    protected boolean putChild(Object parent, String key, Object value) {
+        KeyPool pool = options.keyPool;
+        if (pool != null) {
+            key = pool.intern(key);
+        }
+
+        if (parent instanceof Map) {
+            ((Map<String, Object>) parent).put(key, value);
+            return true;
+        } else if (parent instanceof List) {
+            List<Object> list = (List<Object>) parent;
+            int index = parseIndex(key);
+
+            if (index >= 0 && index < list.size()) {
+                list.set(index, value);
+                return true;
+            } else if (index == list.size()) {
+                list.add(value);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the child of the given map or list with the given key.
+     * Removing an element of a list shifts the elements after it.
+     * Returns false if there was nothing to remove.
+     * 
+     * @param parent
+     * @param key 
+     * @return 
+     */
+    @SuppressWarnings("unchecked")
+    protected boolean removeChild(Object parent, String key) {
+        if (parent instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) parent;
+            int size = map.size();
+            return map.remove(key) != null || map.size() != size;
+        } else if (parent instanceof List) {
+            List<Object> list = (List<Object>) parent;
+            int index = parseIndex(key);
+
+            if (index >= 0 && index < list.size()) {
+                list.remove(index);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the map or list stored in the parent with the given key.
+     * If there is neither there, a new map (see newMap()) will be
+     * stored in its place. If that is not possible (the parent is not
+     * a container, or the key is not a valid index), it returns null.
+     * 
+     * @param parent
+     * @param key
+     * @return 
+     */
+    protected Object getOrCreateChild(Object parent, String key) {
+        Object got = getChild(parent, key);
+
+        if (got instanceof Map || got instanceof List) {
+            return got;
+        }
+
+        Map<String, Object> newMap = newMap();
+        if (putChild(parent, key, newMap)) {
+            return newMap;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of segments of the given path, which is
+     * only needed when metrics are recorded. Compiling the path
+     * would be more expensive than counting the separators.
+     * 
+     * @param prop
+     * @return 
+     */
+    protected int depth(String prop) {
+        if (prop.length() == 0) {
+            return 0;
+        }
+
+        int depth = 1;
+        String separator = options.separatorChar;
+        for (int i = prop.indexOf(separator); i != -1; i = prop.indexOf(separator, i + separator.length())) {
+            ++depth;
+        }
+        return depth;
+    }
+
+    /**
+     * Reports a value that was found, but that the converter could
+     * not convert, to the metrics (if any). Returns the converted value.
+     * 
+     * @param <T>
+     * @param value
+     * @param converted
+     * @return 
+     */
+    protected <T> T converted(Object value, T converted) {
+        if (converted == null && value != null) {
+            MapNodeMetrics metrics = options.metrics;
+            if (metrics != null) {
+                metrics.converterFailed();
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * Returns the converter registered for the given type in
+     * options.converterRegistry, or the given built-in converter
+     * if none is registered. Used by the boxed getters (getInteger(),
+     * getDouble(), getBoolean(), ...) and the list getters, so a
+     * converter registered for one of the built-in types changes
+     * what they return as well.
+     * 
+     * @param <T>
+     * @param type
+     * @param builtIn
+     * @return 
+     */
+    protected <T> BaseConverter<T> getConverter(Class<T> type, BaseConverter<T> builtIn) {
+        BaseConverter<T> converter = options.converterRegistry.get(type);
+        return converter != null ? converter : builtIn;
+    }
+
+    /**
+     * Creates an empty map, used for intermediate maps created by
+     * setObject() and for resetting the base with removeObject("").
+     * Subclasses override this to use a different kind of map.
+     * 
+     * @return 
+     */
+    protected Map<String, Object> newMap() {
+        if (options.compactMaps) {
+            return new CompactMap<String, Object>();
+        }
+        return new HashMap<String, Object>();
+    }
+
+    /**
+     * Creates a node wrapping the given sub-map, sharing the options
+     * of this node. Used by getMapNode(), so subclasses can return
+     * sub-nodes of their own type.
+     * 
+     * @param map
+     * @return 
+     */
+    protected MapNode newNode(Map<String, Object> map) {
+        return new MapNode(map, options);
+    }
+
+    /**
+     * Creates the node returned by getMapNode() with newNode(). If hash
+     * caching is enabled, the sub-node shares the memoized hash codes of
+     * this node, so changes made through it are seen by this node's
+     * hashCode() as well.
+     * 
+     * @param map
+     * @return 
+     */
+    protected MapNode subNode(Map<String, Object> map) {
+        MapNode out = newNode(map);
+        MapNodeHashes memo = getHashes();
+        if (memo != null && out.options == options) {
+            out.hashes = memo;
+        }
+        return out;
+    }
+
+    /**
+     * Parses a path segment as a list index without allocating.
+     * Returns -1 if the segment is not a non-negative integer.
+     * 
+     * @param key
+     * @return 
+     */
+    protected static int parseIndex(String key) {
+        int length = key.length();
+        if (length == 0 || length > 9) {
+            return -1;
+        }
+
+        int index = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    /**
+     * Gets the String value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax). If no property is found, or is equal
+     * to null, it will return either null or an empty string
+     * depending on the options set. If options.returnNull
+     * is true, then it will return null if no value is found. 
+     * If it is false, then it will return an empty string.
+     * 
+     * @param prop
+     * @return 
+     */
+    public String getString(String prop) {
+        if (options.returnNull) {
+            return getString(prop, null);
+        } else {
+            return getString(prop, "");
+        }
+    }
+
+    /**
+     * Gets the String value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax). If no property is found, or is equal
+     * to null, it will return the given default value.
+     * 
+     * @param prop
+     * @param defaultResult
+     * @return 
+     */
+    public String getString(String prop, String defaultResult) {
+        Object out = this.getObject(prop);
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return out.toString();
+        }
+    }
+
+    /**
+     * Same as getString(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public String getString(MapNodePath path) {
+        if (options.returnNull) {
+            return getString(path, null);
+        } else {
+            return getString(path, "");
+        }
+    }
+
+    /**
+     * Same as getString(String, String), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public String getString(MapNodePath path, String defaultResult) {
+        Object out = this.getObject(path);
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return out.toString();
         }
     }
 
@@ -385,7 +1174,37 @@ public class MapNode implements Cloneable {
         if (out == null) {
             return defaultResult;
         } else {
-            return new IntegerConverter().transform(out);
+            return converted(out, getConverter(Integer.class, IntegerConverter.INSTANCE).transform(out));
+        }
+    }
+
+    /**
+     * Same as getInteger(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public Integer getInteger(MapNodePath path) {
+        if (options.returnNull) {
+            return getInteger(path, null);
+        } else {
+            return getInteger(path, 0);
+        }
+    }
+
+    /**
+     * Same as getInteger(String, Integer), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public Integer getInteger(MapNodePath path, Integer defaultResult) {
+        Object out = this.getObject(path);
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return converted(out, getConverter(Integer.class, IntegerConverter.INSTANCE).transform(out));
         }
     }
 
@@ -410,7 +1229,7 @@ public class MapNode implements Cloneable {
         if (options.returnNull) {
             return getDouble(prop, null);
         } else {
-            return getDouble(prop, 0.0);
+            return getDouble(prop, Double.valueOf(0.0D));
         }
     }
 
@@ -434,7 +1253,37 @@ public class MapNode implements Cloneable {
         if (out == null) {
             return defaultResult;
         } else {
-            return new DoubleConverter().transform(out);
+            return converted(out, getConverter(Double.class, DoubleConverter.INSTANCE).transform(out));
+        }
+    }
+
+    /**
+     * Same as getDouble(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public Double getDouble(MapNodePath path) {
+        if (options.returnNull) {
+            return getDouble(path, null);
+        } else {
+            return getDouble(path, Double.valueOf(0.0D));
+        }
+    }
+
+    /**
+     * Same as getDouble(String, Double), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public Double getDouble(MapNodePath path, Double defaultResult) {
+        Object out = this.getObject(path);
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return converted(out, getConverter(Double.class, DoubleConverter.INSTANCE).transform(out));
         }
     }
 
@@ -459,7 +1308,7 @@ public class MapNode implements Cloneable {
         if (options.returnNull) {
             return getBoolean(prop, null);
         } else {
-            return getBoolean(prop, false);
+            return getBoolean(prop, Boolean.FALSE);
         }
     }
 
@@ -483,204 +1332,250 @@ public class MapNode implements Cloneable {
         if (out == null) {
             return defaultResult;
         } else {
-            return new BooleanConverter().transform(out);
+            return converted(out, getConverter(Boolean.class, BooleanConverter.INSTANCE).transform(out));
         }
     }
 
     /**
-     * Gets the MapNode value of the value with the given
-     * location (see getProperty for a description of the
-     * node syntax). If one of the following conditions is met,
-     * 
-     * - the value at the location is not found
-     * - the value at the location is set to null
-     * - the value at the location is not a Map<String, Object>
-     * 
-     * then it will return either null or an empty string
-     * depending on the options set. If options.returnNull
-     * is true, then it will return null if no value is found. 
-     * If it is false, then it will return a blank MapNode.
+     * Same as getBoolean(String), but uses a precompiled path.
      * 
-     * @param prop
+     * @param path
      * @return 
      */
-    public MapNode getMapNode(String prop) {
+    public Boolean getBoolean(MapNodePath path) {
         if (options.returnNull) {
-            return getMapNode(prop, null);
+            return getBoolean(path, null);
         } else {
-            return getMapNode(prop, new MapNode(new HashMap<String, Object>(), options));
+            return getBoolean(path, Boolean.FALSE);
         }
     }
 
     /**
-     * Gets the MapNode value of the value with the given
-     * location (see getProperty for a description of the
-     * node syntax). If one of the following conditions is met,
-     * 
-     * - the value at the location is not found
-     * - the value at the location is set to null
-     * - the value at the location is not a Map<String, Object>
-     * 
-     * then it will return the given default result.
+     * Same as getBoolean(String, Boolean), but uses a precompiled path.
      * 
-     * @param prop
+     * @param path
      * @param defaultResult
      * @return 
      */
-    @SuppressWarnings("unchecked")
-    public MapNode getMapNode(String prop, MapNode defaultResult) {
-        Object out = this.getObject(prop);
+    public Boolean getBoolean(MapNodePath path, Boolean defaultResult) {
+        Object out = this.getObject(path);
         if (out == null) {
             return defaultResult;
         } else {
-            if (out instanceof Map) {
-                return new MapNode((Map<String, Object>) out, options);
-            } else {
-                return null;
-            }
+            return converted(out, getConverter(Boolean.class, BooleanConverter.INSTANCE).transform(out));
         }
     }
 
     /**
-     * Gets a list of values from the given location (see getProperty()
-     * for a description of the node syntax). If one of the 
+     * Gets the int value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax), without boxing it. If the value is not
+     * found or cannot be converted to an int, it returns 0.
+     * 
+     * @param prop
+     * @return 
+     */
+    public int getInt(String prop) {
+        return getInt(prop, 0);
+    }
+
+    /**
+     * Gets the int value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax), without boxing it. Numbers are converted
+     * directly, only other values are parsed. If one of the
      * following conditions is met,
      * 
      * - the value at the location is not found
      * - the value at the location is set to null
-     * - the value at the location is not a list of values
+     * - the value at the location cannot be converted to an int
      * 
-     * then it will return either null or an empty list
-     * depending on the options set. If options.returnEmpty
-     * is false, then it will return null if no value is found. 
-     * If it is true, then it will return an empty ArrayList.
+     * then it will return the given default result. This always
+     * uses the built-in conversion (IntegerConverter.toInt()), not the
+     * converter registered in options.converterRegistry.
      * 
      * @param prop
+     * @param defaultResult
      * @return 
      */
-    public List<Object> getList(String prop) {
-        if (!options.returnEmpty) {
-            return getList(prop, null);
-        } else {
-            return getList(prop, new ArrayList<Object>());
-        }
+    public int getInt(String prop, int defaultResult) {
+        return IntegerConverter.toInt(this.getObject(prop), defaultResult);
     }
 
     /**
-     * Gets a list of values from the given location (see getProperty()
-     * for a description of the node syntax). If one of the 
+     * Same as getInt(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public int getInt(MapNodePath path) {
+        return getInt(path, 0);
+    }
+
+    /**
+     * Same as getInt(String, int), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public int getInt(MapNodePath path, int defaultResult) {
+        return IntegerConverter.toInt(this.getObject(path), defaultResult);
+    }
+
+    /**
+     * Gets the long value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax), without boxing it. If the value is not
+     * found or cannot be converted to a long, it returns 0.
+     * 
+     * @param prop
+     * @return 
+     */
+    public long getLong(String prop) {
+        return getLong(prop, 0L);
+    }
+
+    /**
+     * Gets the long value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax), without boxing it. Numbers are converted
+     * directly, only other values are parsed. If one of the
      * following conditions is met,
      * 
      * - the value at the location is not found
      * - the value at the location is set to null
-     * - the value at the location is not a list of values
+     * - the value at the location cannot be converted to a long
      * 
-     * then it will return the given default result.
+     * then it will return the given default result. This always
+     * uses the built-in conversion (LongConverter.toLong()), not the
+     * converter registered in options.converterRegistry.
      * 
      * @param prop
      * @param defaultResult
      * @return 
      */
-    @SuppressWarnings("unchecked")
-    public List<Object> getList(String prop, List<Object> defaultResult) {
-        Object out = this.getObject(prop);
+    public long getLong(String prop, long defaultResult) {
+        return LongConverter.toLong(this.getObject(prop), defaultResult);
+    }
 
-        if (out == null) {
-            return defaultResult;
-        } else {
-            if (out instanceof List) {
-                return (List<Object>) out;
-            } else {
-                return defaultResult;
-            }
-        }
+    /**
+     * Same as getLong(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public long getLong(MapNodePath path) {
+        return getLong(path, 0L);
     }
 
     /**
-     * Gets a list of integers from the given location (see getProperty()
-     * for a description of the node syntax). If one of the 
+     * Same as getLong(String, long), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public long getLong(MapNodePath path, long defaultResult) {
+        return LongConverter.toLong(this.getObject(path), defaultResult);
+    }
+
+    /**
+     * Gets the double value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax), without boxing it. Numbers are converted
+     * directly, only other values are parsed. If one of the
      * following conditions is met,
      * 
      * - the value at the location is not found
      * - the value at the location is set to null
-     * - the value at the location is not a list of int values
+     * - the value at the location cannot be converted to a double
      * 
-     * then it will return either null or an empty list
-     * depending on the options set. If options.returnEmpty
-     * is false, then it will return null if no value is found. 
-     * If it is true, then it will return an empty ArrayList.
+     * then it will return the given default result. This always
+     * uses the built-in conversion (DoubleConverter.toDouble()), not the
+     * converter registered in options.converterRegistry.
      * 
      * @param prop
+     * @param defaultResult
      * @return 
      */
-    public List<Integer> getIntegerList(String prop) {
-        if (!options.returnEmpty) {
-            return getIntegerList(prop, null);
-        } else {
-            return getIntegerList(prop, new ArrayList<Integer>());
-        }
+    public double getDouble(String prop, double defaultResult) {
+        return DoubleConverter.toDouble(this.getObject(prop), defaultResult);
     }
 
     /**
-     * Gets a list of integers from the given location (see getProperty()
-     * for a description of the node syntax). If one of the 
-     * following conditions is met,
-     * 
-     * - the value at the location is not found
-     * - the value at the location is set to null
-     * - the value at the location is not a list of integer values
+     * Same as getDouble(String, double), but uses a precompiled path.
      * 
-     * then it will return the given default result.
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public double getDouble(MapNodePath path, double defaultResult) {
+        return DoubleConverter.toDouble(this.getObject(path), defaultResult);
+    }
+
+    /**
+     * Gets the boolean value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax), without boxing it. If the value is not
+     * found or set to null, it will return the given default
+     * result. Values that are not Booleans are parsed, and
+     * return false if they are not equal to "true". This always
+     * uses the built-in conversion (BooleanConverter.toBoolean()),
+     * not the converter registered in options.converterRegistry.
      * 
      * @param prop
      * @param defaultResult
      * @return 
      */
-    public List<Integer> getIntegerList(String prop, List<Integer> defaultResult) {
-        List<Object> out = this.getList(prop, null);
+    public boolean getBoolean(String prop, boolean defaultResult) {
+        return BooleanConverter.toBoolean(this.getObject(prop), defaultResult);
+    }
 
-        if (out == null) {
-            return defaultResult;
-        } else {
-            List<Integer> newList = new ArrayList<Integer>();
-            new CollectionConverter<Integer>().transform(new IntegerConverter(), out, newList);
-            return newList;
-        }
+    /**
+     * Same as getBoolean(String, boolean), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public boolean getBoolean(MapNodePath path, boolean defaultResult) {
+        return BooleanConverter.toBoolean(this.getObject(path), defaultResult);
     }
 
     /**
-     * Gets a list of doubles from the given location (see getProperty()
-     * for a description of the node syntax). If one of the 
-     * following conditions is met,
+     * Gets the MapNode value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax). If one of the following conditions is met,
      * 
      * - the value at the location is not found
      * - the value at the location is set to null
-     * - the value at the location is not a list of double values
+     * - the value at the location is not a Map<String, Object>
      * 
-     * then it will return either null or an empty list
-     * depending on the options set. If options.returnEmpty
-     * is false, then it will return null if no value is found. 
-     * If it is true, then it will return an empty ArrayList.
+     * then it will return either null or an empty string
+     * depending on the options set. If options.returnNull
+     * is true, then it will return null if no value is found. 
+     * If it is false, then it will return a blank MapNode.
      * 
      * @param prop
      * @return 
      */
-    public List<Double> getDoubleList(String prop) {
-        if (!options.returnEmpty) {
-            return getDoubleList(prop, null);
+    public MapNode getMapNode(String prop) {
+        if (options.returnNull) {
+            return getMapNode(prop, null);
         } else {
-            return getDoubleList(prop, new ArrayList<Double>());
+            return getMapNode(prop, newNode(newMap()));
         }
     }
 
     /**
-     * Gets a list of doubles from the given location (see getProperty()
-     * for a description of the node syntax). If one of the 
-     * following conditions is met,
+     * Gets the MapNode value of the value with the given
+     * location (see getProperty for a description of the
+     * node syntax). If one of the following conditions is met,
      * 
      * - the value at the location is not found
      * - the value at the location is set to null
-     * - the value at the location is not a list of double values
+     * - the value at the location is not a Map<String, Object>
      * 
      * then it will return the given default result.
      * 
@@ -688,26 +1583,63 @@ public class MapNode implements Cloneable {
      * @param defaultResult
      * @return 
      */
-    public List<Double> getDoubleList(String prop, List<Double> defaultResult) {
-        List<Object> out = this.getList(prop, null);
+    @SuppressWarnings("unchecked")
+    public MapNode getMapNode(String prop, MapNode defaultResult) {
+        Object out = this.getObject(prop);
+        if (out == null) {
+            return defaultResult;
+        } else {
+            if (out instanceof Map) {
+                return subNode((Map<String, Object>) out);
+            } else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Same as getMapNode(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public MapNode getMapNode(MapNodePath path) {
+        if (options.returnNull) {
+            return getMapNode(path, null);
+        } else {
+            return getMapNode(path, newNode(newMap()));
+        }
+    }
 
+    /**
+     * Same as getMapNode(String, MapNode), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    @SuppressWarnings("unchecked")
+    public MapNode getMapNode(MapNodePath path, MapNode defaultResult) {
+        Object out = this.getObject(path);
         if (out == null) {
             return defaultResult;
         } else {
-            List<Double> newList = new ArrayList<Double>();
-            new CollectionConverter<Double>().transform(new DoubleConverter(), out, newList);
-            return newList;
+            if (out instanceof Map) {
+                return subNode((Map<String, Object>) out);
+            } else {
+                return null;
+            }
         }
     }
 
     /**
-     * Gets a list of booleans from the given location (see getProperty()
+     * Gets a list of values from the given location (see getProperty()
      * for a description of the node syntax). If one of the 
      * following conditions is met,
      * 
      * - the value at the location is not found
      * - the value at the location is set to null
-     * - the value at the location is not a list of boolean values
+     * - the value at the location is not a list of values
      * 
      * then it will return either null or an empty list
      * depending on the options set. If options.returnEmpty
@@ -717,22 +1649,22 @@ public class MapNode implements Cloneable {
      * @param prop
      * @return 
      */
-    public List<Boolean> getBooleanList(String prop) {
+    public List<Object> getList(String prop) {
         if (!options.returnEmpty) {
-            return getBooleanList(prop, null);
+            return getList(prop, null);
         } else {
-            return getBooleanList(prop, new ArrayList<Boolean>());
+            return getList(prop, new ArrayList<Object>());
         }
     }
 
     /**
-     * Gets a list of booleans from the given location (see getProperty()
+     * Gets a list of values from the given location (see getProperty()
      * for a description of the node syntax). If one of the 
      * following conditions is met,
      * 
      * - the value at the location is not found
      * - the value at the location is set to null
-     * - the value at the location is not a list of boolean values
+     * - the value at the location is not a list of values
      * 
      * then it will return the given default result.
      * 
@@ -740,78 +1672,65 @@ public class MapNode implements Cloneable {
      * @param defaultResult
      * @return 
      */
-    public List<Boolean> getBooleanList(String prop, List<Boolean> defaultResult) {
-        List<Object> out = this.getList(prop, null);
+    @SuppressWarnings("unchecked")
+    public List<Object> getList(String prop, List<Object> defaultResult) {
+        Object out = this.getObject(prop);
 
         if (out == null) {
             return defaultResult;
         } else {
-            List<Boolean> newList = new ArrayList<Boolean>();
-            new CollectionConverter<Boolean>().transform(new BooleanConverter(), out, newList);
-            return newList;
+            if (out instanceof List) {
+                return (List<Object>) out;
+            } else {
+                return defaultResult;
+            }
         }
     }
 
     /**
-     * Gets a list of strings from the given location (see getProperty()
-     * for a description of the node syntax). If one of the 
-     * following conditions is met,
-     * 
-     * - the value at the location is not found
-     * - the value at the location is set to null
-     * - the value at the location is not a list of strings
-     * 
-     * then it will return either null or an empty list
-     * depending on the options set. If options.returnEmpty
-     * is false, then it will return null if no value is found. 
-     * If it is true, then it will return an empty ArrayList.
+     * Same as getList(String), but uses a precompiled path.
      * 
-     * @param prop
+     * @param path
      * @return 
      */
-    public List<String> getStringList(String prop) {
+    public List<Object> getList(MapNodePath path) {
         if (!options.returnEmpty) {
-            return getStringList(prop, null);
+            return getList(path, null);
         } else {
-            return getStringList(prop, new ArrayList<String>());
+            return getList(path, new ArrayList<Object>());
         }
     }
 
     /**
-     * Gets a list of strings from the given location (see getProperty()
-     * for a description of the node syntax). If one of the 
-     * following conditions is met,
-     * 
-     * - the value at the location is not found
-     * - the value at the location is set to null
-     * - the value at the location is not a list of strings
-     * 
-     * then it will return the given default result.
+     * Same as getList(String, List), but uses a precompiled path.
      * 
-     * @param prop
+     * @param path
      * @param defaultResult
      * @return 
      */
-    public List<String> getStringList(String prop, List<String> defaultResult) {
-        List<Object> out = this.getList(prop, null);
+    @SuppressWarnings("unchecked")
+    public List<Object> getList(MapNodePath path, List<Object> defaultResult) {
+        Object out = this.getObject(path);
 
         if (out == null) {
             return defaultResult;
         } else {
-            List<String> newList = new ArrayList<String>();
-            new CollectionConverter<String>().transform(new StringConverter(), out, newList);
-            return newList;
+            if (out instanceof List) {
+                return (List<Object>) out;
+            } else {
+                return defaultResult;
+            }
         }
     }
 
     /**
-     * Gets a list of MapNodes from the given location (see getProperty()
+     * Gets a list of integers from the given location (see getProperty()
      * for a description of the node syntax). If one of the 
      * following conditions is met,
      * 
      * - the value at the location is not found
      * - the value at the location is set to null
-     * - the value at the location is not a list of Maps
+     * - the value at the location is not a list of int values
      * 
      * then it will return either null or an empty list
      * depending on the options set. If options.returnEmpty
@@ -821,22 +1740,22 @@ public class MapNode implements Cloneable {
      * @param prop
      * @return 
      */
-    public List<MapNode> getMapNodeList(String prop) {
+    public List<Integer> getIntegerList(String prop) {
         if (!options.returnEmpty) {
-            return getMapNodeList(prop, null);
+            return getIntegerList(prop, null);
         } else {
-            return getMapNodeList(prop, new ArrayList<MapNode>());
+            return getIntegerList(prop, new ArrayList<Integer>());
         }
     }
 
     /**
-     * Gets a list of MapNodes from the given location (see getProperty()
+     * Gets a list of integers from the given location (see getProperty()
      * for a description of the node syntax). If one of the 
      * following conditions is met,
      * 
      * - the value at the location is not found
      * - the value at the location is set to null
-     * - the value at the location is not a list of Maps
+     * - the value at the location is not a list of integer values
      * 
      * then it will return the given default result.
      * 
@@ -844,33 +1763,803 @@ public class MapNode implements Cloneable {
      * @param defaultResult
      * @return 
      */
-    public List<MapNode> getMapNodeList(String prop, List<MapNode> defaultResult) {
+    public List<Integer> getIntegerList(String prop, List<Integer> defaultResult) {
         List<Object> out = this.getList(prop, null);
 
         if (out == null) {
             return defaultResult;
         } else {
-            List<MapNode> newList = new ArrayList<MapNode>();
-            new CollectionConverter<MapNode>().transform(new MapNodeConverter(), out, newList);
-            return newList;
+            return convertList(out, getConverter(Integer.class, IntegerConverter.INSTANCE));
         }
     }
 
     /**
-     * Returns a YAML-formatter string of the base Map.
+     * Same as getIntegerList(String), but uses a precompiled path.
      * 
-     * It is valid YAML syntax, and can actually be re-entered into
+     * @param path
+     * @return 
+     */
+    public List<Integer> getIntegerList(MapNodePath path) {
+        if (!options.returnEmpty) {
+            return getIntegerList(path, null);
+        } else {
+            return getIntegerList(path, new ArrayList<Integer>());
+        }
+    }
+
+    /**
+     * Same as getIntegerList(String, List), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public List<Integer> getIntegerList(MapNodePath path, List<Integer> defaultResult) {
+        List<Object> out = this.getList(path, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, getConverter(Integer.class, IntegerConverter.INSTANCE));
+        }
+    }
+
+    /**
+     * Gets a list of doubles from the given location (see getProperty()
+     * for a description of the node syntax). If one of the 
+     * following conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of double values
+     * 
+     * then it will return either null or an empty list
+     * depending on the options set. If options.returnEmpty
+     * is false, then it will return null if no value is found. 
+     * If it is true, then it will return an empty ArrayList.
+     * 
+     * @param prop
+     * @return 
+     */
+    public List<Double> getDoubleList(String prop) {
+        if (!options.returnEmpty) {
+            return getDoubleList(prop, null);
+        } else {
+            return getDoubleList(prop, new ArrayList<Double>());
+        }
+    }
+
+    /**
+     * Gets a list of doubles from the given location (see getProperty()
+     * for a description of the node syntax). If one of the 
+     * following conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of double values
+     * 
+     * then it will return the given default result.
+     * 
+     * @param prop
+     * @param defaultResult
+     * @return 
+     */
+    public List<Double> getDoubleList(String prop, List<Double> defaultResult) {
+        List<Object> out = this.getList(prop, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, getConverter(Double.class, DoubleConverter.INSTANCE));
+        }
+    }
+
+    /**
+     * Same as getDoubleList(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public List<Double> getDoubleList(MapNodePath path) {
+        if (!options.returnEmpty) {
+            return getDoubleList(path, null);
+        } else {
+            return getDoubleList(path, new ArrayList<Double>());
+        }
+    }
+
+    /**
+     * Same as getDoubleList(String, List), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public List<Double> getDoubleList(MapNodePath path, List<Double> defaultResult) {
+        List<Object> out = this.getList(path, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, getConverter(Double.class, DoubleConverter.INSTANCE));
+        }
+    }
+
+    /**
+     * Gets an array of ints from the given location (see getProperty()
+     * for a description of the node syntax). The list is converted
+     * straight into the array, so no Integers are allocated. Elements
+     * that cannot be converted are set to 0. If one of the following
+     * conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of values
+     * 
+     * then it will return either null or an empty array
+     * depending on the options set. If options.returnEmpty
+     * is false, then it will return null if no value is found. 
+     * If it is true, then it will return an empty array.
+     * 
+     * @param prop
+     * @return 
+     */
+    public int[] getIntArray(String prop) {
+        if (!options.returnEmpty) {
+            return getIntArray(prop, null);
+        } else {
+            return getIntArray(prop, EMPTY_INT_ARRAY);
+        }
+    }
+
+    /**
+     * Gets an array of ints from the given location (see
+     * getIntArray(String)). If the value at the location is not
+     * found, or is not a list of values, it will return the
+     * given default result.
+     * 
+     * @param prop
+     * @param defaultResult
+     * @return 
+     */
+    public int[] getIntArray(String prop, int[] defaultResult) {
+        List<Object> out = this.getList(prop, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return new IntListView(out).toIntArray();
+        }
+    }
+
+    /**
+     * Same as getIntArray(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public int[] getIntArray(MapNodePath path) {
+        if (!options.returnEmpty) {
+            return getIntArray(path, null);
+        } else {
+            return getIntArray(path, EMPTY_INT_ARRAY);
+        }
+    }
+
+    /**
+     * Same as getIntArray(String, int[]), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public int[] getIntArray(MapNodePath path, int[] defaultResult) {
+        List<Object> out = this.getList(path, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return new IntListView(out).toIntArray();
+        }
+    }
+
+    /**
+     * Gets a read-only view of the list at the given location
+     * (see getProperty() for a description of the node syntax)
+     * as ints. Nothing is copied, each element is converted when
+     * it is read (see IntListView). If the value at the location
+     * is not found, or is not a list of values, it will return
+     * either null or an empty view depending on options.returnEmpty.
+     * 
+     * @param prop
+     * @return 
+     */
+    public IntListView getIntListView(String prop) {
+        return toIntListView(this.getList(prop, null));
+    }
+
+    /**
+     * Same as getIntListView(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public IntListView getIntListView(MapNodePath path) {
+        return toIntListView(this.getList(path, null));
+    }
+
+    /**
+     * Wraps the list in a IntListView, or returns the
+     * empty result if the list is null.
+     * 
+     * @param list
+     * @return 
+     */
+    protected IntListView toIntListView(List<Object> list) {
+        if (list == null) {
+            return options.returnEmpty ? new IntListView(Collections.<Object>emptyList()) : null;
+        }
+        return new IntListView(list);
+    }
+
+    /**
+     * Gets an array of doubles from the given location (see getProperty()
+     * for a description of the node syntax). The list is converted
+     * straight into the array, so no Doubles are allocated. Elements
+     * that cannot be converted are set to 0.0. If one of the following
+     * conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of values
+     * 
+     * then it will return either null or an empty array
+     * depending on the options set. If options.returnEmpty
+     * is false, then it will return null if no value is found. 
+     * If it is true, then it will return an empty array.
+     * 
+     * @param prop
+     * @return 
+     */
+    public double[] getDoubleArray(String prop) {
+        if (!options.returnEmpty) {
+            return getDoubleArray(prop, null);
+        } else {
+            return getDoubleArray(prop, EMPTY_DOUBLE_ARRAY);
+        }
+    }
+
+    /**
+     * Gets an array of doubles from the given location (see
+     * getDoubleArray(String)). If the value at the location is not
+     * found, or is not a list of values, it will return the
+     * given default result.
+     * 
+     * @param prop
+     * @param defaultResult
+     * @return 
+     */
+    public double[] getDoubleArray(String prop, double[] defaultResult) {
+        List<Object> out = this.getList(prop, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return new DoubleListView(out).toDoubleArray();
+        }
+    }
+
+    /**
+     * Same as getDoubleArray(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public double[] getDoubleArray(MapNodePath path) {
+        if (!options.returnEmpty) {
+            return getDoubleArray(path, null);
+        } else {
+            return getDoubleArray(path, EMPTY_DOUBLE_ARRAY);
+        }
+    }
+
+    /**
+     * Same as getDoubleArray(String, double[]), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public double[] getDoubleArray(MapNodePath path, double[] defaultResult) {
+        List<Object> out = this.getList(path, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return new DoubleListView(out).toDoubleArray();
+        }
+    }
+
+    /**
+     * Gets a read-only view of the list at the given location
+     * (see getProperty() for a description of the node syntax)
+     * as doubles. Nothing is copied, each element is converted when
+     * it is read (see DoubleListView). If the value at the location
+     * is not found, or is not a list of values, it will return
+     * either null or an empty view depending on options.returnEmpty.
+     * 
+     * @param prop
+     * @return 
+     */
+    public DoubleListView getDoubleListView(String prop) {
+        return toDoubleListView(this.getList(prop, null));
+    }
+
+    /**
+     * Same as getDoubleListView(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public DoubleListView getDoubleListView(MapNodePath path) {
+        return toDoubleListView(this.getList(path, null));
+    }
+
+    /**
+     * Wraps the list in a DoubleListView, or returns the
+     * empty result if the list is null.
+     * 
+     * @param list
+     * @return 
+     */
+    protected DoubleListView toDoubleListView(List<Object> list) {
+        if (list == null) {
+            return options.returnEmpty ? new DoubleListView(Collections.<Object>emptyList()) : null;
+        }
+        return new DoubleListView(list);
+    }
+
+    /**
+     * Gets a list of booleans from the given location (see getProperty()
+     * for a description of the node syntax). If one of the 
+     * following conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of boolean values
+     * 
+     * then it will return either null or an empty list
+     * depending on the options set. If options.returnEmpty
+     * is false, then it will return null if no value is found. 
+     * If it is true, then it will return an empty ArrayList.
+     * 
+     * @param prop
+     * @return 
+     */
+    public List<Boolean> getBooleanList(String prop) {
+        if (!options.returnEmpty) {
+            return getBooleanList(prop, null);
+        } else {
+            return getBooleanList(prop, new ArrayList<Boolean>());
+        }
+    }
+
+    /**
+     * Gets a list of booleans from the given location (see getProperty()
+     * for a description of the node syntax). If one of the 
+     * following conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of boolean values
+     * 
+     * then it will return the given default result.
+     * 
+     * @param prop
+     * @param defaultResult
+     * @return 
+     */
+    public List<Boolean> getBooleanList(String prop, List<Boolean> defaultResult) {
+        List<Object> out = this.getList(prop, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, getConverter(Boolean.class, BooleanConverter.INSTANCE));
+        }
+    }
+
+    /**
+     * Same as getBooleanList(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public List<Boolean> getBooleanList(MapNodePath path) {
+        if (!options.returnEmpty) {
+            return getBooleanList(path, null);
+        } else {
+            return getBooleanList(path, new ArrayList<Boolean>());
+        }
+    }
+
+    /**
+     * Same as getBooleanList(String, List), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public List<Boolean> getBooleanList(MapNodePath path, List<Boolean> defaultResult) {
+        List<Object> out = this.getList(path, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, getConverter(Boolean.class, BooleanConverter.INSTANCE));
+        }
+    }
+
+    /**
+     * Gets a list of strings from the given location (see getProperty()
+     * for a description of the node syntax). If one of the 
+     * following conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of strings
+     * 
+     * then it will return either null or an empty list
+     * depending on the options set. If options.returnEmpty
+     * is false, then it will return null if no value is found. 
+     * If it is true, then it will return an empty ArrayList.
+     * 
+     * @param prop
+     * @return 
+     */
+    public List<String> getStringList(String prop) {
+        if (!options.returnEmpty) {
+            return getStringList(prop, null);
+        } else {
+            return getStringList(prop, new ArrayList<String>());
+        }
+    }
+
+    /**
+     * Gets a list of strings from the given location (see getProperty()
+     * for a description of the node syntax). If one of the 
+     * following conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of strings
+     * 
+     * then it will return the given default result.
+     * 
+     * @param prop
+     * @param defaultResult
+     * @return 
+     */
+    public List<String> getStringList(String prop, List<String> defaultResult) {
+        List<Object> out = this.getList(prop, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, getConverter(String.class, StringConverter.INSTANCE));
+        }
+    }
+
+    /**
+     * Same as getStringList(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public List<String> getStringList(MapNodePath path) {
+        if (!options.returnEmpty) {
+            return getStringList(path, null);
+        } else {
+            return getStringList(path, new ArrayList<String>());
+        }
+    }
+
+    /**
+     * Same as getStringList(String, List), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public List<String> getStringList(MapNodePath path, List<String> defaultResult) {
+        List<Object> out = this.getList(path, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, getConverter(String.class, StringConverter.INSTANCE));
+        }
+    }
+
+    /**
+     * Gets a list of MapNodes from the given location (see getProperty()
+     * for a description of the node syntax). If one of the 
+     * following conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of Maps
+     * 
+     * then it will return either null or an empty list
+     * depending on the options set. If options.returnEmpty
+     * is false, then it will return null if no value is found. 
+     * If it is true, then it will return an empty ArrayList.
+     * 
+     * @param prop
+     * @return 
+     */
+    public List<MapNode> getMapNodeList(String prop) {
+        if (!options.returnEmpty) {
+            return getMapNodeList(prop, null);
+        } else {
+            return getMapNodeList(prop, new ArrayList<MapNode>());
+        }
+    }
+
+    /**
+     * Gets a list of MapNodes from the given location (see getProperty()
+     * for a description of the node syntax). If one of the 
+     * following conditions is met,
+     * 
+     * - the value at the location is not found
+     * - the value at the location is set to null
+     * - the value at the location is not a list of Maps
+     * 
+     * then it will return the given default result.
+     * 
+     * @param prop
+     * @param defaultResult
+     * @return 
+     */
+    public List<MapNode> getMapNodeList(String prop, List<MapNode> defaultResult) {
+        List<Object> out = this.getList(prop, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, getConverter(MapNode.class, MapNodeConverter.INSTANCE));
+        }
+    }
+
+    /**
+     * Same as getMapNodeList(String), but uses a precompiled path.
+     * 
+     * @param path
+     * @return 
+     */
+    public List<MapNode> getMapNodeList(MapNodePath path) {
+        if (!options.returnEmpty) {
+            return getMapNodeList(path, null);
+        } else {
+            return getMapNodeList(path, new ArrayList<MapNode>());
+        }
+    }
+
+    /**
+     * Same as getMapNodeList(String, List), but uses a precompiled path.
+     * 
+     * @param path
+     * @param defaultResult
+     * @return 
+     */
+    public List<MapNode> getMapNodeList(MapNodePath path, List<MapNode> defaultResult) {
+        List<Object> out = this.getList(path, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, getConverter(MapNode.class, MapNodeConverter.INSTANCE));
+        }
+    }
+
+    /**
+     * Gets the value with the given location (see getProperty for
+     * a description of the node syntax) converted to the given type,
+     * using the converter registered for the type in
+     * options.converterRegistry. If the value is not found or
+     * cannot be converted, it will return null. If no converter
+     * is registered for the type, it throws a MapNodeException.
+     * 
+     * @throws MapNodeException
+     * @param <T>
+     * @param prop
+     * @param type
+     * @return 
+     */
+    public <T> T getAs(String prop, Class<T> type) {
+        return getAs(prop, type, null);
+    }
+
+    /**
+     * Gets the value with the given location converted to the given
+     * type (see getAs(String, Class)). If the value is not found or
+     * cannot be converted, it will return the given default result.
+     * 
+     * @throws MapNodeException
+     * @param <T>
+     * @param prop
+     * @param type
+     * @param defaultResult
+     * @return 
+     */
+    public <T> T getAs(String prop, Class<T> type, T defaultResult) {
+        Object value = this.getObject(prop);
+        T out = converted(value, options.converterRegistry.convert(value, type));
+        return out == null ? defaultResult : out;
+    }
+
+    /**
+     * Same as getAs(String, Class), but uses a precompiled path.
+     * 
+     * @param <T>
+     * @param path
+     * @param type
+     * @return 
+     */
+    public <T> T getAs(MapNodePath path, Class<T> type) {
+        return getAs(path, type, null);
+    }
+
+    /**
+     * Same as getAs(String, Class, Object), but uses a precompiled path.
+     * 
+     * @param <T>
+     * @param path
+     * @param type
+     * @param defaultResult
+     * @return 
+     */
+    public <T> T getAs(MapNodePath path, Class<T> type, T defaultResult) {
+        Object value = this.getObject(path);
+        T out = converted(value, options.converterRegistry.convert(value, type));
+        return out == null ? defaultResult : out;
+    }
+
+    /**
+     * Gets a list of values from the given location (see getProperty()
+     * for a description of the node syntax), each converted to the
+     * given type with the converter registered in options.converterRegistry.
+     * If the value at the location is not found or is not a list,
+     * it will return either null or an empty list depending on the
+     * options set (see getList(String)). If no converter is registered
+     * for the type, it throws a MapNodeException.
+     * 
+     * @throws MapNodeException
+     * @param <T>
+     * @param prop
+     * @param type
+     * @return 
+     */
+    public <T> List<T> getListOf(String prop, Class<T> type) {
+        if (!options.returnEmpty) {
+            return getListOf(prop, type, null);
+        } else {
+            return getListOf(prop, type, new ArrayList<T>());
+        }
+    }
+
+    /**
+     * Gets a list of values from the given location, each converted
+     * to the given type (see getListOf(String, Class)). If the value
+     * at the location is not found or is not a list, it will return
+     * the given default result.
+     * 
+     * @throws MapNodeException
+     * @param <T>
+     * @param prop
+     * @param type
+     * @param defaultResult
+     * @return 
+     */
+    public <T> List<T> getListOf(String prop, Class<T> type, List<T> defaultResult) {
+        List<Object> out = this.getList(prop, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, type);
+        }
+    }
+
+    /**
+     * Same as getListOf(String, Class), but uses a precompiled path.
+     * 
+     * @param <T>
+     * @param path
+     * @param type
+     * @return 
+     */
+    public <T> List<T> getListOf(MapNodePath path, Class<T> type) {
+        if (!options.returnEmpty) {
+            return getListOf(path, type, null);
+        } else {
+            return getListOf(path, type, new ArrayList<T>());
+        }
+    }
+
+    /**
+     * Same as getListOf(String, Class, List), but uses a precompiled path.
+     * 
+     * @param <T>
+     * @param path
+     * @param type
+     * @param defaultResult
+     * @return 
+     */
+    public <T> List<T> getListOf(MapNodePath path, Class<T> type, List<T> defaultResult) {
+        List<Object> out = this.getList(path, null);
+
+        if (out == null) {
+            return defaultResult;
+        } else {
+            return convertList(out, type);
+        }
+    }
+
+    /**
+     * Converts every value of the list with the registered converter.
+     * 
+     * @param <T>
+     * @param list
+     * @param type
+     * @return 
+     */
+    protected <T> List<T> convertList(List<Object> list, Class<T> type) {
+        BaseConverter<T> converter = options.converterRegistry.get(type);
+        if (converter == null) {
+            throw new MapNodeException("No converter registered for " + type.getName());
+        }
+        return convertList(list, converter);
+    }
+
+    /**
+     * Converts every value of the list with the given converter.
+     * If options.lazyLists is set, it returns a read-only view
+     * that converts the values when they are read instead, and
+     * keeps them if options.memoizeLists is set.
+     * 
+     * @param <T>
+     * @param list
+     * @param converter
+     * @return 
+     */
+    protected <T> List<T> convertList(List<Object> list, BaseConverter<T> converter) {
+        CollectionConverter<T> collectionConverter = CollectionConverter.getInstance();
+        if (options.lazyLists) {
+            return collectionConverter.view(converter, list, options.memoizeLists);
+        }
+
+        List<T> newList = new ArrayList<T>(list.size());
+        collectionConverter.transform(converter, list, newList);
+        return newList;
+    }
+
+    /**
+     * Returns a YAML-formatter string of the base Map.
+     * 
+     * It is valid YAML syntax, and can actually be re-entered into
      * the MapNode at a later time with loadYaml().
      * 
      * @return 
      */
     public String debug() {
-        DumperOptions yamlOpt = new DumperOptions();
-        yamlOpt.setIndent(4);
-        yamlOpt.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-
-        Yaml yaml = new Yaml(yamlOpt);
-        return yaml.dump(base).trim();
+        MapNodeMetrics metrics = options.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        String out = MapNodeYaml.get().dump(base).trim();
+        if (metrics != null) {
+            metrics.record(Operation.DUMP, start);
+        }
+        return out;
     }
 
     /**
@@ -878,19 +2567,302 @@ public class MapNode implements Cloneable {
      * 
      * @param input 
      */
-    @SuppressWarnings("unchecked")
     public void loadYaml(String input) {
-        DumperOptions yamlOpt = new DumperOptions();
-        yamlOpt.setIndent(4);
-        yamlOpt.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        long start = System.nanoTime();
+        setLoaded(MapNodeYaml.get(options.compactMaps).load(input), start);
+    }
+
+    /**
+     * Fills in the base Map from the YAML document read from the
+     * given stream. The document is parsed while it is read, so it
+     * is never held in memory as a whole. The encoding is detected
+     * from the byte order mark, and defaults to UTF-8. The stream
+     * is not closed.
+     * 
+     * @param input 
+     */
+    public void loadYaml(InputStream input) {
+        long start = System.nanoTime();
+        setLoaded(MapNodeYaml.get(options.compactMaps).load(input), start);
+    }
+
+    /**
+     * Fills in the base Map from the YAML document read from the
+     * given reader. The document is parsed while it is read, so it
+     * is never held in memory as a whole. The reader is not closed.
+     * 
+     * @param input 
+     */
+    public void loadYaml(Reader input) {
+        long start = System.nanoTime();
+        setLoaded(MapNodeYaml.get(options.compactMaps).load(input), start);
+    }
+
+    /**
+     * Fills in the base Map from the UTF-8 encoded YAML file at the
+     * given path. The file is streamed from disk (see loadYaml(Reader)).
+     * 
+     * @param input
+     * @throws IOException 
+     */
+    public void loadYaml(Path input) throws IOException {
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            loadYaml(reader);
+        }
+    }
+
+    /**
+     * Fills in the base Map from the UTF-8 encoded YAML file at the
+     * given path, which is usually a file written by save(). The file
+     * is memory-mapped and decoded a chunk at a time while it is
+     * parsed, so there is no String copy of the whole document.
+     * Files too large to be mapped are streamed instead.
+     * 
+     * @param file
+     * @throws IOException 
+     */
+    public void load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                loadYaml(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+                return;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            loadYaml(new ByteBufferReader(buffer, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Writes the base Map as UTF-8 encoded YAML to the file at the
+     * given path. The YAML is encoded straight into a file channel
+     * instead of being built as a String first. It is written to a
+     * temporary file in the same directory, which is forced to disk
+     * and then renamed over the target file, so the target always
+     * contains either the old or the new document, never a part of it.
+     * The directory is forced to disk after the rename as well, on the
+     * platforms that support it.
+     * 
+     * If the target file exists, the temporary file gets its owner,
+     * group and permissions first (as far as the file system supports
+     * them, and the owner only if the process is allowed to set it).
+     * Otherwise it is created with the default permissions for new
+     * files, like a file written in place would be.
+     * 
+     * @param file
+     * @throws IOException 
+     */
+    public void save(Path file) throws IOException {
+        MapNodeMetrics metrics = options.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        Path target = file.toAbsolutePath();
+        Path temp = createTempFile(target);
+        try {
+            if (Files.exists(target)) {
+                copyAttributes(target, temp);
+            }
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1);
+                MapNodeYaml.get().dump(base, writer);
+                writer.flush();
+                channel.force(true);
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened or forced on every
+            // platform; the file itself was forced already
+        }
+
+        if (metrics != null) {
+            metrics.record(Operation.DUMP, start);
+        }
+    }
+
+    /**
+     * Creates an empty file next to the target file for save() to
+     * write to. Unlike Files.createTempFile(), which only allows the
+     * owner to read the file, it gets the default permissions.
+     * 
+     * @param target
+     * @return
+     * @throws IOException 
+     */
+    private static Path createTempFile(Path target) throws IOException {
+        String prefix = target.getFileName().toString() + ".";
+        while (true) {
+            Path temp = target.resolveSibling(prefix + Long.toString(System.nanoTime() & Long.MAX_VALUE, 36) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // Another save() picked the same name, try again
+            }
+        }
+    }
+
+    /**
+     * Gives the file the owner, group and permissions of the source
+     * file. Setting the owner or group is skipped if the process is
+     * not allowed to; the permissions are always copied.
+     * 
+     * @param source
+     * @param file
+     * @throws IOException 
+     */
+    private static void copyAttributes(Path source, Path file) throws IOException {
+        PosixFileAttributeView posix = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+        if (posix != null) {
+            PosixFileAttributes attributes = Files.readAttributes(source, PosixFileAttributes.class);
+            try {
+                posix.setGroup(attributes.group());
+            } catch (IOException e) {
+                // Not a member of the group
+            }
+            try {
+                posix.setOwner(attributes.owner());
+            } catch (IOException e) {
+                // Only privileged processes can give a file away
+            }
+            posix.setPermissions(attributes.permissions());
+            return;
+        }
+
+        FileOwnerAttributeView owner = Files.getFileAttributeView(file, FileOwnerAttributeView.class);
+        if (owner != null) {
+            try {
+                owner.setOwner(Files.getOwner(source));
+            } catch (IOException e) {
+                // Only privileged processes can give a file away
+            }
+        }
+    }
+
+    /**
+     * Encodes the base Map in the compact MapNode binary format
+     * (see MapNodeBinary). Keys and strings that are repeated
+     * throughout the tree are only stored once. The bytes can be
+     * turned back into a MapNode with fromBytes(), which is much
+     * faster than parsing the same tree from YAML.
+     * 
+     * If the tree contains a value that is not a String, Number,
+     * Boolean, Date, byte[], List or Map, it throws a MapNodeException.
+     * 
+     * @throws MapNodeException
+     * @return 
+     */
+    public byte[] toBytes() {
+        MapNodeMetrics metrics = options.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        byte[] out = MapNodeBinary.encode(base);
+        if (metrics != null) {
+            metrics.record(Operation.DUMP, start);
+        }
+        return out;
+    }
+
+    /**
+     * Same as toBytes(), but wraps the bytes in a ByteBuffer.
+     * 
+     * @throws MapNodeException
+     * @return 
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(toBytes());
+    }
+
+    /**
+     * Creates a MapNode out of bytes produced by toBytes(). If the
+     * bytes are not valid MapNode binary data, it throws a
+     * MapNodeException (runtime).
+     * 
+     * @throws MapNodeException
+     * @param bytes
+     * @return 
+     */
+    public static MapNode fromBytes(byte[] bytes) {
+        return fromBytes(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Creates a MapNode out of the data produced by toBytes(), starting
+     * at the current position of the buffer. The position of the buffer
+     * is left unchanged, so it also works on a memory-mapped file. If
+     * the data is not valid, it throws a MapNodeException (runtime).
+     * 
+     * @throws MapNodeException
+     * @param buffer
+     * @return 
+     */
+    public static MapNode fromBytes(ByteBuffer buffer) {
+        return new MapNode(MapNodeBinary.decode(buffer));
+    }
+
+    /**
+     * Returns how long the last loadYaml() call took to parse its
+     * document, in nanoseconds. Returns 0 if nothing was loaded yet.
+     * 
+     * @return 
+     */
+    public long getLastLoadTime() {
+        return lastLoadTime;
+    }
 
-        Yaml yaml = new Yaml(yamlOpt);
-        Object output = yaml.load(input);
+    /**
+     * Sets the base Map to the output of the YAML parser, and
+     * records the time it took since start.
+     * 
+     * @param output
+     * @param start 
+     */
+    @SuppressWarnings("unchecked")
+    protected void setLoaded(Object output, long start) {
+        output = internKeys(output);
         if (output != null) {
             this.setBase((Map<String, Object>) output);
         } else {
             this.reset();
         }
+        loaded(start);
+    }
+
+    /**
+     * Records the time it took to load the document since start,
+     * in lastLoadTime and in the metrics (if any).
+     * 
+     * @param start 
+     */
+    protected void loaded(long start) {
+        lastLoadTime = System.nanoTime() - start;
+        MapNodeMetrics metrics = options.metrics;
+        if (metrics != null) {
+            metrics.record(Operation.LOAD, start);
+        }
+    }
+
+    /**
+     * Returns the given tree with its keys replaced by their pooled
+     * Strings (see KeyPool.internKeys()), if a key pool is set in
+     * the options. Called on loaded trees and on the values passed
+     * to setObject(), before they are stored in the tree.
+     * 
+     * @param output 
+     * @return 
+     */
+    protected Object internKeys(Object output) {
+        KeyPool pool = options.keyPool;
+        return pool != null ? pool.internKeys(output) : output;
     }
 
     /**
@@ -899,26 +2871,85 @@ public class MapNode implements Cloneable {
      */
     public void reset() {
         this.base.clear();
+        invalidateCache();
+        invalidateHashes();
+        fireChanged(MapNodePath.ROOT);
+    }
+
+    /**
+     * Returns the changes that turn this node's tree into the other
+     * node's tree, as a list of add, remove and replace operations.
+     * Subtrees that are the same object in both nodes are skipped
+     * without being compared. See MapNodePatch.
+     * 
+     * @param other
+     * @return 
+     */
+    public MapNodePatch diff(MapNode other) {
+        return MapNodePatch.diff(base, other.base, options.separatorChar);
+    }
+
+    /**
+     * Applies the operations of the patch to this node, in order.
+     * After applying diff(other), this node's tree is equal to
+     * the other node's tree.
+     * 
+     * @param patch 
+     */
+    public void apply(MapNodePatch patch) {
+        patch.apply(this);
+    }
+
+    /**
+     * Returns an immutable snapshot of this node. The whole tree is
+     * copied once into PersistentMaps and unmodifiable lists, so later
+     * changes to this node are not seen by the snapshot. Changed copies
+     * of the snapshot can then be made cheaply with with() and without(),
+     * which share everything but the changed path. See MapNodeSnapshot.
+     * 
+     * @return 
+     */
+    public MapNodeSnapshot snapshot() {
+        return new MapNodeSnapshot((PersistentMap) MapNodeSnapshot.freeze(base), (MapNodeOptions) options.clone());
+    }
+
+    /**
+     * Returns a new MapNode with a deep copy of the base map and a
+     * copy of the options. Every map and list in the tree is copied,
+     * whatever its implementation, and the copies keep the iteration
+     * order of the originals. See MapNodeCopier. Subclasses return a
+     * node of their own type (ConcurrentMapNode copies into concurrent
+     * maps, and a MapNodeSnapshot returns itself).
+     * 
+     * @return 
+     */
+    public MapNode deepCopy() {
+        return new MapNode(MapNodeCopier.copy(base), (MapNodeOptions) options.clone());
+    }
+
+    /**
+     * Same as deepCopy(), but the top-level values of the base
+     * map are copied in parallel on the given executor.
+     * 
+     * @throws MapNodeException if the copy fails or is interrupted
+     * @param executor
+     * @return 
+     */
+    public MapNode deepCopy(ExecutorService executor) {
+        return new MapNode(MapNodeCopier.copy(base, executor), (MapNodeOptions) options.clone());
     }
 
     /**
-     * Clones the MapNode. This only works if the base map is
-     * an instance of a HashMap, as Map does not implement the
-     * Cloneable interface. 
+     * Clones the MapNode. This is the same as deepCopy(), so the
+     * nested maps and lists of the clone can be modified without
+     * affecting this node, and any kind of base map is supported.
      * 
      * @return
      * @throws CloneNotSupportedException 
      */
     @Override
-    @SuppressWarnings("unchecked")
     public Object clone() throws CloneNotSupportedException {
-        if (this.base instanceof HashMap) {
-            HashMap<String, Object> hm = (HashMap<String, Object>) this.base;
-            MapNode map = new MapNode((Map<String, Object>) hm.clone());
-            map.options = (MapNodeOptions) this.options.clone();
-            return map;
-        }
-        throw new CloneNotSupportedException("Base must be a HashMap");
+        return deepCopy();
     }
 
     /**
@@ -938,8 +2969,13 @@ public class MapNode implements Cloneable {
         }
 
         final MapNode other = (MapNode) obj;
-        if (this.base != other.base && (this.base == null || !this.base.equals(other.base))) {
-            return false;
+        if (this.base != other.base) {
+            if (this.base == null || other.base == null) {
+                return false;
+            }
+            if (!this.base.equals(other.base)) {
+                return false;
+            }
         }
         if (this.options != other.options && (this.options == null || !this.options.equals(other.options))) {
             return false;
@@ -947,6 +2983,20 @@ public class MapNode implements Cloneable {
         return true;
     }
 
+    /**
+     * Returns base.hashCode(), using the memoized hash codes
+     * if hash caching is enabled in the options.
+     * 
+     * @return 
+     */
+    protected int baseHashCode() {
+        MapNodeHashes memo = getHashes();
+        if (memo != null) {
+            return memo.hashCode(base);
+        }
+        return base.hashCode();
+    }
+
     /**
      * Gets the hashcode of the MapNode based off the Map and options.
      * @return 
@@ -954,7 +3004,7 @@ public class MapNode implements Cloneable {
     @Override
     public int hashCode() {
         int hash = 3;
-        hash = 71 * hash + (this.base != null ? this.base.hashCode() : 0);
+        hash = 71 * hash + (this.base != null ? this.baseHashCode() : 0);
         hash = 71 * hash + (this.options != null ? this.options.hashCode() : 0);
         return hash;
     }
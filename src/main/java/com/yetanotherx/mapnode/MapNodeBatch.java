@@ -0,0 +1,395 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects writes to a MapNode and applies them all at once, returned
+ * by MapNode.batch(). Nothing is changed until commit() is called:
+ *
+ * node.batch()
+ *     .set("server.host", "localhost")
+ *     .set("server.port", 8080)
+ *     .remove("server.legacy")
+ *     .commit();
+ *
+ * The writes are applied to a copy of the tree, in which only the maps
+ * and lists on the written paths are copied (once each, no matter how
+ * many writes go through them); everything else is shared with the
+ * current tree. The copy is then published with a single setBase(), so
+ * other threads see either none or all of the writes, and if one of the
+ * writes cannot be applied, the node is not changed at all.
+ *
+ * When it does not change the outcome, the writes are sorted by path
+ * before they are applied, so writes to the same subtree follow each
+ * other and only walk their shared prefix once. Writes are applied in
+ * the order they were added if one path is a prefix of another (such
+ * as "server" and "server.port"), or if an element is removed from a
+ * list, since those writes depend on each other.
+ *
+ * Because the committed tree is a new map, references to the old tree
+ * taken before the commit go stale: the map the node was created with,
+ * maps returned by getBase() or getObject(), and nodes returned by
+ * getMapNode() (including ones the batch did not write to) keep
+ * pointing at the old maps, and writes made through them afterwards
+ * are not seen by the node. Take them again after the commit.
+ *
+ * Listeners of the node are notified of a change at the root path.
+ * Two batches committed at the same time on the same node are applied
+ * one after the other, but plain setObject() and removeObject() calls
+ * do not wait for a commit: one made by another thread while a batch
+ * commits changes the old tree, and is lost when the new tree is
+ * published.
+ *
+ * @author yetanotherx
+ */
+public class MapNodeBatch {
+
+    /**
+     * Writes done by MapNode.transaction() as a single batch.
+     */
+    public interface Transaction {
+
+        /**
+         * Adds the writes of the transaction to the batch. If this
+         * throws, none of the writes are applied.
+         *
+         * @param batch
+         */
+        void run(MapNodeBatch batch);
+    }
+
+    /**
+     * A single write of the batch.
+     */
+    protected static final class Write {
+
+        final MapNodePath path;
+        final Object value;
+        final boolean remove;
+
+        Write(MapNodePath path, Object value, boolean remove) {
+            this.path = path;
+            this.value = value;
+            this.remove = remove;
+        }
+    }
+    private static final Comparator<Write> ORDER = new Comparator<Write>() {
+
+        @Override
+        public int compare(Write o1, Write o2) {
+            String[] a = o1.path.segments;
+            String[] b = o2.path.segments;
+            for (int i = 0; i < a.length && i < b.length; ++i) {
+                // Indexes sort numerically (so appends to a list happen
+                // in order) and before the other keys
+                int x = MapNode.parseIndex(a[i]);
+                int y = MapNode.parseIndex(b[i]);
+                int compared = 0;
+                if (x >= 0 || y >= 0) {
+                    compared = x >= 0 && y >= 0 ? Integer.compare(x, y) : (x >= 0 ? -1 : 1);
+                }
+                if (compared == 0) {
+                    compared = a[i].compareTo(b[i]);
+                }
+                if (compared != 0) {
+                    return compared;
+                }
+            }
+            return Integer.compare(a.length, b.length);
+        }
+    };
+    protected final MapNode node;
+    protected final List<Write> writes = new ArrayList<Write>();
+
+    /**
+     * Creates an empty batch of writes to the given node.
+     *
+     * @param node
+     */
+    public MapNodeBatch(MapNode node) {
+        this.node = node;
+    }
+
+    /**
+     * Adds a write that sets the value at the given path, like
+     * setObject() does. If prop == null, nothing is added.
+     *
+     * @param prop
+     * @param value
+     * @return
+     */
+    public MapNodeBatch set(String prop, Object value) {
+        if (prop != null) {
+            set(MapNodePath.compile(prop, node.options), value);
+        }
+        return this;
+    }
+
+    /**
+     * Same as set(String, Object), but uses a precompiled path.
+     *
+     * @param path
+     * @param value
+     * @return
+     */
+    public MapNodeBatch set(MapNodePath path, Object value) {
+        if (path != null) {
+            writes.add(new Write(path, node.internKeys(value), false));
+        }
+        return this;
+    }
+
+    /**
+     * Adds a write that removes the value at the given path, like
+     * removeObject() does. If prop == null, nothing is added.
+     *
+     * @param prop
+     * @return
+     */
+    public MapNodeBatch remove(String prop) {
+        if (prop != null) {
+            remove(MapNodePath.compile(prop, node.options));
+        }
+        return this;
+    }
+
+    /**
+     * Same as remove(String), but uses a precompiled path.
+     *
+     * @param path
+     * @return
+     */
+    public MapNodeBatch remove(MapNodePath path) {
+        if (path != null) {
+            writes.add(new Write(path, null, true));
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of writes that have not been committed yet.
+     *
+     * @return
+     */
+    public int size() {
+        return writes.size();
+    }
+
+    /**
+     * Applies all the writes to the node, and empties the batch. If
+     * a value cannot be set (because its path goes through a list with
+     * an invalid index), it throws a MapNodeException and the node is
+     * left unchanged. The batch is emptied either way.
+     *
+     * @throws MapNodeException
+     */
+    public void commit() {
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        List<Write> ordered = new ArrayList<Write>(writes);
+        writes.clear();
+
+        List<Write> sorted = new ArrayList<Write>(ordered);
+        Collections.sort(sorted, ORDER);
+        if (isIndependent(sorted)) {
+            ordered = sorted;
+        }
+
+        synchronized (node) {
+            node.setBase(apply(node.base, ordered));
+        }
+    }
+
+    /**
+     * Checks whether the sorted writes have the same outcome as the
+     * writes in the order they were added. Writes to the same path
+     * keep their order when sorted, so only a path that is a prefix
+     * of another (which always sorts right before the paths it is a
+     * prefix of) and list removals, which shift the indexes of the
+     * elements after them, make the order matter.
+     *
+     * @param sorted
+     * @return
+     */
+    protected static boolean isIndependent(List<Write> sorted) {
+        for (int i = 0; i < sorted.size(); ++i) {
+            Write write = sorted.get(i);
+            String[] segments = write.path.segments;
+            if (write.remove && segments.length > 0 && MapNode.parseIndex(segments[segments.length - 1]) >= 0) {
+                return false;
+            }
+
+            if (i + 1 < sorted.size()) {
+                String[] next = sorted.get(i + 1).path.segments;
+                if (next.length > segments.length && isPrefix(segments, next)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPrefix(String[] prefix, String[] segments) {
+        for (int i = 0; i < prefix.length; ++i) {
+            if (!prefix[i].equals(segments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the writes, in order, to a copy of the given base
+     * map and returns the copy.
+     *
+     * @param base
+     * @param ordered
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<String, Object> apply(Map<String, Object> base, List<Write> ordered) {
+        Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        Object root = copy(base, owned);
+
+        // containers[i] is the container reached after walking
+        // the first i segments of the previous write's path
+        Object[] containers = new Object[8];
+        String[] previous = new String[0];
+        int valid = 0;
+
+        for (Write write : ordered) {
+            String[] segments = write.path.segments;
+            if (segments.length == 0) {
+                root = write.remove ? node.newMap() : write.value;
+                if (!(root instanceof Map)) {
+                    throw new MapNodeException("Only a map can be set at the root path");
+                }
+                owned.add(root);
+                previous = segments;
+                valid = 0;
+                continue;
+            }
+
+            if (containers.length < segments.length) {
+                Object[] grown = new Object[Math.max(segments.length, containers.length * 2)];
+                System.arraycopy(containers, 0, grown, 0, containers.length);
+                containers = grown;
+            }
+            containers[0] = root;
+
+            int depth = 0;
+            int shared = Math.min(Math.min(valid, previous.length), segments.length - 1);
+            while (depth < shared && segments[depth].equals(previous[depth])) {
+                ++depth;
+            }
+
+            boolean found = true;
+            for (; depth < segments.length - 1; ++depth) {
+                Object child = walk(containers[depth], segments[depth], !write.remove, owned);
+                if (child == null) {
+                    if (write.remove) {
+                        found = false;
+                        break;
+                    }
+                    throw new MapNodeException("Cannot set " + write.path + ", " + segments[depth] + " is not a valid index");
+                }
+                containers[depth + 1] = child;
+            }
+            previous = segments;
+            valid = depth;
+
+            if (!found) {
+                continue;
+            }
+
+            Object parent = containers[segments.length - 1];
+            String key = segments[segments.length - 1];
+            if (write.remove) {
+                node.removeChild(parent, key);
+            } else if (!node.putChild(parent, key, write.value)) {
+                throw new MapNodeException("Cannot set " + write.path + ", " + key + " is not a valid index");
+            }
+        }
+        return (Map<String, Object>) root;
+    }
+
+    /**
+     * Returns the map or list stored in the parent with the given key,
+     * copied if this batch did not copy or create it yet. If there is
+     * no map or list there and create is true, a new map is stored in
+     * its place. Returns null if there is nothing to walk into.
+     *
+     * @param parent
+     * @param key
+     * @param create
+     * @param owned
+     * @return
+     */
+    protected Object walk(Object parent, String key, boolean create, Set<Object> owned) {
+        Object child = node.getChild(parent, key);
+        if (child instanceof Map || child instanceof List) {
+            if (owned.contains(child)) {
+                return child;
+            }
+            child = copy(child, owned);
+        } else if (create) {
+            child = node.newMap();
+            owned.add(child);
+        } else {
+            return null;
+        }
+
+        return node.putChild(parent, key, child) ? child : null;
+    }
+
+    /**
+     * Returns a shallow copy of the given map or list, of the same
+     * family of types, and remembers that it can be modified.
+     *
+     * @param container
+     * @param owned
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected static Object copy(Object container, Set<Object> owned) {
+        Object out;
+        if (container instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) container;
+            if (map instanceof SortedMap) {
+                out = new TreeMap<Object, Object>((SortedMap<Object, Object>) map);
+            } else if (map instanceof ConcurrentMap) {
+                out = new ConcurrentHashMap<Object, Object>(map);
+            } else if (map instanceof CompactMap) {
+                out = new CompactMap<Object, Object>(map);
+            } else if (map instanceof HashMap && !(map instanceof LinkedHashMap)) {
+                out = new HashMap<Object, Object>(map);
+            } else {
+                out = new LinkedHashMap<Object, Object>(map);
+            }
+        } else {
+            List<Object> list = (List<Object>) container;
+            if (list instanceof CopyOnWriteArrayList) {
+                out = new CopyOnWriteArrayList<Object>(list);
+            } else {
+                out = new ArrayList<Object>(list);
+            }
+        }
+        owned.add(out);
+        return out;
+    }
+}
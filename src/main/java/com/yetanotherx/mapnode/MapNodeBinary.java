@@ -0,0 +1,329 @@
+package com.yetanotherx.mapnode;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary encoding of a Map<String, Object> tree, used by
+ * MapNode.toBytes() and MapNode.fromBytes().
+ *
+ * The encoding starts with the magic bytes "MNB" and a version byte,
+ * followed by a table of every distinct string in the tree (so keys
+ * that are repeated across list entries are only stored once) and
+ * then the root value. Every value starts with a type tag. Integers
+ * are stored as zig-zag varints, doubles as 8 bytes, and strings as
+ * varint indexes into the string table. Lists, sets and maps store
+ * their size followed by their elements (and keys), in iteration order.
+ *
+ * The values that can be encoded are the ones SnakeYAML produces:
+ * null, Booleans, Integers/Longs/BigIntegers (and Shorts/Bytes),
+ * Doubles (and Floats), Strings, Dates, byte arrays, Lists, Sets
+ * (from !!set) and Maps. Decoding creates LinkedHashMaps, ArrayLists
+ * and LinkedHashSets, like SnakeYAML.
+ *
+ * @author yetanotherx
+ */
+final class MapNodeBinary {
+
+    private static final byte[] MAGIC = {'M', 'N', 'B'};
+    private static final byte VERSION = 1;
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte LIST = 7;
+    private static final byte MAP = 8;
+    private static final byte BIG_INTEGER = 9;
+    private static final byte DATE = 10;
+    private static final byte BYTES = 11;
+    private static final byte SET = 12;
+
+    private MapNodeBinary() {
+    }
+
+    /**
+     * Encodes the map into a new byte array.
+     *
+     * @param map
+     * @return
+     */
+    static byte[] encode(Map<String, Object> map) {
+        Encoder body = new Encoder();
+        body.writeValue(map);
+
+        Encoder out = new Encoder();
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+        out.writeVarint(body.strings.size());
+        for (String string : body.strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        out.write(body.buffer, 0, body.size);
+        return Arrays.copyOf(out.buffer, out.size);
+    }
+
+    /**
+     * Decodes a map from the buffer, starting at its current position.
+     * The position of the given buffer is not changed. If the data is
+     * not valid, it throws a MapNodeException (runtime).
+     *
+     * @throws MapNodeException
+     * @param buffer
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> decode(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            for (byte magic : MAGIC) {
+                if (in.get() != magic) {
+                    throw new MapNodeException("Not MapNode binary data");
+                }
+            }
+            if (in.get() != VERSION) {
+                throw new MapNodeException("Unsupported MapNode binary version");
+            }
+
+            String[] strings = new String[readSize(in)];
+            for (int i = 0; i < strings.length; ++i) {
+                int length = readSize(in);
+                if (in.hasArray()) {
+                    strings[i] = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                    in.position(in.position() + length);
+                } else {
+                    byte[] bytes = new byte[length];
+                    in.get(bytes);
+                    strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+
+            Object root = readValue(in, strings);
+            if (!(root instanceof Map)) {
+                throw new MapNodeException("MapNode binary data does not contain a map");
+            }
+            return (Map<String, Object>) root;
+        } catch (BufferUnderflowException e) {
+            throw new MapNodeException("Truncated MapNode binary data", e);
+        } catch (IllegalArgumentException e) {
+            throw new MapNodeException("Corrupt MapNode binary data", e);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in, String[] strings) {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT:
+                return (int) zigZagDecode(readVarint(in));
+            case LONG:
+                return zigZagDecode(readVarint(in));
+            case DOUBLE:
+                return in.getDouble();
+            case STRING:
+                return readString(in, strings);
+            case LIST: {
+                int size = readSize(in);
+                List<Object> list = new ArrayList<Object>(size);
+                for (int i = 0; i < size; ++i) {
+                    list.add(readValue(in, strings));
+                }
+                return list;
+            }
+            case MAP: {
+                int size = readSize(in);
+                Map<Object, Object> map = new LinkedHashMap<Object, Object>(capacity(size));
+                for (int i = 0; i < size; ++i) {
+                    Object key = readValue(in, strings);
+                    map.put(key, readValue(in, strings));
+                }
+                return map;
+            }
+            case SET: {
+                int size = readSize(in);
+                Set<Object> set = new LinkedHashSet<Object>(capacity(size));
+                for (int i = 0; i < size; ++i) {
+                    set.add(readValue(in, strings));
+                }
+                return set;
+            }
+            case BIG_INTEGER: {
+                byte[] bytes = new byte[readSize(in)];
+                in.get(bytes);
+                return new BigInteger(bytes);
+            }
+            case DATE:
+                return new Date(zigZagDecode(readVarint(in)));
+            case BYTES: {
+                byte[] bytes = new byte[readSize(in)];
+                in.get(bytes);
+                return bytes;
+            }
+            default:
+                throw new MapNodeException("Unknown type tag " + tag + " in MapNode binary data");
+        }
+    }
+
+    private static String readString(ByteBuffer in, String[] strings) {
+        long index = readVarint(in);
+        if (index < 0 || index >= strings.length) {
+            throw new MapNodeException("String index out of range in MapNode binary data");
+        }
+        return strings[(int) index];
+    }
+
+    private static int readSize(ByteBuffer in) {
+        long size = readVarint(in);
+        if (size < 0 || size > in.remaining()) {
+            throw new MapNodeException("Invalid size in MapNode binary data");
+        }
+        return (int) size;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new MapNodeException("Malformed varint in MapNode binary data");
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int capacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
+    }
+
+    /**
+     * Growable byte buffer that collects the string table
+     * while values are written.
+     */
+    private static final class Encoder {
+
+        private byte[] buffer = new byte[256];
+        private int size = 0;
+        private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private void write(byte b) {
+            ensureCapacity(1);
+            buffer[size++] = b;
+        }
+
+        private void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        private void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeZigZag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        private void writeString(String string) {
+            Integer index = strings.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.put(string, index);
+            }
+            write(STRING);
+            writeVarint(index);
+        }
+
+        private void writeValue(Object value) {
+            if (value == null) {
+                write(NULL);
+            } else if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof Boolean) {
+                write(((Boolean) value) ? TRUE : FALSE);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                write(INT);
+                writeZigZag(((Number) value).intValue());
+            } else if (value instanceof Long) {
+                write(LONG);
+                writeZigZag((Long) value);
+            } else if (value instanceof Double || value instanceof Float) {
+                write(DOUBLE);
+                ensureCapacity(8);
+                long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    buffer[size++] = (byte) (bits >>> shift);
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                write(MAP);
+                writeVarint(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            } else if (value instanceof List || value instanceof Set) {
+                Collection<?> collection = (Collection<?>) value;
+                write(value instanceof List ? LIST : SET);
+                writeVarint(collection.size());
+                for (Object element : collection) {
+                    writeValue(element);
+                }
+            } else if (value instanceof BigInteger) {
+                byte[] bytes = ((BigInteger) value).toByteArray();
+                write(BIG_INTEGER);
+                writeVarint(bytes.length);
+                write(bytes, 0, bytes.length);
+            } else if (value instanceof Date) {
+                write(DATE);
+                writeZigZag(((Date) value).getTime());
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                write(BYTES);
+                writeVarint(bytes.length);
+                write(bytes, 0, bytes.length);
+            } else if (value instanceof Character || value instanceof CharSequence) {
+                writeString(value.toString());
+            } else {
+                throw new MapNodeException("Cannot encode " + value.getClass().getName() + " as MapNode binary data");
+            }
+        }
+    }
+}
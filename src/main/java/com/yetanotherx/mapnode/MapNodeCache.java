@@ -0,0 +1,177 @@
+package com.yetanotherx.mapnode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache of resolved paths. It maps a path string
+ * to the value that getObject() resolved for it, and evicts the
+ * least recently used path once the maximum size is reached.
+ *
+ * A MapNode creates its cache when options.cacheSize is greater
+ * than 0, and clears it every time the node is modified through
+ * setObject(), removeObject(), setBase(), loadYaml() or reset(),
+ * and when the separator character of its options is changed.
+ *
+ * @author yetanotherx
+ */
+public class MapNodeCache {
+
+    /**
+     * Returned by get() when the path is not in the cache.
+     */
+    protected static final Object MISSING = new Object();
+    /**
+     * Stored in place of null, so a path that resolves
+     * to nothing is cached as well.
+     */
+    protected static final Object NULL = new Object();
+    protected final Map<String, Object> entries;
+    protected final int maxSize;
+    protected long hits = 0;
+    protected long misses = 0;
+    protected long generation = 0;
+    /**
+     * Separator the cached path strings were split on.
+     */
+    protected volatile String separator;
+
+    /**
+     * Creates a new cache holding at most maxSize paths.
+     *
+     * @param maxSize
+     */
+    public MapNodeCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 3390184755612L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the path, or MISSING if
+     * the path is not cached.
+     *
+     * @param path
+     * @return
+     */
+    protected synchronized Object get(String path) {
+        Object value = entries.get(path);
+        if (value == null) {
+            ++misses;
+            return MISSING;
+        }
+
+        ++hits;
+        return value == NULL ? null : value;
+    }
+
+    /**
+     * Stores the resolved value for the path.
+     *
+     * @param path
+     * @param value
+     */
+    protected synchronized void put(String path, Object value) {
+        entries.put(path, value == null ? NULL : value);
+    }
+
+    /**
+     * Stores the resolved value for the path, but only if the
+     * cache has not been cleared since getGeneration() returned
+     * the given generation. This keeps a value that was resolved
+     * while another thread modified the node from being cached
+     * after the modification. Returns true if the value was stored.
+     *
+     * @param path
+     * @param value
+     * @param generation
+     * @return
+     */
+    protected synchronized boolean put(String path, Object value, long generation) {
+        if (generation != this.generation) {
+            return false;
+        }
+        entries.put(path, value == null ? NULL : value);
+        return true;
+    }
+
+    /**
+     * Clears the cache if its paths were split on another separator
+     * than the given one, so a path string is never answered with
+     * the value it had with the old separator.
+     *
+     * @param separator
+     */
+    protected void checkSeparator(String separator) {
+        if (!separator.equals(this.separator)) {
+            synchronized (this) {
+                if (!separator.equals(this.separator)) {
+                    clear();
+                    this.separator = separator;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times the cache has been cleared.
+     *
+     * @return
+     */
+    protected synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Removes all cached paths. The hit and miss counters
+     * are left untouched.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        ++generation;
+    }
+
+    /**
+     * Returns the number of paths currently cached.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the maximum number of paths this cache holds.
+     *
+     * @return
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of lookups that were answered
+     * from the cache.
+     *
+     * @return
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that had to walk the maps.
+     *
+     * @return
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,174 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Deep copies trees of maps and lists, used by MapNode.deepCopy()
+ * and MapNode.clone().
+ *
+ * Any kind of Map or List can be copied. Sorted maps are copied into
+ * TreeMaps with the same comparator, other maps into LinkedHashMaps
+ * (so the copy iterates in the same order as the original), and lists
+ * into ArrayLists. Other values (Strings, numbers, ...) are not copied.
+ *
+ * The tree is walked with an explicit stack instead of recursion, so
+ * very deep trees do not overflow the thread's stack. A map or list
+ * that appears more than once in the tree (as YAML aliases do) is only
+ * copied once, and the copy appears in the same places, so trees that
+ * contain themselves can be copied as well.
+ *
+ * @author yetanotherx
+ */
+public final class MapNodeCopier {
+
+    private MapNodeCopier() {
+    }
+
+    /**
+     * Returns a deep copy of the value, or the value itself
+     * if it is not a map or a list.
+     *
+     * @param value
+     * @return
+     */
+    public static <T> T copy(T value) {
+        return copy(value, null);
+    }
+
+    /**
+     * Returns a deep copy of the value in which every map is created
+     * by the newMap() of the given node, so it can be stored in that
+     * node (as the values of a MapNodePatch are). Lists are copied
+     * into ArrayLists. If the new maps cannot hold null (such as the
+     * ConcurrentHashMaps of a ConcurrentMapNode), null keys and values
+     * are left out. If node == null, maps are copied like copy(Object)
+     * does.
+     *
+     * @param value
+     * @param node
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T copy(T value, MapNode node) {
+        if (!isContainer(value)) {
+            return value;
+        }
+
+        Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+        Deque<Object> stack = new ArrayDeque<Object>();
+        Object out = copyContainer(value, node, copies, stack);
+
+        while (!stack.isEmpty()) {
+            Object source = stack.pop();
+            Object target = copies.get(source);
+
+            if (source instanceof Map) {
+                Map<Object, Object> targetMap = (Map<Object, Object>) target;
+                boolean skipNulls = targetMap instanceof ConcurrentMap;
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) source).entrySet()) {
+                    if (skipNulls && (entry.getKey() == null || entry.getValue() == null)) {
+                        continue;
+                    }
+                    targetMap.put(entry.getKey(), copyContainer(entry.getValue(), node, copies, stack));
+                }
+            } else {
+                List<Object> targetList = (List<Object>) target;
+                for (Object element : (List<?>) source) {
+                    targetList.add(copyContainer(element, node, copies, stack));
+                }
+            }
+        }
+        return (T) out;
+    }
+
+    /**
+     * Returns a deep copy of the map, copying each of its values on
+     * the given executor. This only pays off for large trees with
+     * several large top-level values. Maps or lists that are shared
+     * between two top-level values are copied once for each of them.
+     *
+     * @throws MapNodeException if a copy fails or the thread is interrupted
+     * @param map
+     * @param executor
+     * @return
+     */
+    public static Map<String, Object> copy(Map<String, Object> map, ExecutorService executor) {
+        Map<String, Object> out = newMap(map);
+        Map<String, Future<Object>> futures = new LinkedHashMap<String, Future<Object>>();
+
+        for (final Map.Entry<String, Object> entry : map.entrySet()) {
+            if (isContainer(entry.getValue())) {
+                out.put(entry.getKey(), null);
+                futures.put(entry.getKey(), executor.submit(new Callable<Object>() {
+
+                    @Override
+                    public Object call() {
+                        return copy(entry.getValue());
+                    }
+                }));
+            } else {
+                out.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        try {
+            for (Map.Entry<String, Future<Object>> future : futures.entrySet()) {
+                out.put(future.getKey(), future.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MapNodeException("Interrupted while copying", e);
+        } catch (ExecutionException e) {
+            throw new MapNodeException("Could not copy the map", e.getCause());
+        }
+        return out;
+    }
+
+    private static boolean isContainer(Object value) {
+        return value instanceof Map || value instanceof List;
+    }
+
+    /**
+     * Returns the (possibly still empty) copy of the value. If the value
+     * is a map or list that was not seen before, an empty copy is created
+     * and the value is pushed on the stack to be filled in later.
+     */
+    private static Object copyContainer(Object value, MapNode node, Map<Object, Object> copies, Deque<Object> stack) {
+        if (!isContainer(value)) {
+            return value;
+        }
+
+        Object out = copies.get(value);
+        if (out == null) {
+            if (value instanceof Map) {
+                out = node != null ? node.newMap() : newMap((Map<?, ?>) value);
+            } else {
+                out = new ArrayList<Object>(((List<?>) value).size());
+            }
+            copies.put(value, out);
+            stack.push(value);
+        }
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> Map<K, Object> newMap(Map<K, ?> map) {
+        if (map instanceof SortedMap) {
+            return new TreeMap<K, Object>(((SortedMap<K, ?>) map).comparator());
+        }
+        return new LinkedHashMap<K, Object>(map.size() < 3 ? map.size() + 1 : (int) (map.size() / 0.75f + 1.0f));
+    }
+}
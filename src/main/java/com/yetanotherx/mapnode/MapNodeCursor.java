@@ -0,0 +1,456 @@
+package com.yetanotherx.mapnode;
+
+import com.yetanotherx.mapnode.converter.BooleanConverter;
+import com.yetanotherx.mapnode.converter.DoubleConverter;
+import com.yetanotherx.mapnode.converter.IntegerConverter;
+import com.yetanotherx.mapnode.converter.LongConverter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Movable position in the tree of a MapNode, returned by
+ * MapNode.cursor(). The cursor remembers the map or list it was moved
+ * to, and reads and writes paths relative to it, so code that works on
+ * one part of a large tree does not walk down to it from the root for
+ * every value:
+ *
+ * MapNodeCursor cursor = node.cursor();
+ * cursor.moveTo("servers.eu");
+ * String host = cursor.getString("host");
+ * int port = cursor.getInt("port", 80);
+ *
+ * Moving around (moveTo(), parent(), root()) does not create any
+ * MapNode or options objects, so one cursor can be reused to visit
+ * many parts of the tree. Values set through the cursor invalidate the
+ * cache and the memoized hashes of the node and notify its listeners,
+ * like setObject() on the node does.
+ *
+ * If the base map of the node is replaced (by setBase(), a reload, a
+ * committed batch, ...), the cursor walks its path again in the new
+ * tree, stopping at the deepest map or list that still exists. Other
+ * changes made above the cursor, such as replacing one of the maps on
+ * its path with setObject(), are not noticed until the cursor is moved.
+ *
+ * A cursor is not thread-safe, but any number of cursors can be
+ * used on the same node.
+ *
+ * @author yetanotherx
+ */
+public class MapNodeCursor {
+
+    protected final MapNode node;
+    /**
+     * Maps and lists along the path of the cursor. containers[0]
+     * is the base map, containers[depth] is the current one.
+     */
+    protected Object[] containers = new Object[8];
+    /**
+     * Keys along the path of the cursor. keys[i] leads from
+     * containers[i] to containers[i + 1].
+     */
+    protected String[] keys = new String[8];
+    protected int depth = 0;
+
+    /**
+     * Creates a cursor at the root of the given node.
+     *
+     * @param node
+     */
+    public MapNodeCursor(MapNode node) {
+        this.node = node;
+        this.containers[0] = node.base;
+    }
+
+    /**
+     * Returns the node this cursor moves around in.
+     *
+     * @return
+     */
+    public MapNode getNode() {
+        return node;
+    }
+
+    /**
+     * Returns the map or list the cursor is at.
+     *
+     * @return
+     */
+    public Object getCurrent() {
+        return current();
+    }
+
+    /**
+     * Returns the number of keys between the root and the cursor.
+     *
+     * @return
+     */
+    public int getDepth() {
+        current();
+        return depth;
+    }
+
+    /**
+     * Returns the path of the cursor from the root of the node.
+     *
+     * @return
+     */
+    public MapNodePath getPath() {
+        current();
+        return MapNodePath.of(node.options.separatorChar, Arrays.copyOf(keys, depth));
+    }
+
+    /**
+     * Moves the cursor to the map or list at the given path, relative
+     * to its current position. If there is no map or list at the path,
+     * the cursor is not moved, and false is returned.
+     *
+     * @param prop
+     * @return
+     */
+    public boolean moveTo(String prop) {
+        if (prop == null) {
+            return false;
+        }
+        if (prop.indexOf(node.options.separatorChar) == -1) {
+            return prop.length() == 0 || moveTo(new String[]{prop});
+        }
+        return moveTo(MapNodePath.compile(prop, node.options).segments);
+    }
+
+    /**
+     * Same as moveTo(String), but uses a precompiled path.
+     *
+     * @param path
+     * @return
+     */
+    public boolean moveTo(MapNodePath path) {
+        return path != null && moveTo(path.segments);
+    }
+
+    private boolean moveTo(String[] segments) {
+        Object container = current();
+        int start = depth;
+        for (String segment : segments) {
+            container = node.getChild(container, segment);
+            if (!(container instanceof Map || container instanceof List)) {
+                Arrays.fill(containers, start + 1, depth + 1, null);
+                depth = start;
+                return false;
+            }
+            push(segment, container);
+        }
+        return true;
+    }
+
+    /**
+     * Moves the cursor up to the parent of the current map or list.
+     * Returns false if the cursor is at the root.
+     *
+     * @return
+     */
+    public boolean parent() {
+        current();
+        if (depth == 0) {
+            return false;
+        }
+        containers[depth--] = null;
+        return true;
+    }
+
+    /**
+     * Moves the cursor back to the root of the node.
+     */
+    public void root() {
+        Arrays.fill(containers, 1, depth + 1, null);
+        depth = 0;
+        containers[0] = node.base;
+    }
+
+    /**
+     * Gets the raw object at the given path, relative to the cursor.
+     * If prop == null, it returns null; if prop == "", it returns
+     * the map or list the cursor is at.
+     *
+     * @param prop
+     * @return
+     */
+    public Object getObject(String prop) {
+        if (prop == null) {
+            return null;
+        }
+
+        Object container = current();
+        if (prop.indexOf(node.options.separatorChar) == -1) {
+            return prop.length() == 0 ? container : node.getChild(container, prop);
+        }
+        return resolve(container, MapNodePath.compile(prop, node.options).segments);
+    }
+
+    /**
+     * Same as getObject(String), but uses a precompiled path.
+     *
+     * @param path
+     * @return
+     */
+    public Object getObject(MapNodePath path) {
+        if (path == null) {
+            return null;
+        }
+        return resolve(current(), path.segments);
+    }
+
+    private Object resolve(Object container, String[] segments) {
+        Object out = container;
+        for (String segment : segments) {
+            out = node.getChild(out, segment);
+            if (out == null) {
+                return null;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Gets the value at the given relative path as a String, or
+     * the given default result if it is not found.
+     *
+     * @param prop
+     * @param defaultResult
+     * @return
+     */
+    public String getString(String prop, String defaultResult) {
+        Object out = getObject(prop);
+        return out == null ? defaultResult : out.toString();
+    }
+
+    /**
+     * Gets the value at the given relative path as a String, or null
+     * or "" (depending on options.returnNull) if it is not found.
+     *
+     * @param prop
+     * @return
+     */
+    public String getString(String prop) {
+        return getString(prop, node.options.returnNull ? null : "");
+    }
+
+    /**
+     * Gets the value at the given relative path as an Integer, or
+     * null if it is not found or cannot be converted.
+     *
+     * @param prop
+     * @return
+     */
+    public Integer getInteger(String prop) {
+        Object out = getObject(prop);
+        return node.converted(out, node.getConverter(Integer.class, IntegerConverter.INSTANCE).transform(out));
+    }
+
+    /**
+     * Gets the value at the given relative path as an int, or the
+     * given default result if it is not found or cannot be converted.
+     *
+     * @param prop
+     * @param defaultResult
+     * @return
+     */
+    public int getInt(String prop, int defaultResult) {
+        return IntegerConverter.toInt(getObject(prop), defaultResult);
+    }
+
+    /**
+     * Gets the value at the given relative path as a long, or the
+     * given default result if it is not found or cannot be converted.
+     *
+     * @param prop
+     * @param defaultResult
+     * @return
+     */
+    public long getLong(String prop, long defaultResult) {
+        return LongConverter.toLong(getObject(prop), defaultResult);
+    }
+
+    /**
+     * Gets the value at the given relative path as a double, or the
+     * given default result if it is not found or cannot be converted.
+     *
+     * @param prop
+     * @param defaultResult
+     * @return
+     */
+    public double getDouble(String prop, double defaultResult) {
+        return DoubleConverter.toDouble(getObject(prop), defaultResult);
+    }
+
+    /**
+     * Gets the value at the given relative path as a boolean, or the
+     * given default result if it is not found or cannot be converted.
+     *
+     * @param prop
+     * @param defaultResult
+     * @return
+     */
+    public boolean getBoolean(String prop, boolean defaultResult) {
+        return BooleanConverter.toBoolean(getObject(prop), defaultResult);
+    }
+
+    /**
+     * Gets the value at the given relative path converted to the
+     * given type with the converter registry of the node (see
+     * MapNode.getAs()), or null if it is not found.
+     *
+     * @throws MapNodeException
+     * @param <T>
+     * @param prop
+     * @param type
+     * @return
+     */
+    public <T> T getAs(String prop, Class<T> type) {
+        Object out = getObject(prop);
+        return node.converted(out, node.options.converterRegistry.convert(out, type));
+    }
+
+    /**
+     * Sets the value at the given path, relative to the cursor,
+     * creating missing maps like MapNode.setObject() does. If
+     * prop == null or prop == "", nothing is set.
+     *
+     * @param prop
+     * @param value
+     */
+    public void setObject(String prop, Object value) {
+        if (prop == null || prop.length() == 0) {
+            return;
+        }
+
+        if (prop.indexOf(node.options.separatorChar) == -1) {
+            set(new String[]{prop}, value);
+        } else {
+            set(MapNodePath.compile(prop, node.options).segments, value);
+        }
+    }
+
+    /**
+     * Same as setObject(String, Object), but uses a precompiled path.
+     *
+     * @param path
+     * @param value
+     */
+    public void setObject(MapNodePath path, Object value) {
+        if (path != null && !path.isRoot()) {
+            set(path.segments, value);
+        }
+    }
+
+    private void set(String[] segments, Object value) {
+        Object container = current();
+        for (int i = 0; i < segments.length - 1; ++i) {
+            container = node.getOrCreateChild(container, segments[i]);
+            if (container == null) {
+                node.invalidateCache();
+                return;
+            }
+        }
+
+        String key = segments[segments.length - 1];
+        Object oldValue = node.hashes != null ? node.getChild(container, key) : null;
+        boolean changed = node.putChild(container, key, node.internKeys(value));
+        changed(segments, oldValue, changed);
+    }
+
+    /**
+     * Removes the value at the given path, relative to the cursor.
+     * If prop == null or prop == "", nothing is removed.
+     *
+     * @param prop
+     */
+    public void removeObject(String prop) {
+        if (prop == null || prop.length() == 0) {
+            return;
+        }
+
+        if (prop.indexOf(node.options.separatorChar) == -1) {
+            remove(new String[]{prop});
+        } else {
+            remove(MapNodePath.compile(prop, node.options).segments);
+        }
+    }
+
+    /**
+     * Same as removeObject(String), but uses a precompiled path.
+     *
+     * @param path
+     */
+    public void removeObject(MapNodePath path) {
+        if (path != null && !path.isRoot()) {
+            remove(path.segments);
+        }
+    }
+
+    private void remove(String[] segments) {
+        Object container = current();
+        for (int i = 0; i < segments.length - 1; ++i) {
+            container = node.getChild(container, segments[i]);
+            if (container == null) {
+                return;
+            }
+        }
+
+        String key = segments[segments.length - 1];
+        Object oldValue = node.hashes != null ? node.getChild(container, key) : null;
+        boolean changed = node.removeChild(container, key);
+        changed(segments, oldValue, changed);
+    }
+
+    /**
+     * Invalidates the cache and the memoized hashes of the node and
+     * notifies its listeners. The full path is only built if the
+     * hashes or the listeners need it.
+     */
+    private void changed(String[] segments, Object oldValue, boolean changed) {
+        node.invalidateCache();
+        if (!changed || (node.hashes == null && node.listeners == null)) {
+            return;
+        }
+
+        String[] full = Arrays.copyOf(keys, depth + segments.length);
+        System.arraycopy(segments, 0, full, depth, segments.length);
+        MapNodePath path = MapNodePath.of(node.options.separatorChar, full);
+        node.invalidateHashes(path, oldValue);
+        node.fireChanged(path);
+    }
+
+    /**
+     * Returns the map or list the cursor is at, walking the path of
+     * the cursor again first if the base map of the node was replaced.
+     *
+     * @return
+     */
+    protected Object current() {
+        Object base = node.base;
+        if (containers[0] != base) {
+            containers[0] = base;
+            int old = depth;
+            depth = 0;
+            for (int i = 0; i < old; ++i) {
+                Object child = node.getChild(containers[i], keys[i]);
+                if (!(child instanceof Map || child instanceof List)) {
+                    break;
+                }
+                containers[++depth] = child;
+            }
+            Arrays.fill(containers, depth + 1, old + 1, null);
+        }
+        return containers[depth];
+    }
+
+    private void push(String key, Object container) {
+        if (depth + 1 == containers.length) {
+            containers = Arrays.copyOf(containers, containers.length * 2);
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[depth] = key;
+        containers[++depth] = container;
+    }
+}
@@ -0,0 +1,267 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Memoized hash codes of the maps and lists of a tree. The hash code
+ * of a map or list is computed from the (memoized) hash codes of its
+ * children, exactly like Map.hashCode() and List.hashCode() do, so the
+ * hash code of the base map is the same as base.hashCode(). Once it has
+ * been computed, asking again only costs a lookup.
+ *
+ * Maps and lists are looked up by identity, not by equality. While the
+ * hash codes are computed, the map or list that holds each child map or
+ * list is recorded, so a map or list that appears in several places (as
+ * YAML aliases do) knows all of them. When a value is changed, the maps
+ * and lists on its path and everything that contains them have to be
+ * forgotten with invalidate(). A MapNode does this when
+ * options.cacheHashes is true and the node is modified through its own
+ * methods, or through a node returned by its getMapNode(), which shares
+ * this object. If the maps are modified directly, clear() has to be
+ * called by hand.
+ *
+ * @author yetanotherx
+ */
+public class MapNodeHashes {
+
+    protected final Map<Object, Integer> hashes = new IdentityHashMap<Object, Integer>();
+    /**
+     * The map or list each child map or list was found in, or a
+     * Parents object if it was found in more than one.
+     */
+    protected final Map<Object, Object> parents = new IdentityHashMap<Object, Object>();
+
+    /**
+     * Returns the hash code of the value, using and filling
+     * in the memoized hash codes of maps and lists.
+     *
+     * @param value
+     * @return
+     */
+    public synchronized int hashCode(Object value) {
+        return compute(value);
+    }
+
+    private int compute(Object value) {
+        if (value instanceof Map) {
+            Integer cached = hashes.get(value);
+            if (cached != null) {
+                return cached;
+            }
+
+            int hash = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Object key = entry.getKey();
+                hash += (key == null ? 0 : key.hashCode()) ^ computeChild(entry.getValue(), value);
+            }
+            hashes.put(value, hash);
+            return hash;
+        } else if (value instanceof List) {
+            Integer cached = hashes.get(value);
+            if (cached != null) {
+                return cached;
+            }
+
+            int hash = 1;
+            for (Object element : (List<?>) value) {
+                hash = 31 * hash + computeChild(element, value);
+            }
+            hashes.put(value, hash);
+            return hash;
+        }
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private int computeChild(Object child, Object parent) {
+        if (child instanceof Map || child instanceof List) {
+            link(child, parent);
+        }
+        return compute(child);
+    }
+
+    private void link(Object child, Object parent) {
+        Object linked = parents.get(child);
+        if (linked == null) {
+            parents.put(child, parent);
+        } else if (linked instanceof Parents) {
+            ((Parents) linked).add(parent);
+        } else if (linked != parent) {
+            Parents shared = new Parents();
+            shared.add(linked);
+            shared.add(parent);
+            parents.put(child, shared);
+        }
+    }
+
+    /**
+     * Forgets that the child was found in the parent. Returns
+     * true if it is not known to be anywhere else.
+     */
+    private boolean unlink(Object child, Object parent) {
+        Object linked = parents.get(child);
+        if (linked instanceof Parents) {
+            Parents shared = (Parents) linked;
+            shared.remove(parent);
+            if (!shared.isEmpty()) {
+                return false;
+            }
+        } else if (linked != null && linked != parent) {
+            return false;
+        }
+        parents.remove(child);
+        return true;
+    }
+
+    /**
+     * Forgets the hash code of the given map or list, but not
+     * the hash codes of its children.
+     *
+     * @param container
+     */
+    public synchronized void invalidate(Object container) {
+        hashes.remove(container);
+    }
+
+    /**
+     * Forgets the hash codes of the maps and lists on the given path,
+     * starting at (and including) the base map, and of every map or
+     * list that contains one of them. The value at the end of the path
+     * is not forgotten.
+     *
+     * @param node
+     * @param path
+     */
+    public void invalidate(MapNode node, MapNodePath path) {
+        invalidate(node, path, null);
+    }
+
+    /**
+     * Same as invalidate(MapNode, MapNodePath), and also forgets the
+     * hash codes of the old value that was replaced or removed at the
+     * end of the path (see prune()).
+     *
+     * @param node
+     * @param path
+     * @param oldValue
+     */
+    public synchronized void invalidate(MapNode node, MapNodePath path, Object oldValue) {
+        Object container = node.base;
+        hashes.remove(container);
+        for (int i = 0; i < path.segments.length - 1 && container != null; ++i) {
+            container = node.getChild(container, path.segments[i]);
+            hashes.remove(container);
+        }
+
+        if (container != null) {
+            prune(oldValue, container);
+            invalidateContaining(container);
+        }
+    }
+
+    /**
+     * Forgets the hash codes of every map or list that
+     * (directly or not) contains the given one.
+     */
+    private void invalidateContaining(Object container) {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        Deque<Object> stack = new ArrayDeque<Object>();
+        stack.push(container);
+        while (!stack.isEmpty()) {
+            Object current = stack.pop();
+            if (!seen.add(current)) {
+                continue;
+            }
+
+            hashes.remove(current);
+            Object linked = parents.get(current);
+            if (linked instanceof Parents) {
+                for (Object parent : ((Parents) linked).keySet()) {
+                    stack.push(parent);
+                }
+            } else if (linked != null) {
+                stack.push(linked);
+            }
+        }
+    }
+
+    /**
+     * Forgets the hash codes of a value that was removed from
+     * the tree, and of all the maps and lists inside it.
+     *
+     * @param value
+     */
+    public synchronized void prune(Object value) {
+        prune(value, null);
+    }
+
+    /**
+     * Forgets the hash codes of a value that was removed from the
+     * given parent map or list, and of all the maps and lists inside
+     * it. Maps and lists that are still found somewhere else in the
+     * tree keep their hash codes. If parent == null, the value is
+     * forgotten wherever else it is.
+     *
+     * @param value
+     * @param parent
+     */
+    public synchronized void prune(Object value, Object parent) {
+        if (!(value instanceof Map || value instanceof List)) {
+            return;
+        }
+        if (parent != null && !unlink(value, parent)) {
+            return;
+        }
+
+        Deque<Object> stack = new ArrayDeque<Object>();
+        stack.push(value);
+        while (!stack.isEmpty()) {
+            Object current = stack.pop();
+            hashes.remove(current);
+            parents.remove(current);
+
+            Iterable<?> children = current instanceof Map ? ((Map<?, ?>) current).values() : (List<?>) current;
+            for (Object child : children) {
+                if ((child instanceof Map || child instanceof List) && unlink(child, current)) {
+                    stack.push(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets all hash codes.
+     */
+    public synchronized void clear() {
+        hashes.clear();
+        parents.clear();
+    }
+
+    /**
+     * Returns the number of maps and lists whose
+     * hash codes are memoized.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return hashes.size();
+    }
+
+    /**
+     * The maps and lists a map or list was found in,
+     * when there are more than one.
+     */
+    private static final class Parents extends IdentityHashMap<Object, Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        void add(Object parent) {
+            put(parent, Boolean.TRUE);
+        }
+    }
+}
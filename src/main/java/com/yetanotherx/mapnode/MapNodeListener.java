@@ -0,0 +1,30 @@
+package com.yetanotherx.mapnode;
+
+import java.util.Set;
+
+/**
+ * Listener for changes to a MapNode, added with MapNode.addListener().
+ *
+ * Listeners are not called by setObject() itself, but later, on the
+ * executor of the node. All the changes made since the last call are
+ * passed at once, and a path that changed several times is only passed
+ * once, so a listener is called far less often than the node changes.
+ * By the time it is called, the node already holds the newest values.
+ * An exception thrown by a listener is passed to the uncaught
+ * exception handler of the thread it is called on.
+ *
+ * @author yetanotherx
+ */
+public interface MapNodeListener {
+
+    /**
+     * Called with the paths that were changed since the last call.
+     * A path is either the listened path, a path inside it, or a path
+     * containing it (such as the root path when setBase(), loadYaml()
+     * or reset() is called). The set cannot be modified.
+     *
+     * @param node
+     * @param paths
+     */
+    void changed(MapNode node, Set<MapNodePath> paths);
+}
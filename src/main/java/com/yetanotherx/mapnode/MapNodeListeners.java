@@ -0,0 +1,221 @@
+package com.yetanotherx.mapnode;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The listeners of a MapNode. A MapNode creates this when the first
+ * listener is added, so nodes without listeners do not pay for them.
+ *
+ * Every change is added to the pending paths of the listeners it
+ * affects, and a single dispatch is scheduled on the executor. Changes
+ * made before the dispatch runs are added to the same batch. When it
+ * runs, each listener is called once with all of its pending paths.
+ *
+ * By default, listeners are called on a single daemon thread shared
+ * by all nodes.
+ *
+ * @author yetanotherx
+ */
+public class MapNodeListeners {
+
+    protected final MapNode node;
+    protected final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+    protected final AtomicBoolean scheduled = new AtomicBoolean(false);
+    protected volatile Executor executor;
+    protected final Runnable dispatcher = new Runnable() {
+
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    /**
+     * Creates the listeners of the given node.
+     *
+     * @param node
+     */
+    public MapNodeListeners(MapNode node) {
+        this.node = node;
+        this.executor = DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * Adds a listener for the given path and everything inside it.
+     *
+     * @param path
+     * @param listener
+     */
+    public void add(MapNodePath path, MapNodeListener listener) {
+        subscriptions.add(new Subscription(path, listener));
+    }
+
+    /**
+     * Removes every subscription of the given listener.
+     * Changes that are already pending for it are dropped.
+     *
+     * @param listener
+     */
+    public void remove(MapNodeListener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * Returns true if there are no listeners.
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return subscriptions.isEmpty();
+    }
+
+    /**
+     * Returns the executor the listeners are called on.
+     *
+     * @return
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor the listeners are called on.
+     *
+     * @param executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Records a change of the given path, and schedules a
+     * dispatch if one is not scheduled yet. If the executor rejects
+     * the dispatch (for example because it was shut down), the
+     * exception is reported like the ones thrown by listeners, and
+     * the paths stay pending until the next change schedules a
+     * dispatch again.
+     *
+     * @param path
+     */
+    public void changed(MapNodePath path) {
+        boolean affected = false;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.matches(path)) {
+                synchronized (subscription) {
+                    subscription.pending.add(path);
+                }
+                affected = true;
+            }
+        }
+
+        if (affected && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(dispatcher);
+            } catch (RuntimeException e) {
+                scheduled.set(false);
+                report(e);
+            }
+        }
+    }
+
+    /**
+     * Calls every listener that has pending paths. If a listener
+     * throws an exception, it is passed to the uncaught exception
+     * handler of the current thread, and the other listeners are
+     * still called. Nothing is thrown, so one failing listener does
+     * not affect the executor or the node that changed.
+     */
+    protected void dispatch() {
+        scheduled.set(false);
+
+        for (Subscription subscription : subscriptions) {
+            Set<MapNodePath> paths;
+            synchronized (subscription) {
+                if (subscription.pending.isEmpty()) {
+                    continue;
+                }
+                paths = subscription.pending;
+                subscription.pending = new LinkedHashSet<MapNodePath>();
+            }
+
+            try {
+                subscription.listener.changed(node, Collections.unmodifiableSet(paths));
+            } catch (RuntimeException e) {
+                report(e);
+            }
+        }
+    }
+
+    /**
+     * Reports an exception thrown by a listener, or by the executor
+     * when it rejects a dispatch, to the uncaught exception handler
+     * of the current thread.
+     *
+     * @param e
+     */
+    protected void report(RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    /**
+     * A listener and the path it listens to.
+     */
+    protected static class Subscription {
+
+        protected final MapNodePath path;
+        protected final MapNodeListener listener;
+        protected Set<MapNodePath> pending = new LinkedHashSet<MapNodePath>();
+
+        protected Subscription(MapNodePath path, MapNodeListener listener) {
+            this.path = path;
+            this.listener = listener;
+        }
+
+        /**
+         * Returns true if one of the paths contains the other.
+         *
+         * @param changed
+         * @return
+         */
+        protected boolean matches(MapNodePath changed) {
+            int length = Math.min(path.segments.length, changed.segments.length);
+            for (int i = 0; i < length; ++i) {
+                if (!path.segments[i].equals(changed.segments[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Holder of the shared executor, so its thread is only
+     * started once a listener is added to some node.
+     */
+    private static final class DefaultExecutor {
+
+        private static final ExecutorService INSTANCE = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MapNode listeners");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,349 @@
+package com.yetanotherx.mapnode;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the operations of the nodes it
+ * is set on (see MapNodeOptions.setMetrics()). For every operation
+ * it records how often it was called and how long it took, and for
+ * path operations also how many segments the path had and which
+ * path it was, so the hottest paths can be listed.
+ *
+ * All counters are LongAdders, which spread updates from different
+ * threads over separate cells, so nodes that are read by many threads
+ * at once do not all contend on the same counter. Reading the counters
+ * sums the cells, and is not atomic with respect to concurrent updates.
+ *
+ * Latencies are kept in a histogram with one bucket per power of two
+ * nanoseconds, so percentiles are only accurate to within a factor of
+ * two. Only the first maxPaths distinct paths are counted for the
+ * hottest paths; later paths are counted in getUntrackedPathCount().
+ *
+ * The options are shared with the nodes returned by getMapNode(), so
+ * the metrics of those nodes are recorded here as well, with paths
+ * relative to the sub-node.
+ *
+ * @author yetanotherx
+ */
+public class MapNodeMetrics {
+
+    /**
+     * Operations that are recorded.
+     */
+    public enum Operation {
+
+        /**
+         * getObject(), and every getter that uses it.
+         */
+        GET,
+        /**
+         * setObject().
+         */
+        SET,
+        /**
+         * removeObject().
+         */
+        REMOVE,
+        /**
+         * loadYaml() and load(), including the parsing.
+         */
+        LOAD,
+        /**
+         * debug(), save() and toBytes().
+         */
+        DUMP
+    }
+    /**
+     * Number of latency buckets. Bucket i holds the latencies
+     * below 2^i nanoseconds; the last one holds everything else.
+     */
+    public static final int LATENCY_BUCKETS = 40;
+    /**
+     * Number of depth buckets. Deeper paths are counted in the last one.
+     */
+    public static final int DEPTH_BUCKETS = 33;
+    protected final int maxPaths;
+    protected final LongAdder[] counts = adders(Operation.values().length);
+    protected final LongAdder[] totalTimes = adders(Operation.values().length);
+    protected final LongAdder[][] latencies = new LongAdder[Operation.values().length][];
+    protected final LongAdder[] depths = adders(DEPTH_BUCKETS);
+    protected final LongAdder converterFailures = new LongAdder();
+    protected final LongAdder untrackedPaths = new LongAdder();
+    protected final ConcurrentMap<String, LongAdder> paths = new ConcurrentHashMap<String, LongAdder>();
+
+    /**
+     * Creates a new MapNodeMetrics object that tracks
+     * up to 1024 distinct paths.
+     */
+    public MapNodeMetrics() {
+        this(1024);
+    }
+
+    /**
+     * Creates a new MapNodeMetrics object that tracks up
+     * to the given number of distinct paths.
+     *
+     * @param maxPaths
+     */
+    public MapNodeMetrics(int maxPaths) {
+        if (maxPaths < 0) {
+            throw new MapNodeException("Number of tracked paths cannot be negative");
+        }
+        this.maxPaths = maxPaths;
+        for (int i = 0; i < latencies.length; ++i) {
+            latencies[i] = adders(LATENCY_BUCKETS);
+        }
+    }
+
+    private static LongAdder[] adders(int size) {
+        LongAdder[] out = new LongAdder[size];
+        for (int i = 0; i < size; ++i) {
+            out[i] = new LongAdder();
+        }
+        return out;
+    }
+
+    /**
+     * Records an operation that is not done on a path
+     * and that started at the given System.nanoTime().
+     *
+     * @param operation
+     * @param start
+     */
+    public void record(Operation operation, long start) {
+        long time = System.nanoTime() - start;
+        int index = operation.ordinal();
+        counts[index].increment();
+        totalTimes[index].add(time);
+        latencies[index][bucket(time)].increment();
+    }
+
+    /**
+     * Records an operation on the given path, with the given
+     * number of segments, that started at the given System.nanoTime().
+     *
+     * @param operation
+     * @param path
+     * @param depth
+     * @param start
+     */
+    public void record(Operation operation, String path, int depth, long start) {
+        record(operation, start);
+        depths[Math.min(depth, DEPTH_BUCKETS - 1)].increment();
+
+        LongAdder counter = paths.get(path);
+        if (counter == null) {
+            if (paths.size() >= maxPaths) {
+                untrackedPaths.increment();
+                return;
+            }
+            LongAdder created = new LongAdder();
+            counter = paths.putIfAbsent(path, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.increment();
+    }
+
+    /**
+     * Records a value that could not be converted to
+     * the type a getter asked for.
+     */
+    public void converterFailed() {
+        converterFailures.increment();
+    }
+
+    private static int bucket(long time) {
+        if (time <= 0) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(time), LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * Returns how often the operation was recorded.
+     *
+     * @param operation
+     * @return
+     */
+    public long getCount(Operation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+
+    /**
+     * Returns the total time spent in the operation, in nanoseconds.
+     *
+     * @param operation
+     * @return
+     */
+    public long getTotalTime(Operation operation) {
+        return totalTimes[operation.ordinal()].sum();
+    }
+
+    /**
+     * Returns the average time of the operation, in nanoseconds,
+     * or 0 if it was never recorded.
+     *
+     * @param operation
+     * @return
+     */
+    public double getAverageTime(Operation operation) {
+        long count = getCount(operation);
+        return count == 0 ? 0 : (double) getTotalTime(operation) / count;
+    }
+
+    /**
+     * Returns the latency histogram of the operation. Element i
+     * is the number of calls that took less than 2^i nanoseconds
+     * (and at least 2^(i-1)), except for the last element, which
+     * counts all the slower calls.
+     *
+     * @param operation
+     * @return
+     */
+    public long[] getLatencyHistogram(Operation operation) {
+        return sums(latencies[operation.ordinal()]);
+    }
+
+    /**
+     * Returns an upper bound of the given percentile (between 0
+     * and 100) of the latency of the operation, in nanoseconds.
+     * Returns 0 if the operation was never recorded.
+     *
+     * @param operation
+     * @param percentile
+     * @return
+     */
+    public long getLatencyPercentile(Operation operation, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new MapNodeException("Percentile must be between 0 and 100");
+        }
+
+        long[] histogram = getLatencyHistogram(operation);
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; ++i) {
+            seen += histogram[i];
+            if (seen >= rank && seen > 0) {
+                return i == histogram.length - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the histogram of the number of segments of the paths
+     * that were read, set or removed. Element i is the number of
+     * paths with i segments; the last element also counts all the
+     * longer paths.
+     *
+     * @return
+     */
+    public long[] getDepthHistogram() {
+        return sums(depths);
+    }
+
+    /**
+     * Returns the number of values that were found, but could not be
+     * converted by getInteger(), getDouble(), getBoolean(), getAs(), ...
+     *
+     * @return
+     */
+    public long getConverterFailures() {
+        return converterFailures.sum();
+    }
+
+    /**
+     * Returns the number of path operations that were not counted
+     * for the hottest paths, because maxPaths paths were already tracked.
+     *
+     * @return
+     */
+    public long getUntrackedPathCount() {
+        return untrackedPaths.sum();
+    }
+
+    /**
+     * Returns the (at most) n most used paths with the number of
+     * times they were read, set or removed, most used first.
+     *
+     * @param n
+     * @return
+     */
+    public List<Map.Entry<String, Long>> getHottestPaths(int n) {
+        List<Map.Entry<String, Long>> out = new ArrayList<Map.Entry<String, Long>>(paths.size());
+        for (Map.Entry<String, LongAdder> entry : paths.entrySet()) {
+            out.add(new AbstractMap.SimpleImmutableEntry<String, Long>(entry.getKey(), entry.getValue().sum()));
+        }
+
+        Collections.sort(out, new Comparator<Map.Entry<String, Long>>() {
+
+            @Override
+            public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                return Long.compare(o2.getValue(), o1.getValue());
+            }
+        });
+        return out.size() > n ? new ArrayList<Map.Entry<String, Long>>(out.subList(0, Math.max(n, 0))) : out;
+    }
+
+    /**
+     * Sets every counter back to 0 and forgets the tracked paths.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i].reset();
+            totalTimes[i].reset();
+            for (LongAdder adder : latencies[i]) {
+                adder.reset();
+            }
+        }
+        for (LongAdder adder : depths) {
+            adder.reset();
+        }
+        converterFailures.reset();
+        untrackedPaths.reset();
+        paths.clear();
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] out = new long[adders.length];
+        for (int i = 0; i < adders.length; ++i) {
+            out[i] = adders[i].sum();
+        }
+        return out;
+    }
+
+    /**
+     * Returns a short summary of the counts and average times.
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("MapNodeMetrics{");
+        for (Operation operation : Operation.values()) {
+            if (operation.ordinal() > 0) {
+                sb.append(", ");
+            }
+            sb.append(operation).append('=').append(getCount(operation)).append(" (avg ").append((long) getAverageTime(operation)).append("ns)");
+        }
+        return sb.append(", converterFailures=").append(getConverterFailures()).append('}').toString();
+    }
+}
@@ -1,5 +1,7 @@
 package com.yetanotherx.mapnode;
 
+import com.yetanotherx.mapnode.converter.ConverterRegistry;
+
 /**
  * Options container class. This provides getters/setters for
  * various options that configure MapNode. The setters return
@@ -13,6 +15,14 @@ public class MapNodeOptions implements Cloneable {
     protected boolean returnNull = true;
     protected boolean returnEmpty = true;
     protected String separatorChar = ".";
+    protected int cacheSize = 0;
+    protected boolean lazyLists = false;
+    protected boolean memoizeLists = false;
+    protected boolean cacheHashes = false;
+    protected KeyPool keyPool = null;
+    protected boolean compactMaps = false;
+    protected ConverterRegistry converterRegistry = ConverterRegistry.getDefault();
+    protected MapNodeMetrics metrics = null;
 
     /**
      * Whether or not getString()/getInteger()/etc should
@@ -63,13 +73,13 @@ public class MapNodeOptions implements Cloneable {
     /**
      * Sets the separator string for node syntax. Defaults to ., 
      * but can be changed to any 1-character string. If a string
-     * is passed with length > 1, it throws a MapNodeException.
+     * is passed with length != 1, it throws a MapNodeException.
      * 
      * @throws MapNodeException
      */
     public MapNodeOptions setSeparatorChar(String separatorChar) {
-        if (separatorChar.length() > 1) {
-            throw new MapNodeException("Separator character can only be 1 character long.");
+        if (separatorChar.length() != 1) {
+            throw new MapNodeException("Separator character must be exactly 1 character long.");
         }
         this.separatorChar = separatorChar;
         return this;
@@ -84,6 +94,177 @@ public class MapNodeOptions implements Cloneable {
         return this;
     }
 
+    /**
+     * Maximum number of resolved paths each MapNode keeps
+     * in its path cache. Defaults to 0, which disables the cache.
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Sets the maximum number of resolved paths each MapNode
+     * keeps in its path cache. 0 disables the cache. If a negative
+     * size is passed, it throws a MapNodeException.
+     * 
+     * @throws MapNodeException
+     */
+    public MapNodeOptions setCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new MapNodeException("Cache size cannot be negative.");
+        }
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    /**
+     * Whether or not getIntegerList()/getStringList()/etc
+     * should return read-only views that convert each value
+     * when it is read, instead of converted copies.
+     */
+    public boolean shouldReturnLazyLists() {
+        return lazyLists;
+    }
+
+    /**
+     * Sets whether or not getIntegerList()/getStringList()/etc
+     * should return read-only views that convert each value
+     * when it is read, instead of converted copies. Views don't
+     * copy the list, so they are cheap to get even for large
+     * lists, but they can't be modified.
+     */
+    public MapNodeOptions setLazyLists(boolean doLazyLists) {
+        this.lazyLists = doLazyLists;
+        return this;
+    }
+
+    /**
+     * Whether or not the views returned when lazy lists are
+     * enabled keep each value after converting it once.
+     */
+    public boolean shouldMemoizeLazyLists() {
+        return memoizeLists;
+    }
+
+    /**
+     * Sets whether or not the views returned when lazy lists are
+     * enabled keep each value after converting it once, so values
+     * that are read many times are only converted once. A memoized
+     * view does not see changes made to the list after it was first
+     * read, so this should only be used for lists that are not
+     * modified anymore. Has no effect unless lazy lists are enabled.
+     */
+    public MapNodeOptions setMemoizeLazyLists(boolean doMemoize) {
+        this.memoizeLists = doMemoize;
+        return this;
+    }
+
+    /**
+     * Whether or not the node remembers the hash codes of
+     * its maps and lists between calls to hashCode().
+     */
+    public boolean shouldCacheHashes() {
+        return cacheHashes;
+    }
+
+    /**
+     * Sets whether or not the node remembers the hash codes of
+     * its maps and lists between calls to hashCode(). Only the
+     * maps and lists on the path of a setObject()/removeObject()
+     * call have to be hashed again, so hashCode() is cheap for
+     * large trees that are used as keys. Changes made to the maps
+     * directly are not noticed (see MapNode.invalidateHashes()).
+     */
+    public MapNodeOptions setCacheHashes(boolean doCacheHashes) {
+        this.cacheHashes = doCacheHashes;
+        return this;
+    }
+
+    /**
+     * Pool used to share the keys of the maps, or null if keys
+     * are not pooled. Defaults to null.
+     */
+    public KeyPool getKeyPool() {
+        return keyPool;
+    }
+
+    /**
+     * Sets the pool used to share the keys of the maps. If set,
+     * keys are replaced by their pooled Strings when a document
+     * is loaded and when a value is set, so large trees
+     * with many repeated keys take less memory. Use
+     * KeyPool.getGlobal() to share keys between all nodes.
+     * 
+     * Keys cannot be replaced in place, so a map passed to
+     * setObject() (or a cursor or batch) that has keys to replace
+     * is stored as a new map with the pooled keys (see
+     * KeyPool.internKeys()). Later changes to the caller's map
+     * are then not seen by the node; use getObject() to get the
+     * map that was stored.
+     */
+    public MapNodeOptions setKeyPool(KeyPool keyPool) {
+        this.keyPool = keyPool;
+        return this;
+    }
+
+    /**
+     * Whether or not loadYaml() and setObject() create
+     * CompactMaps instead of LinkedHashMaps/HashMaps.
+     */
+    public boolean shouldUseCompactMaps() {
+        return compactMaps;
+    }
+
+    /**
+     * Sets whether or not loadYaml() and setObject() create
+     * CompactMaps instead of LinkedHashMaps/HashMaps. CompactMaps
+     * take much less memory for maps with only a few keys, which
+     * most maps in a large document are.
+     */
+    public MapNodeOptions setCompactMaps(boolean doCompactMaps) {
+        this.compactMaps = doCompactMaps;
+        return this;
+    }
+
+    /**
+     * Registry used to find the converter for a type. Defaults to
+     * the shared ConverterRegistry.getDefault().
+     */
+    public ConverterRegistry getConverterRegistry() {
+        return converterRegistry;
+    }
+
+    /**
+     * Sets the registry used to find the converter for a type. It
+     * is used by getAs() and getListOf(), and also by getInteger(),
+     * getDouble(), getBoolean() and the get*List() getters when it
+     * has a converter registered for their type. The primitive
+     * getters (getInt(), getDouble(String, double), ...) always use
+     * the built-in conversion.
+     */
+    public MapNodeOptions setConverterRegistry(ConverterRegistry converterRegistry) {
+        this.converterRegistry = converterRegistry;
+        return this;
+    }
+
+    /**
+     * Metrics the operations are recorded in, or null if
+     * they are not recorded. Defaults to null.
+     */
+    public MapNodeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics the operations of the node (and of its
+     * sub-nodes) are recorded in. Set to null to stop recording,
+     * which leaves no overhead besides a null check.
+     */
+    public MapNodeOptions setMetrics(MapNodeMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     /**
      * Clones the options. This clone method is guaranteed to work.
      * 
@@ -91,11 +272,17 @@ public class MapNodeOptions implements Cloneable {
      */
     @Override
     public Object clone() {
-        return new MapNodeOptions().setReturnEmpty(returnEmpty).setReturnNull(returnNull).setSeparatorChar(separatorChar);
+        return new MapNodeOptions().setReturnEmpty(returnEmpty).setReturnNull(returnNull).setSeparatorChar(separatorChar).setCacheSize(cacheSize).setLazyLists(lazyLists).setMemoizeLazyLists(memoizeLists).setCacheHashes(cacheHashes).setKeyPool(keyPool).setCompactMaps(compactMaps).setConverterRegistry(converterRegistry).setMetrics(metrics);
     }
 
     /**
      * Checks whether or not two option instances are identical.
+     * Options that only affect performance (such as the cache
+     * size, lazy lists and their memoization, hash caching, the
+     * key pool, compact maps or metrics) are not compared. The
+     * converter registry is compared, since it changes what the
+     * getters return; registries are equal only if they are the
+     * same instance.
      * 
      * @param obj
      * @return 
@@ -119,6 +306,9 @@ public class MapNodeOptions implements Cloneable {
         if ((this.separatorChar == null) ? (other.separatorChar != null) : !this.separatorChar.equals(other.separatorChar)) {
             return false;
         }
+        if (this.converterRegistry != other.converterRegistry && (this.converterRegistry == null || !this.converterRegistry.equals(other.converterRegistry))) {
+            return false;
+        }
         return true;
     }
 
@@ -126,6 +316,8 @@ public class MapNodeOptions implements Cloneable {
      * Gets a unique hashcode for this specific set of options.
      * The hash codes for two different instances with identical
      * options will be the same.
+     * The converter registry is left out, since registries
+     * only have an identity hash code.
      * 
      * @return 
      */
@@ -0,0 +1,234 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * List of changes that turn one MapNode tree into another, created
+ * by MapNode.diff() and replayed with MapNode.apply().
+ *
+ * Each operation adds, removes or replaces the value at one path. The
+ * diff walks both trees at once and skips every pair of maps or lists
+ * that are the same object, so diffing two snapshots that share most of
+ * their tree (see MapNodeSnapshot) only looks at the parts that differ.
+ *
+ * Lists of the same size are compared element by element. A list that
+ * changed size is replaced as a whole, as removing or adding elements
+ * one at a time would shift the indexes of the following operations.
+ *
+ * The values in the operations are not copied: they are the objects of
+ * the tree the diff was made against. apply() stores deep copies of
+ * them instead (see MapNodeCopier.copy(Object, MapNode)), so the node
+ * does not share any map or list with that tree, and gets maps of its
+ * own kind even if the tree was a snapshot.
+ *
+ * @author yetanotherx
+ */
+public final class MapNodePatch {
+
+    /**
+     * Kind of change made by an operation.
+     */
+    public enum Type {
+
+        ADD, REMOVE, REPLACE
+    }
+
+    /**
+     * A single change: the value at the path is added,
+     * removed or replaced.
+     */
+    public static final class Operation {
+
+        private final Type type;
+        private final MapNodePath path;
+        private final Object value;
+
+        public Operation(Type type, MapNodePath path, Object value) {
+            this.type = type;
+            this.path = path;
+            this.value = value;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public MapNodePath getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the new value, or null for REMOVE operations.
+         *
+         * @return
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Operation)) {
+                return false;
+            }
+
+            final Operation other = (Operation) obj;
+            return type == other.type && path.equals(other.path)
+                    && (value == null ? other.value == null : value.equals(other.value));
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 5;
+            hash = 41 * hash + type.hashCode();
+            hash = 41 * hash + path.hashCode();
+            hash = 41 * hash + (value != null ? value.hashCode() : 0);
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return type == Type.REMOVE ? type + " " + path : type + " " + path + " = " + value;
+        }
+    }
+    private final List<Operation> operations;
+
+    /**
+     * Creates a patch with the given operations.
+     *
+     * @param operations
+     */
+    public MapNodePatch(List<Operation> operations) {
+        this.operations = Collections.unmodifiableList(new ArrayList<Operation>(operations));
+    }
+
+    /**
+     * Computes the operations that turn the from map into the to map.
+     * Paths are joined with the given separator.
+     *
+     * @param from
+     * @param to
+     * @param separator
+     * @return
+     */
+    public static MapNodePatch diff(Map<String, Object> from, Map<String, Object> to, String separator) {
+        List<Operation> out = new ArrayList<Operation>();
+        if (from != to) {
+            diffMaps(from, to, new ArrayList<String>(), separator, out);
+        }
+        return new MapNodePatch(out);
+    }
+
+    private static void diffMaps(Map<?, ?> from, Map<?, ?> to, List<String> path, String separator, List<Operation> out) {
+        // Keys are looked up as they are (YAML keys can be Integers,
+        // ...), and only turned into strings for the paths
+        for (Map.Entry<?, ?> entry : from.entrySet()) {
+            if (!to.containsKey(entry.getKey())) {
+                path.add(String.valueOf(entry.getKey()));
+                out.add(new Operation(Type.REMOVE, toPath(path, separator), null));
+                path.remove(path.size() - 1);
+            }
+        }
+
+        for (Map.Entry<?, ?> entry : to.entrySet()) {
+            Object key = entry.getKey();
+            path.add(String.valueOf(key));
+            if (!from.containsKey(key)) {
+                out.add(new Operation(Type.ADD, toPath(path, separator), entry.getValue()));
+            } else {
+                diffValues(from.get(key), entry.getValue(), path, separator, out);
+            }
+            path.remove(path.size() - 1);
+        }
+    }
+
+    private static void diffValues(Object from, Object to, List<String> path, String separator, List<Operation> out) {
+        if (from == to) {
+            return;
+        }
+
+        if (from instanceof Map && to instanceof Map) {
+            diffMaps((Map<?, ?>) from, (Map<?, ?>) to, path, separator, out);
+        } else if (from instanceof List && to instanceof List && ((List<?>) from).size() == ((List<?>) to).size()) {
+            List<?> fromList = (List<?>) from;
+            List<?> toList = (List<?>) to;
+            for (int i = 0; i < fromList.size(); ++i) {
+                path.add(Integer.toString(i));
+                diffValues(fromList.get(i), toList.get(i), path, separator, out);
+                path.remove(path.size() - 1);
+            }
+        } else if (from == null || !from.equals(to)) {
+            out.add(new Operation(Type.REPLACE, toPath(path, separator), to));
+        }
+    }
+
+    private static MapNodePath toPath(List<String> path, String separator) {
+        return MapNodePath.of(separator, path.toArray(new String[path.size()]));
+    }
+
+    /**
+     * Applies the operations to the given node, in order. Maps and
+     * lists are copied into the node, so later changes to the node
+     * do not affect the tree the patch was made from, or the other way
+     * around.
+     *
+     * @param node
+     */
+    public void apply(MapNode node) {
+        for (Operation operation : operations) {
+            if (operation.type == Type.REMOVE) {
+                node.removeObject(operation.path);
+            } else {
+                node.setObject(operation.path, MapNodeCopier.copy(operation.value, node));
+            }
+        }
+    }
+
+    /**
+     * Returns the operations of this patch. The list cannot be modified.
+     *
+     * @return
+     */
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Returns the number of operations.
+     *
+     * @return
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * Returns true if the patch does not change anything.
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof MapNodePatch)) {
+            return false;
+        }
+        return operations.equals(((MapNodePatch) obj).operations);
+    }
+
+    @Override
+    public int hashCode() {
+        return operations.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return operations.toString();
+    }
+}
@@ -0,0 +1,204 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A precompiled node path. Parsing a path string (splitting it
+ * on the separator character) only has to happen once, so paths
+ * that are read over and over again can be compiled ahead of time
+ * and passed to the MapNode getters/setters directly:
+ *
+ * MapNodePath path = MapNodePath.compile("base.core.test", node.getOptions());
+ * String out = node.getString(path);
+ *
+ * A compiled path is immutable, and can be shared between threads
+ * and between MapNode instances.
+ *
+ * @author yetanotherx
+ */
+public final class MapNodePath {
+
+    /**
+     * Path that points to the base map itself.
+     */
+    public static final MapNodePath ROOT = new MapNodePath("", new String[0], null);
+    protected final String path;
+    protected final String[] segments;
+    /**
+     * Separator the path string splits on to give the segments,
+     * or null if splitting it would give other segments (see of()).
+     */
+    protected final String separator;
+
+    protected MapNodePath(String path, String[] segments, String separator) {
+        this.path = path;
+        this.segments = segments;
+        this.separator = separator;
+    }
+
+    /**
+     * Compiles the given path using the separator character
+     * of the given options. If path == null, it will return null.
+     *
+     * @param path
+     * @param options
+     * @return
+     */
+    public static MapNodePath compile(String path, MapNodeOptions options) {
+        return compile(path, options.separatorChar);
+    }
+
+    /**
+     * Compiles the given path using the given separator string.
+     * The path is split the same way String.split() would, so
+     * trailing empty segments are dropped. If path == null, it
+     * will return null, and if path == "", it will return ROOT.
+     * If the separator is empty, it throws a MapNodeException.
+     *
+     * @throws MapNodeException
+     * @param path
+     * @param separator
+     * @return
+     */
+    public static MapNodePath compile(String path, String separator) {
+        if (path == null) {
+            return null;
+        }
+        if (separator.length() == 0) {
+            throw new MapNodeException("Separator cannot be empty");
+        }
+        if (path.length() == 0) {
+            return ROOT;
+        }
+
+        List<String> split = new ArrayList<String>();
+        int start = 0;
+        int index = path.indexOf(separator);
+        while (index != -1) {
+            split.add(path.substring(start, index));
+            start = index + separator.length();
+            index = path.indexOf(separator, start);
+        }
+        split.add(path.substring(start));
+
+        int size = split.size();
+        while (size > 0 && split.get(size - 1).length() == 0) {
+            --size;
+        }
+
+        return new MapNodePath(path, split.subList(0, size).toArray(new String[size]), separator);
+    }
+
+    /**
+     * Creates a path out of already-split segments.
+     *
+     * @param separator
+     * @param segments
+     * @return
+     */
+    public static MapNodePath of(String separator, String... segments) {
+        StringBuilder sb = new StringBuilder();
+        boolean splits = segments.length == 0 || segments[segments.length - 1].length() != 0;
+        for (int i = 0; i < segments.length; ++i) {
+            if (i != 0) {
+                sb.append(separator);
+            }
+            sb.append(segments[i]);
+            if (segments[i].contains(separator)) {
+                splits = false;
+            }
+        }
+        return new MapNodePath(sb.toString(), segments.clone(), splits ? separator : null);
+    }
+
+    /**
+     * Returns the path string if compiling it with the given separator
+     * gives this path, or null if it does not (such as a path made
+     * with of() out of segments that contain the separator). Used
+     * to share cache entries between path strings and compiled paths.
+     *
+     * @param separator
+     * @return
+     */
+    protected String getKey(String separator) {
+        return separator.equals(this.separator) ? path : null;
+    }
+
+    /**
+     * Returns the original path string.
+     *
+     * @return
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the number of segments in this path.
+     *
+     * @return
+     */
+    public int size() {
+        return segments.length;
+    }
+
+    /**
+     * Returns the segment at the given index.
+     *
+     * @param index
+     * @return
+     */
+    public String getSegment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * Returns true if this path points to the base map itself.
+     *
+     * @return
+     */
+    public boolean isRoot() {
+        return segments.length == 0;
+    }
+
+    /**
+     * Checks whether or not two paths have the same segments.
+     *
+     * @param obj
+     * @return
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (!(obj instanceof MapNodePath)) {
+            return false;
+        }
+
+        final MapNodePath other = (MapNodePath) obj;
+        return Arrays.equals(this.segments, other.segments);
+    }
+
+    /**
+     * Gets the hashcode of the path based off its segments.
+     *
+     * @return
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.segments);
+    }
+
+    /**
+     * Returns the original path string.
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return path;
+    }
+}
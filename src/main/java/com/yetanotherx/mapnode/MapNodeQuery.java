@@ -0,0 +1,438 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A precompiled path query. Queries are written like paths, but a
+ * segment can also be one of:
+ *
+ * *     any single key of a map, or any element of a list
+ * **    any number of keys (including none)
+ * [a:b] the elements of a list from index a up to (but not including)
+ *       index b. Either end can be left out: [2:] is every element
+ *       from the third on, and [:] every element.
+ *
+ * For example "servers.*.port" matches the port of every server, and
+ * "plugins.**.enabled" the enabled key at any depth under plugins.
+ *
+ * MapNodeQuery query = MapNodeQuery.compile("servers.*.port", node.getOptions());
+ * for (Iterator<MapNodeQuery.Match> it = query.iterator(node); it.hasNext();) {
+ *     MapNodeQuery.Match match = it.next();
+ *     ...
+ * }
+ *
+ * The matches are found lazily while iterating, depth first, in the
+ * iteration order of the maps, so stopping after the first few matches
+ * does not walk the rest of the tree. Keys without wildcards are looked
+ * up directly, like getObject() does. Null values are never matched.
+ * Maps and lists that contain themselves are not walked into again.
+ * Each path is matched once, even if a query with several ** segments
+ * can match it in more than one way (such as "**.*.**", where either
+ * ** can take the extra keys); such queries remember the paths they
+ * matched while iterating.
+ * Modifying the tree while iterating over matches has the same effect
+ * as modifying a map while iterating over it.
+ *
+ * A compiled query is immutable, and can be shared between threads
+ * and between MapNode instances.
+ *
+ * @author yetanotherx
+ */
+public final class MapNodeQuery {
+
+    /**
+     * A value found by a query, with its path from the root.
+     */
+    public static final class Match {
+
+        private final Step step;
+        private final String separator;
+        private MapNodePath path;
+
+        Match(Step step, String separator) {
+            this.step = step;
+            this.separator = separator;
+        }
+
+        /**
+         * Returns the path of the value. The path is only built
+         * when it is first asked for.
+         *
+         * @return
+         */
+        public MapNodePath getPath() {
+            if (path == null) {
+                List<String> keys = new ArrayList<String>();
+                for (Step s = step; s.parent != null; s = s.parent) {
+                    keys.add(s.key);
+                }
+                Collections.reverse(keys);
+                path = MapNodePath.of(separator, keys.toArray(new String[keys.size()]));
+            }
+            return path;
+        }
+
+        /**
+         * Returns the value.
+         *
+         * @return
+         */
+        public Object getValue() {
+            return step.value;
+        }
+
+        @Override
+        public String toString() {
+            return getPath() + "=" + getValue();
+        }
+    }
+    private static final int LITERAL = 0;
+    private static final int ANY = 1;
+    private static final int ANY_DEPTH = 2;
+    private static final int RANGE = 3;
+    private final String query;
+    private final String separator;
+    private final String[] segments;
+    private final int[] kinds;
+    private final int[] from;
+    private final int[] to;
+    private final boolean unique;
+
+    private MapNodeQuery(String query, String separator, List<String> segments) {
+        this.query = query;
+        this.separator = separator;
+        this.segments = segments.toArray(new String[segments.size()]);
+        this.kinds = new int[segments.size()];
+        this.from = new int[segments.size()];
+        this.to = new int[segments.size()];
+
+        int anyDepth = 0;
+        for (int i = 0; i < this.segments.length; ++i) {
+            String segment = this.segments[i];
+            if (segment.equals("*")) {
+                kinds[i] = ANY;
+            } else if (segment.equals("**")) {
+                kinds[i] = ANY_DEPTH;
+                ++anyDepth;
+            } else if (segment.startsWith("[") && segment.endsWith("]")) {
+                kinds[i] = RANGE;
+                parseRange(i, segment);
+            } else {
+                kinds[i] = LITERAL;
+            }
+        }
+        // With a single **, the length of a path decides how many
+        // keys it takes, so every path can only be matched once
+        this.unique = anyDepth < 2;
+    }
+
+    private void parseRange(int i, String segment) {
+        int colon = segment.indexOf(':');
+        if (colon == -1) {
+            throw new MapNodeException("Invalid range " + segment + " in query " + query + ", expected [from:to]");
+        }
+
+        String start = segment.substring(1, colon).trim();
+        String end = segment.substring(colon + 1, segment.length() - 1).trim();
+        from[i] = start.length() == 0 ? 0 : MapNode.parseIndex(start);
+        to[i] = end.length() == 0 ? Integer.MAX_VALUE : MapNode.parseIndex(end);
+        if (from[i] < 0 || to[i] < 0) {
+            throw new MapNodeException("Invalid range " + segment + " in query " + query + ", expected [from:to]");
+        }
+    }
+
+    /**
+     * Compiles the given query using the separator character of the
+     * given options. If the query has an invalid range, it throws a
+     * MapNodeException. If query == null, it will return null.
+     *
+     * @throws MapNodeException
+     * @param query
+     * @param options
+     * @return
+     */
+    public static MapNodeQuery compile(String query, MapNodeOptions options) {
+        return compile(query, options.separatorChar);
+    }
+
+    /**
+     * Compiles the given query using the given separator string.
+     * The query is split like a path (see MapNodePath.compile()),
+     * and several ** segments in a row are merged into one.
+     *
+     * @throws MapNodeException
+     * @param query
+     * @param separator
+     * @return
+     */
+    public static MapNodeQuery compile(String query, String separator) {
+        if (query == null) {
+            return null;
+        }
+
+        List<String> segments = new ArrayList<String>();
+        for (String segment : MapNodePath.compile(query, separator).segments) {
+            if (!(segment.equals("**") && !segments.isEmpty() && segments.get(segments.size() - 1).equals("**"))) {
+                segments.add(segment);
+            }
+        }
+        return new MapNodeQuery(query, separator, segments);
+    }
+
+    /**
+     * Returns an iterator over the matches of the query in the given
+     * node. Matches are found while iterating (see the class description).
+     *
+     * @param node
+     * @return
+     */
+    public Iterator<Match> iterator(MapNode node) {
+        return new MatchIterator(node, node.base);
+    }
+
+    /**
+     * Returns a sequential stream of the matches of the
+     * query in the given node, found while it is consumed.
+     *
+     * @param node
+     * @return
+     */
+    public Stream<Match> stream(MapNode node) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(node), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Returns all the matches of the query in the given node.
+     *
+     * @param node
+     * @return
+     */
+    public List<Match> getMatches(MapNode node) {
+        List<Match> out = new ArrayList<Match>();
+        for (Iterator<Match> it = iterator(node); it.hasNext();) {
+            out.add(it.next());
+        }
+        return out;
+    }
+
+    /**
+     * Returns the original query string.
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return query;
+    }
+
+    /**
+     * A value reached while walking the tree: the value, the index of
+     * the next segment to match, and the step it was reached from.
+     */
+    private static final class Step {
+
+        final Step parent;
+        final String key;
+        final Object value;
+        final int index;
+
+        Step(Step parent, String key, Object value, int index) {
+            this.parent = parent;
+            this.key = key;
+            this.value = value;
+            this.index = index;
+        }
+
+        boolean isAncestor(Object container) {
+            for (Step s = this; s != null; s = s.parent) {
+                if (s.value == container) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Depth-first walk over the steps of the query. The stack holds
+     * one iterator per step being expanded, so only the children of
+     * the maps and lists on the current path are pending at any time.
+     */
+    private final class MatchIterator implements Iterator<Match> {
+
+        private final MapNode node;
+        private final Deque<Iterator<Step>> stack = new ArrayDeque<Iterator<Step>>();
+        private final Set<MapNodePath> matched = unique ? null : new HashSet<MapNodePath>();
+        private Match next;
+
+        MatchIterator(MapNode node, Object root) {
+            this.node = node;
+            if (root != null) {
+                stack.push(Collections.singletonList(new Step(null, null, root, 0)).iterator());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !stack.isEmpty()) {
+                Iterator<Step> top = stack.peek();
+                if (!top.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+
+                Step step = top.next();
+                if (step.index == segments.length) {
+                    Match match = new Match(step, separator);
+                    if (matched == null || matched.add(match.getPath())) {
+                        next = match;
+                    }
+                } else {
+                    Iterator<Step> expanded = expand(step);
+                    if (expanded != null) {
+                        stack.push(expanded);
+                    }
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Match next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Match out = next;
+            next = null;
+            return out;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Matches cannot be removed");
+        }
+
+        /**
+         * Returns the steps that follow from matching the next
+         * segment at the given step, or null if there are none.
+         */
+        private Iterator<Step> expand(Step step) {
+            int index = step.index;
+            switch (kinds[index]) {
+                case LITERAL:
+                    Object child = node.getChild(step.value, segments[index]);
+                    if (child == null) {
+                        return null;
+                    }
+                    return Collections.singletonList(new Step(step, segments[index], child, index + 1)).iterator();
+                case ANY:
+                    return children(step, index + 1, 0, Integer.MAX_VALUE, null);
+                case RANGE:
+                    if (!(step.value instanceof List)) {
+                        return null;
+                    }
+                    return children(step, index + 1, from[index], to[index], null);
+                default:
+                    // ** matches nothing at this step first, then
+                    // any of the children with ** still to match
+                    Step self = new Step(step.parent, step.key, step.value, index + 1);
+                    return children(step, index, 0, Integer.MAX_VALUE, self);
+            }
+        }
+
+        private Iterator<Step> children(Step step, int index, int start, int end, Step first) {
+            if (step.value instanceof Map) {
+                return new ChildIterator(step, index, true, ((Map<?, ?>) step.value).entrySet().iterator(), 0, Integer.MAX_VALUE, first);
+            } else if (step.value instanceof List) {
+                List<?> list = (List<?>) step.value;
+                if (start >= list.size()) {
+                    return first != null ? Collections.singletonList(first).iterator() : null;
+                }
+                return new ChildIterator(step, index, false, start == 0 ? list.iterator() : list.listIterator(start), start, end, first);
+            }
+            return first != null ? Collections.singletonList(first).iterator() : null;
+        }
+    }
+
+    /**
+     * Turns the entries of a map, or the elements of a list from the
+     * given start index, into steps. Null values are skipped, and so
+     * are maps and lists that were already walked through on the way
+     * here when matching **.
+     */
+    private final class ChildIterator implements Iterator<Step> {
+
+        private final Step parent;
+        private final int index;
+        private final boolean map;
+        private final Iterator<?> children;
+        private final int end;
+        private int position;
+        private Step next;
+
+        ChildIterator(Step parent, int index, boolean map, Iterator<?> children, int start, int end, Step first) {
+            this.parent = parent;
+            this.index = index;
+            this.map = map;
+            this.children = children;
+            this.position = start;
+            this.end = end;
+            this.next = first;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && position < end && children.hasNext()) {
+                Object child = children.next();
+                String key;
+                if (map) {
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) child;
+                    key = String.valueOf(entry.getKey());
+                    child = entry.getValue();
+                } else {
+                    key = Integer.toString(position);
+                }
+                ++position;
+
+                if (child == null) {
+                    continue;
+                }
+                if (kinds[parent.index] == ANY_DEPTH && (child instanceof Map || child instanceof List) && parent.isAncestor(child)) {
+                    continue;
+                }
+                next = new Step(parent, key, child, index);
+            }
+            return next != null;
+        }
+
+        @Override
+        public Step next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Step out = next;
+            next = null;
+            return out;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
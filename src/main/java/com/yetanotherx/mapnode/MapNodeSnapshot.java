@@ -0,0 +1,341 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Immutable MapNode, returned by MapNode.snapshot(). Every map in the
+ * tree is a PersistentMap and every list is unmodifiable, so a snapshot
+ * can be handed to any number of threads without copying or locking.
+ *
+ * A snapshot is never modified. Instead, with() and without() return a
+ * new snapshot with the change applied. Only the maps on the path to the
+ * changed value are copied (and only a few small arrays of each of them,
+ * see PersistentMap); every other part of the tree is shared between the
+ * old and the new snapshot. Lists on the path are copied whole.
+ *
+ * The methods that would modify the node (setObject(), removeObject(),
+ * setBase(), setOptions(), reset() and the load methods) throw an
+ * UnsupportedOperationException.
+ *
+ * Maps in a snapshot do not keep the insertion order of the keys.
+ * Values other than maps and lists (Strings, numbers, ...) are not
+ * copied, so mutable values such as Dates are still shared.
+ *
+ * @author yetanotherx
+ */
+public class MapNodeSnapshot extends MapNode {
+
+    /**
+     * Creates a snapshot of an already frozen tree.
+     *
+     * @param base
+     * @param options
+     */
+    protected MapNodeSnapshot(PersistentMap base, MapNodeOptions options) {
+        super(base, options);
+    }
+
+    /**
+     * Returns a snapshot with the value at the given path set to the
+     * given value. The value is frozen first, so later changes to it
+     * are not seen by the snapshot. Missing maps along the path are
+     * created, like setObject() does. If the value cannot be set (the
+     * path goes through a list with an invalid index), or prop == null,
+     * this snapshot is returned.
+     *
+     * @param prop
+     * @param value
+     * @return
+     */
+    public MapNodeSnapshot with(String prop, Object value) {
+        if (prop == null) {
+            return this;
+        }
+        return with(MapNodePath.compile(prop, options), value);
+    }
+
+    /**
+     * Same as with(String, Object), but uses a precompiled path.
+     * If the path is the root path, the value has to be a Map,
+     * which becomes the base of the new snapshot.
+     *
+     * @param path
+     * @param value
+     * @return
+     */
+    public MapNodeSnapshot with(MapNodePath path, Object value) {
+        if (path == null) {
+            return this;
+        }
+
+        if (path.isRoot()) {
+            if (value instanceof Map) {
+                return new MapNodeSnapshot((PersistentMap) freeze(value), options);
+            }
+            return this;
+        }
+
+        Object out = with(base, path.segments, 0, freeze(value));
+        if (out == null || out == base) {
+            return this;
+        }
+        return new MapNodeSnapshot((PersistentMap) out, options);
+    }
+
+    /**
+     * Returns a snapshot without the value at the given path. If there
+     * is nothing at the path, or prop == null, this snapshot is returned.
+     * If prop == "", an empty snapshot is returned.
+     *
+     * @param prop
+     * @return
+     */
+    public MapNodeSnapshot without(String prop) {
+        if (prop == null) {
+            return this;
+        }
+        return without(MapNodePath.compile(prop, options));
+    }
+
+    /**
+     * Same as without(String), but uses a precompiled path.
+     *
+     * @param path
+     * @return
+     */
+    public MapNodeSnapshot without(MapNodePath path) {
+        if (path == null) {
+            return this;
+        }
+
+        if (path.isRoot()) {
+            return new MapNodeSnapshot(PersistentMap.EMPTY, options);
+        }
+
+        Object out = without(base, path.segments, 0);
+        if (out == null || out == base) {
+            return this;
+        }
+        return new MapNodeSnapshot((PersistentMap) out, options);
+    }
+
+    /**
+     * Returns a copy of the container with the value set at the
+     * remaining segments of the path, or null if it cannot be set.
+     * Anything that is not a map or a list is replaced by a new map.
+     *
+     * @param container
+     * @param segments
+     * @param index
+     * @param value
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected Object with(Object container, String[] segments, int index, Object value) {
+        String key = segments[index];
+        boolean last = index == segments.length - 1;
+
+        if (container instanceof List) {
+            List<Object> list = (List<Object>) container;
+            int position = parseIndex(key);
+            if (position < 0 || position > list.size()) {
+                return null;
+            }
+
+            Object old = position < list.size() ? list.get(position) : null;
+            Object child = last ? value : with(old, segments, index + 1, value);
+            if (child == null && !last) {
+                return null;
+            }
+            if (position < list.size() && child == old) {
+                return list;
+            }
+
+            List<Object> out = new ArrayList<Object>(list);
+            if (position < list.size()) {
+                out.set(position, child);
+            } else {
+                out.add(child);
+            }
+            return Collections.unmodifiableList(out);
+        }
+
+        PersistentMap map = container instanceof PersistentMap ? (PersistentMap) container : PersistentMap.EMPTY;
+        Object child = value;
+        if (!last) {
+            child = with(map.get(key), segments, index + 1, value);
+            if (child == null) {
+                return null;
+            }
+        }
+        return map.plus(key, child);
+    }
+
+    /**
+     * Returns a copy of the container without the value at the
+     * remaining segments of the path, or the container itself
+     * if there is nothing there.
+     *
+     * @param container
+     * @param segments
+     * @param index
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected Object without(Object container, String[] segments, int index) {
+        String key = segments[index];
+        boolean last = index == segments.length - 1;
+
+        if (container instanceof PersistentMap) {
+            PersistentMap map = (PersistentMap) container;
+            if (last) {
+                return map.minus(key);
+            }
+
+            Object old = map.get(key);
+            Object child = without(old, segments, index + 1);
+            return child == old ? map : map.plus(key, child);
+        } else if (container instanceof List) {
+            List<Object> list = (List<Object>) container;
+            int position = parseIndex(key);
+            if (position < 0 || position >= list.size()) {
+                return list;
+            }
+
+            Object old = list.get(position);
+            List<Object> out = new ArrayList<Object>(list);
+            if (last) {
+                out.remove(position);
+            } else {
+                Object child = without(old, segments, index + 1);
+                if (child == old) {
+                    return list;
+                }
+                out.set(position, child);
+            }
+            return Collections.unmodifiableList(out);
+        }
+        return container;
+    }
+
+    /**
+     * Returns a deep immutable copy of the value: maps become
+     * PersistentMaps and lists become unmodifiable lists. Any
+     * other value is returned as it is.
+     *
+     * @param value
+     * @return
+     */
+    protected static Object freeze(Object value) {
+        if (value instanceof Map) {
+            PersistentMap out = PersistentMap.EMPTY;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                out = out.plus(String.valueOf(entry.getKey()), freeze(entry.getValue()));
+            }
+            return out;
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            List<Object> out = new ArrayList<Object>(list.size());
+            for (Object element : list) {
+                out.add(freeze(element));
+            }
+            return Collections.unmodifiableList(out);
+        }
+        return value;
+    }
+
+    /**
+     * A snapshot never changes, so it is its own snapshot.
+     *
+     * @return
+     */
+    @Override
+    public MapNodeSnapshot snapshot() {
+        return this;
+    }
+
+    /**
+     * A snapshot never changes, so it does not need to be copied.
+     * Use MapNodeCopier.copy() on the base map to get a tree that
+     * can be modified.
+     *
+     * @return
+     */
+    @Override
+    public MapNodeSnapshot deepCopy() {
+        return this;
+    }
+
+    /**
+     * Same as deepCopy(), nothing is copied.
+     *
+     * @param executor
+     * @return
+     */
+    @Override
+    public MapNodeSnapshot deepCopy(ExecutorService executor) {
+        return this;
+    }
+
+    /**
+     * A snapshot never changes, so it does not need to be cloned.
+     *
+     * @return
+     */
+    @Override
+    public Object clone() {
+        return this;
+    }
+
+    @Override
+    protected Map<String, Object> newMap() {
+        return PersistentMap.EMPTY;
+    }
+
+    @Override
+    protected MapNode newNode(Map<String, Object> map) {
+        if (map instanceof PersistentMap) {
+            return new MapNodeSnapshot((PersistentMap) map, options);
+        }
+        return new MapNodeSnapshot((PersistentMap) freeze(map), options);
+    }
+
+    @Override
+    public void setBase(Map<String, Object> base) {
+        throw new UnsupportedOperationException("MapNodeSnapshot is immutable");
+    }
+
+    @Override
+    public void setOptions(MapNodeOptions props) {
+        throw new UnsupportedOperationException("MapNodeSnapshot is immutable");
+    }
+
+    @Override
+    public void setObject(String prop, Object value) {
+        throw new UnsupportedOperationException("MapNodeSnapshot is immutable, use with()");
+    }
+
+    @Override
+    public void setObject(MapNodePath path, Object value) {
+        throw new UnsupportedOperationException("MapNodeSnapshot is immutable, use with()");
+    }
+
+    @Override
+    public void removeObject(String prop) {
+        throw new UnsupportedOperationException("MapNodeSnapshot is immutable, use without()");
+    }
+
+    @Override
+    public void removeObject(MapNodePath path) {
+        throw new UnsupportedOperationException("MapNodeSnapshot is immutable, use without()");
+    }
+
+    @Override
+    public void reset() {
+        throw new UnsupportedOperationException("MapNodeSnapshot is immutable");
+    }
+}
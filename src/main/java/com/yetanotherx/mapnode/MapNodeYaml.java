@@ -0,0 +1,76 @@
+package com.yetanotherx.mapnode;
+
+import java.util.Map;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.representer.Representer;
+
+/**
+ * Holds the YAML configuration used by MapNode. The options are
+ * created once and never modified afterwards. A Yaml instance is not
+ * thread-safe, so every thread gets its own, which is then reused
+ * for every load and dump on that thread.
+ * 
+ * @author yetanotherx
+ */
+final class MapNodeYaml {
+
+    private static final DumperOptions OPTIONS = createOptions();
+    private static final ThreadLocal<Yaml> YAML = new ThreadLocal<Yaml>() {
+
+        @Override
+        protected Yaml initialValue() {
+            return new Yaml(OPTIONS);
+        }
+    };
+    private static final ThreadLocal<Yaml> COMPACT_YAML = new ThreadLocal<Yaml>() {
+
+        @Override
+        protected Yaml initialValue() {
+            return new Yaml(new CompactConstructor(), new Representer(), OPTIONS);
+        }
+    };
+
+    private MapNodeYaml() {
+    }
+
+    private static DumperOptions createOptions() {
+        DumperOptions yamlOpt = new DumperOptions();
+        yamlOpt.setIndent(4);
+        yamlOpt.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        return yamlOpt;
+    }
+
+    /**
+     * Returns the Yaml instance of the current thread.
+     * 
+     * @return 
+     */
+    static Yaml get() {
+        return YAML.get();
+    }
+
+    /**
+     * Returns the Yaml instance of the current thread that loads
+     * maps as CompactMaps if compact is true, or the usual one
+     * (which loads LinkedHashMaps) if it is false.
+     * 
+     * @param compact
+     * @return 
+     */
+    static Yaml get(boolean compact) {
+        return compact ? COMPACT_YAML.get() : YAML.get();
+    }
+
+    /**
+     * Constructor that creates CompactMaps for YAML mappings.
+     */
+    private static final class CompactConstructor extends Constructor {
+
+        @Override
+        protected Map<Object, Object> createDefaultMap() {
+            return new CompactMap<Object, Object>();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.yetanotherx.mapnode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable Map<String, Object>, stored as a hash array mapped trie.
+ * Instead of being modified, a new map is created with plus() or
+ * minus(). The new map shares every part of the trie that did not
+ * change with the old one, so an update only copies the few small
+ * arrays on the path to the changed key (at most 7 levels deep).
+ *
+ * The Map methods that modify the map (put(), remove(), clear(), ...)
+ * throw an UnsupportedOperationException. Null values are allowed,
+ * null keys are not. The iteration order is the order of the key
+ * hashes, not the insertion order.
+ *
+ * Since it implements equals() and hashCode() like every other Map,
+ * a PersistentMap is equal to a HashMap with the same entries.
+ *
+ * @author yetanotherx
+ */
+public final class PersistentMap extends AbstractMap<String, Object> {
+
+    /**
+     * The empty map.
+     */
+    public static final PersistentMap EMPTY = new PersistentMap(BitmapNode.EMPTY, 0);
+    private static final Object NOT_FOUND = new Object();
+    private final Node root;
+    private final int size;
+    private Set<Map.Entry<String, Object>> entrySet;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns a PersistentMap with the entries of the given map.
+     * The values are not copied. Keys that are not Strings
+     * are converted with String.valueOf().
+     *
+     * @param map
+     * @return
+     */
+    public static PersistentMap copyOf(Map<?, ?> map) {
+        if (map instanceof PersistentMap) {
+            return (PersistentMap) map;
+        }
+
+        Node root = BitmapNode.EMPTY;
+        int size = 0;
+        boolean[] added = new boolean[1];
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            added[0] = false;
+            root = root.put(0, hash(key), key, entry.getValue(), added);
+            if (added[0]) {
+                ++size;
+            }
+        }
+        return new PersistentMap(root, size);
+    }
+
+    /**
+     * Returns a map with the given key set to the given value. If the
+     * key is already set to the same value, this map is returned.
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public PersistentMap plus(String key, Object value) {
+        if (key == null) {
+            throw new NullPointerException("PersistentMap keys cannot be null");
+        }
+
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, hash(key), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the given key. If the key is not
+     * in the map, this map is returned.
+     *
+     * @param key
+     * @return
+     */
+    public PersistentMap minus(String key) {
+        if (key == null) {
+            return this;
+        }
+
+        Node newRoot = root.remove(0, hash(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        if (newRoot == null) {
+            return EMPTY;
+        }
+        return new PersistentMap(newRoot, size - 1);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        Object out = root.find(0, hash((String) key), (String) key);
+        return out == NOT_FOUND ? null : out;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        return root.find(0, hash((String) key), (String) key) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String, Object>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return new EntryIterator(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static Object[] removePair(Object[] array, int index) {
+        Object[] out = new Object[array.length - 2];
+        System.arraycopy(array, 0, out, 0, index);
+        System.arraycopy(array, index + 2, out, index, array.length - index - 2);
+        return out;
+    }
+
+    private static Object[] set(Object[] array, int index, Object value) {
+        Object[] out = array.clone();
+        out[index] = value;
+        return out;
+    }
+
+    /**
+     * A node of the trie. Both kinds of node keep their contents in an
+     * array of key/value pairs. In a BitmapNode, a pair with a null key
+     * holds a child node as its value.
+     */
+    private abstract static class Node {
+
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        abstract Object find(int shift, int hash, String key);
+
+        abstract Node put(int shift, int hash, String key, Object value, boolean[] added);
+
+        /**
+         * Returns the node without the key, this node if the
+         * key is not in it, or null if the node is now empty.
+         */
+        abstract Node remove(int shift, int hash, String key);
+    }
+
+    /**
+     * Node that uses five bits of the hash (starting at shift)
+     * to pick one of 32 slots. Only used slots are stored, in
+     * the order of their bits in the bitmap.
+     */
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+        final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, String key) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+
+            int index = index(bit);
+            Object k = array[index];
+            Object v = array[index + 1];
+            if (k == null) {
+                return ((Node) v).find(shift + 5, hash, key);
+            }
+            return key.equals(k) ? v : NOT_FOUND;
+        }
+
+        @Override
+        Node put(int shift, int hash, String key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            int index = index(bit);
+
+            if ((bitmap & bit) == 0) {
+                Object[] out = new Object[array.length + 2];
+                System.arraycopy(array, 0, out, 0, index);
+                out[index] = key;
+                out[index + 1] = value;
+                System.arraycopy(array, index, out, index + 2, array.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, out);
+            }
+
+            Object k = array[index];
+            Object v = array[index + 1];
+            if (k == null) {
+                Node child = ((Node) v).put(shift + 5, hash, key, value, added);
+                return child == v ? this : new BitmapNode(bitmap, set(array, index + 1, child));
+            }
+            if (key.equals(k)) {
+                return v == value ? this : new BitmapNode(bitmap, set(array, index + 1, value));
+            }
+
+            added[0] = true;
+            Node child = createNode(shift + 5, (String) k, v, hash, key, value);
+            Object[] out = set(array, index, null);
+            out[index + 1] = child;
+            return new BitmapNode(bitmap, out);
+        }
+
+        @Override
+        Node remove(int shift, int hash, String key) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int index = index(bit);
+            Object k = array[index];
+            Object v = array[index + 1];
+            if (k == null) {
+                Node child = ((Node) v).remove(shift + 5, hash, key);
+                if (child == v) {
+                    return this;
+                }
+                if (child != null) {
+                    return new BitmapNode(bitmap, set(array, index + 1, child));
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+
+            if (bitmap == bit) {
+                return null;
+            }
+            return new BitmapNode(bitmap ^ bit, removePair(array, index));
+        }
+
+        private static Node createNode(int shift, String key1, Object value1, int hash2, String key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+
+            boolean[] added = new boolean[1];
+            return EMPTY.put(shift, hash1, key1, value1, added).put(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * Node holding keys whose hashes are all the same.
+     */
+    private static final class CollisionNode extends Node {
+
+        final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int indexOf(String key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, String key) {
+            if (hash != this.hash) {
+                return NOT_FOUND;
+            }
+
+            int index = indexOf(key);
+            return index == -1 ? NOT_FOUND : array[index + 1];
+        }
+
+        @Override
+        Node put(int shift, int hash, String key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                BitmapNode wrapper = new BitmapNode(1 << ((this.hash >>> shift) & 31), new Object[]{null, this});
+                return wrapper.put(shift, hash, key, value, added);
+            }
+
+            int index = indexOf(key);
+            if (index != -1) {
+                return array[index + 1] == value ? this : new CollisionNode(hash, set(array, index + 1, value));
+            }
+
+            Object[] out = new Object[array.length + 2];
+            System.arraycopy(array, 0, out, 0, array.length);
+            out[array.length] = key;
+            out[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, out);
+        }
+
+        @Override
+        Node remove(int shift, int hash, String key) {
+            if (hash != this.hash) {
+                return this;
+            }
+
+            int index = indexOf(key);
+            if (index == -1) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            return new CollisionNode(hash, removePair(array, index));
+        }
+    }
+
+    /**
+     * Depth-first iterator over the entries of the trie.
+     */
+    private static final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private Object[][] arrays = new Object[8][];
+        private int[] indexes = new int[8];
+        private int depth = 0;
+        private Map.Entry<String, Object> next;
+
+        EntryIterator(Node root) {
+            arrays[0] = root.array;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int index = indexes[depth];
+                if (index >= array.length) {
+                    --depth;
+                    continue;
+                }
+
+                indexes[depth] = index + 2;
+                if (array[index] == null) {
+                    if (++depth == arrays.length) {
+                        arrays = Arrays.copyOf(arrays, depth * 2);
+                        indexes = Arrays.copyOf(indexes, depth * 2);
+                    }
+                    arrays[depth] = ((Node) array[index + 1]).array;
+                    indexes[depth] = 0;
+                } else {
+                    next = new AbstractMap.SimpleImmutableEntry<String, Object>((String) array[index], array[index + 1]);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            Map.Entry<String, Object> out = next;
+            advance();
+            return out;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("PersistentMap is immutable");
+        }
+    }
+}
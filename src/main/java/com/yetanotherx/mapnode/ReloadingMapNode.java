@@ -0,0 +1,377 @@
+package com.yetanotherx.mapnode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MapNode that is loaded from a YAML file, and loaded again every time
+ * the file changes. The file's directory is watched with a WatchService
+ * on a background thread, which also parses the new file. The new tree
+ * is then published by replacing the base map, which is a single
+ * volatile write, so a reader on another thread sees either the whole
+ * old tree or the whole new tree, and never has to wait for a reload.
+ *
+ * Editors and deploy tools often change a file in several steps, so a
+ * reload only starts once no change has been seen for the debounce
+ * time (100 milliseconds by default). If the new file cannot be read or
+ * parsed, the old tree is kept, and the error is passed to the listeners.
+ *
+ * The node has to be closed to stop watching the file:
+ *
+ * try (ReloadingMapNode node = new ReloadingMapNode(path)) {
+ *     ...
+ * }
+ *
+ * Changes made with setObject() are lost on the next reload.
+ *
+ * @author yetanotherx
+ */
+public class ReloadingMapNode extends MapNode implements Closeable {
+
+    /**
+     * Notified after each reload of a ReloadingMapNode. Listeners
+     * are called on the thread that did the reload, which is the
+     * watcher thread for automatic reloads. An exception thrown by a
+     * listener is passed to the uncaught exception handler of that
+     * thread; the other listeners are still called, and the reload
+     * itself does not fail.
+     */
+    public interface Listener {
+
+        /**
+         * Called after the new tree has been published.
+         *
+         * @param node
+         */
+        void reloaded(ReloadingMapNode node);
+
+        /**
+         * Called when the file could not be read or parsed.
+         * The node still holds the previous tree.
+         *
+         * @param node
+         * @param error
+         */
+        void reloadFailed(ReloadingMapNode node, Exception error);
+    }
+    protected final Path file;
+    protected final WatchService watcher;
+    protected final Thread thread;
+    protected final List<Listener> reloadListeners = new CopyOnWriteArrayList<Listener>();
+    /**
+     * Held for a whole reload, so two reloads do not overlap. The
+     * monitor of the node is only held while the new tree is swapped
+     * in, so readers that lock it are not blocked by the parsing.
+     */
+    protected final Object reloadLock = new Object();
+    protected volatile long debounce = 100;
+    protected volatile boolean closed = false;
+    protected final AtomicLong reloadCount = new AtomicLong();
+    protected final AtomicLong failureCount = new AtomicLong();
+    protected volatile long lastReloadLatency = 0;
+    protected volatile Exception lastError;
+
+    /**
+     * Loads the given file with a default set of options,
+     * and starts watching it.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public ReloadingMapNode(Path file) throws IOException {
+        this(file, new MapNodeOptions());
+    }
+
+    /**
+     * Loads the given file with the given set of options,
+     * and starts watching it.
+     *
+     * @param file
+     * @param options
+     * @throws IOException
+     */
+    public ReloadingMapNode(Path file, MapNodeOptions options) throws IOException {
+        super(null, options);
+        this.file = file.toAbsolutePath();
+        this.setBase(newMap());
+        this.loadYaml(this.file);
+
+        this.watcher = this.file.getFileSystem().newWatchService();
+        try {
+            this.file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            watcher.close();
+            throw e;
+        }
+
+        this.thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "MapNode reloader: " + this.file);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the watched file.
+     *
+     * @return
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns how long, in milliseconds, the file has to stay
+     * unchanged before it is reloaded.
+     *
+     * @return
+     */
+    public long getDebounce() {
+        return debounce;
+    }
+
+    /**
+     * Sets how long, in milliseconds, the file has to stay unchanged
+     * before it is reloaded. 0 reloads on every change.
+     *
+     * @param debounce
+     * @return
+     */
+    public ReloadingMapNode setDebounce(long debounce) {
+        if (debounce < 0) {
+            throw new MapNodeException("Debounce time cannot be negative");
+        }
+        this.debounce = debounce;
+        return this;
+    }
+
+    /**
+     * Adds a listener that is notified after each reload.
+     *
+     * @param listener
+     */
+    public void addListener(Listener listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener
+     */
+    public void removeListener(Listener listener) {
+        reloadListeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of successful reloads, not
+     * counting the initial load.
+     *
+     * @return
+     */
+    public long getReloadCount() {
+        return reloadCount.get();
+    }
+
+    /**
+     * Returns the number of reloads that failed.
+     *
+     * @return
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Returns the time, in nanoseconds, from the first change of the
+     * last reloaded file to the new tree being published. This includes
+     * the debounce time. The parsing time alone is in getLastLoadTime().
+     *
+     * @return
+     */
+    public long getLastReloadLatency() {
+        return lastReloadLatency;
+    }
+
+    /**
+     * Returns the error of the last failed reload, or null if
+     * the last reload was successful.
+     *
+     * @return
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Reads and parses the file on the calling thread, publishes the
+     * new tree and notifies the listeners. If the file cannot be read,
+     * the IOException is thrown; if it cannot be parsed, the parser's
+     * (runtime) exception is thrown. Either way the old tree is kept.
+     *
+     * @throws IOException
+     */
+    public void reload() throws IOException {
+        reload(System.nanoTime());
+    }
+
+    /**
+     * Reloads the file, measuring the latency from the given time.
+     *
+     * @param changed
+     * @throws IOException
+     */
+    protected void reload(long changed) throws IOException {
+        synchronized (reloadLock) {
+            try {
+                loadYaml(file);
+            } catch (IOException e) {
+                failed(e);
+                throw e;
+            } catch (RuntimeException e) {
+                failed(e);
+                throw e;
+            }
+
+            lastReloadLatency = System.nanoTime() - changed;
+            lastError = null;
+            reloadCount.incrementAndGet();
+            for (Listener listener : reloadListeners) {
+                try {
+                    listener.reloaded(this);
+                } catch (RuntimeException e) {
+                    report(e);
+                }
+            }
+        }
+    }
+
+    private void failed(Exception error) {
+        lastError = error;
+        failureCount.incrementAndGet();
+        for (Listener listener : reloadListeners) {
+            try {
+                listener.reloadFailed(this, error);
+            } catch (RuntimeException e) {
+                report(e);
+            }
+        }
+    }
+
+    /**
+     * Reports an exception thrown by a listener to the uncaught
+     * exception handler of the current thread.
+     *
+     * @param e
+     */
+    protected void report(RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    /**
+     * Publishes the parsed tree with a single swap of the base map.
+     * Unlike MapNode, an empty document does not clear the old base
+     * map (which readers may still be using), but replaces it with an
+     * empty one. A document that is not a map is rejected. Only the
+     * swap holds the monitor of the node (which a batch commit also
+     * locks); the parsing is done before it.
+     *
+     * @param output
+     * @param start
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void setLoaded(Object output, long start) {
+        if (output == null) {
+            output = newMap();
+        } else if (!(output instanceof Map)) {
+            throw new MapNodeException("YAML document in " + file + " is not a map");
+        }
+        output = internKeys(output);
+
+        synchronized (this) {
+            setBase((Map<String, Object>) output);
+        }
+        loaded(start);
+    }
+
+    /**
+     * Body of the watcher thread. Waits for changes to the file,
+     * then for the debounce time to pass, then reloads it.
+     */
+    protected void watch() {
+        while (!closed) {
+            try {
+                WatchKey key = watcher.take();
+                if (!isChanged(key)) {
+                    continue;
+                }
+
+                long changed = System.nanoTime();
+                long wait = debounce;
+                while (wait > 0 && (key = watcher.poll(wait, TimeUnit.MILLISECONDS)) != null) {
+                    isChanged(key);
+                }
+
+                if (!closed) {
+                    reload(changed);
+                }
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                // Counted and passed to the listeners by reload()
+            } catch (RuntimeException e) {
+                // Parse errors are counted and passed to the listeners by
+                // reload(), and listener errors must not stop the thread
+            }
+        }
+    }
+
+    /**
+     * Checks whether the events of the key include the watched
+     * file, and resets the key.
+     *
+     * @param key
+     * @return
+     */
+    private boolean isChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Stops watching the file. The node keeps the last loaded tree.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watcher.close();
+        thread.interrupt();
+    }
+}
@@ -7,6 +7,13 @@ package com.yetanotherx.mapnode.converter;
  */
 public class BooleanConverter implements BaseConverter<Boolean> {
 
+    /**
+     * Shared instance, used by getBoolean() and getBooleanList()
+     * unless another converter is registered for Boolean. Only
+     * "true" (in any case) converts to true.
+     */
+    public static final BooleanConverter INSTANCE = new BooleanConverter();
+
     /**
      * Converts an Object into a Boolean. If it cannot
      * be converted, it will return false.
@@ -19,6 +26,31 @@ public class BooleanConverter implements BaseConverter<Boolean> {
             return null;
         }
         
+        if( oldObject instanceof Boolean ) {
+            return (Boolean) oldObject;
+        }
+        
+        return Boolean.parseBoolean(oldObject.toString());
+    }
+    
+    /**
+     * Converts an Object into a boolean without boxing the result.
+     * If the object is null, it will return the given default value,
+     * and if it cannot be converted, it will return false.
+     * 
+     * @param oldObject
+     * @param defaultValue
+     * @return 
+     */
+    public static boolean toBoolean(Object oldObject, boolean defaultValue) {
+        if( oldObject == null ) {
+            return defaultValue;
+        }
+        
+        if( oldObject instanceof Boolean ) {
+            return ((Boolean) oldObject).booleanValue();
+        }
+        
         return Boolean.parseBoolean(oldObject.toString());
     }
     
@@ -1,6 +1,7 @@
 package com.yetanotherx.mapnode.converter;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Converts a Collection<Object> of values into a Collection<T> instance.
@@ -10,6 +11,21 @@ import java.util.Collection;
  */
 public class CollectionConverter<T> {
 
+    @SuppressWarnings("rawtypes")
+    private static final CollectionConverter INSTANCE = new CollectionConverter();
+
+    /**
+     * Returns the shared instance. The converter doesn't keep
+     * any state, so one instance can be used for every type.
+     * 
+     * @param <T>
+     * @return 
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CollectionConverter<T> getInstance() {
+        return (CollectionConverter<T>) INSTANCE;
+    }
+
     /**
      * Converts each value of the collection using the given converter.
      * 
@@ -22,4 +38,19 @@ public class CollectionConverter<T> {
             newColl.add(converter.transform(old));
         }
     }
+
+    /**
+     * Returns a read-only view of the list, converting each value
+     * with the given converter only when it is accessed (see
+     * ConvertedListView). If memoize is true, each value is
+     * converted at most once.
+     * 
+     * @param converter
+     * @param oldList
+     * @param memoize
+     * @return 
+     */
+    public List<T> view(BaseConverter<T> converter, List<Object> oldList, boolean memoize) {
+        return new ConvertedListView<T>(converter, oldList, memoize);
+    }
 }
@@ -0,0 +1,79 @@
+package com.yetanotherx.mapnode.converter;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only view of a List<Object> as a List<T>. Nothing is copied,
+ * each element is converted by the converter when it is accessed, so
+ * size() and reading a single element don't depend on the size of
+ * the list.
+ * 
+ * If memoize is set, each converted element is kept after its first
+ * access. Memoized views should only be used over lists that are
+ * not modified anymore, as changed elements would not be converted
+ * again. Views that are not memoized always see the backing list.
+ * 
+ * @author yetanotherx
+ * @param <T> 
+ */
+public class ConvertedListView<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final Object UNSET = new Object();
+    protected final BaseConverter<T> converter;
+    protected final List<Object> source;
+    protected final boolean memoize;
+    protected Object[] converted;
+
+    /**
+     * Creates a view converting the elements of the source
+     * list with the given converter.
+     * 
+     * @param converter
+     * @param source
+     * @param memoize 
+     */
+    public ConvertedListView(BaseConverter<T> converter, List<Object> source, boolean memoize) {
+        this.converter = converter;
+        this.source = source;
+        this.memoize = memoize;
+    }
+
+    /**
+     * Returns the converted element at the given index.
+     * 
+     * @param index
+     * @return 
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (!memoize) {
+            return converter.transform(source.get(index));
+        }
+
+        if (converted == null) {
+            converted = new Object[source.size()];
+            Arrays.fill(converted, UNSET);
+        }
+
+        Object value = converted[index];
+        if (value == UNSET) {
+            value = converter.transform(source.get(index));
+            converted[index] = value;
+        }
+        return (T) value;
+    }
+
+    /**
+     * Returns the size of the backing list.
+     * 
+     * @return 
+     */
+    @Override
+    public int size() {
+        return memoize && converted != null ? converted.length : source.size();
+    }
+}
@@ -0,0 +1,122 @@
+package com.yetanotherx.mapnode.converter;
+
+import com.yetanotherx.mapnode.MapNode;
+import com.yetanotherx.mapnode.MapNodeException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of converters, keyed by the class they convert to.
+ * MapNode.getAs() and MapNode.getListOf() look the converter
+ * up here, so custom types (enums, durations, ...) can be
+ * read the same way as the built-in ones:
+ * 
+ * ConverterRegistry.getDefault().register(Duration.class, new DurationConverter());
+ * Duration timeout = node.getAs("server.timeout", Duration.class);
+ * 
+ * The registry is thread-safe. Enum types don't need to be
+ * registered, an EnumConverter is created for them on first use.
+ * 
+ * @author yetanotherx
+ */
+public class ConverterRegistry {
+
+    private static final ConverterRegistry DEFAULT = new ConverterRegistry();
+    protected final ConcurrentMap<Class<?>, BaseConverter<?>> converters = new ConcurrentHashMap<Class<?>, BaseConverter<?>>();
+
+    /**
+     * Creates a new registry with the built-in converters
+     * (String, Integer, Long, Double, Boolean and MapNode) registered.
+     */
+    public ConverterRegistry() {
+        register(String.class, StringConverter.INSTANCE);
+        register(Integer.class, IntegerConverter.INSTANCE);
+        register(Long.class, LongConverter.INSTANCE);
+        register(Double.class, DoubleConverter.INSTANCE);
+        register(Boolean.class, BooleanConverter.INSTANCE);
+        register(MapNode.class, MapNodeConverter.INSTANCE);
+    }
+
+    /**
+     * Returns the registry shared by all MapNodeOptions that
+     * don't set their own.
+     * 
+     * @return 
+     */
+    public static ConverterRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Registers the converter for the given type, replacing
+     * the one that was registered before.
+     * 
+     * @param <T>
+     * @param type
+     * @param converter
+     * @return 
+     */
+    public <T> ConverterRegistry register(Class<T> type, BaseConverter<? extends T> converter) {
+        converters.put(type, converter);
+        return this;
+    }
+
+    /**
+     * Removes the converter for the given type.
+     * 
+     * @param type
+     * @return 
+     */
+    public ConverterRegistry unregister(Class<?> type) {
+        converters.remove(type);
+        return this;
+    }
+
+    /**
+     * Returns the converter for the given type, or null if
+     * there is none.
+     * 
+     * @param <T>
+     * @param type
+     * @return 
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> BaseConverter<T> get(Class<T> type) {
+        BaseConverter<T> converter = (BaseConverter<T>) converters.get(type);
+        if (converter == null && type.isEnum()) {
+            converter = new EnumConverter(type);
+            BaseConverter<T> old = (BaseConverter<T>) converters.putIfAbsent(type, converter);
+            if (old != null) {
+                converter = old;
+            }
+        }
+        return converter;
+    }
+
+    /**
+     * Converts the value to the given type. If the value already
+     * is an instance of the type, it is returned as it is. If no
+     * converter is registered for the type, it throws a
+     * MapNodeException (runtime).
+     * 
+     * @throws MapNodeException
+     * @param <T>
+     * @param value
+     * @param type
+     * @return 
+     */
+    public <T> T convert(Object value, Class<T> type) {
+        if (value == null) {
+            return null;
+        }
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        }
+
+        BaseConverter<T> converter = get(type);
+        if (converter == null) {
+            throw new MapNodeException("No converter registered for " + type.getName());
+        }
+        return converter.transform(value);
+    }
+}
@@ -8,8 +8,15 @@ package com.yetanotherx.mapnode.converter;
 public class DoubleConverter implements BaseConverter<Double> {
 
     /**
-     * Converts an Object into a Double. If it cannot
-     * be converted, it returns null;
+     * Shared instance, used by getDouble() and getDoubleList()
+     * unless another converter is registered for Double.
+     */
+    public static final DoubleConverter INSTANCE = new DoubleConverter();
+
+    /**
+     * Converts an Object into a Double. Numbers are converted
+     * directly, anything else is parsed. If it cannot be
+     * converted, it returns null;
      * 
      * @param oldObject
      * @return 
@@ -19,6 +26,13 @@ public class DoubleConverter implements BaseConverter<Double> {
             return null;
         }
         
+        if( oldObject instanceof Double ) {
+            return (Double) oldObject;
+        }
+        if( oldObject instanceof Number ) {
+            return ((Number) oldObject).doubleValue();
+        }
+        
         try {
             return Double.parseDouble(oldObject.toString());
         } catch( NumberFormatException e ) {
@@ -26,4 +40,30 @@ public class DoubleConverter implements BaseConverter<Double> {
         }
     }
     
+    /**
+     * Converts an Object into a double without boxing the result.
+     * Numbers are converted directly, and only other objects are
+     * parsed. If the object is null or cannot be converted, it
+     * will return the given default value.
+     * 
+     * @param oldObject
+     * @param defaultValue
+     * @return 
+     */
+    public static double toDouble(Object oldObject, double defaultValue) {
+        if( oldObject == null ) {
+            return defaultValue;
+        }
+        
+        if( oldObject instanceof Number ) {
+            return ((Number) oldObject).doubleValue();
+        }
+        
+        try {
+            return Double.parseDouble(oldObject.toString());
+        } catch( NumberFormatException e ) {
+            return defaultValue;
+        }
+    }
+    
 }
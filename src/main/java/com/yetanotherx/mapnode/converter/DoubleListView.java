@@ -0,0 +1,75 @@
+package com.yetanotherx.mapnode.converter;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only view of a List<Object> as a list of doubles. Nothing
+ * is copied, each element is converted when it is accessed.
+ * Elements that are null or cannot be converted are read as 0.0.
+ * 
+ * Use getDouble() to read an element without boxing it. Changes
+ * to the backing list are visible through the view.
+ * 
+ * @author yetanotherx
+ */
+public class DoubleListView extends AbstractList<Double> implements RandomAccess {
+
+    protected final List<Object> source;
+
+    /**
+     * Creates a view over the given list.
+     * 
+     * @param source 
+     */
+    public DoubleListView(List<Object> source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns the element at the given index as a double.
+     * 
+     * @param index
+     * @return 
+     */
+    public double getDouble(int index) {
+        return DoubleConverter.toDouble(source.get(index), 0.0D);
+    }
+
+    /**
+     * Returns the element at the given index as a Double.
+     * Prefer getDouble(), which does not box the value.
+     * 
+     * @param index
+     * @return 
+     */
+    @Override
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+    /**
+     * Returns the size of the backing list.
+     * 
+     * @return 
+     */
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    /**
+     * Converts every element into a new double array.
+     * 
+     * @return 
+     */
+    public double[] toDoubleArray() {
+        int size = source.size();
+        double[] out = new double[size];
+        for (int i = 0; i < size; ++i) {
+            out[i] = DoubleConverter.toDouble(source.get(i), 0.0D);
+        }
+        return out;
+    }
+}
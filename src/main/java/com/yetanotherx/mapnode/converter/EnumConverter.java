@@ -0,0 +1,52 @@
+package com.yetanotherx.mapnode.converter;
+
+/**
+ * Converts Objects to constants of an Enum.
+ * 
+ * @author yetanotherx
+ * @param <E> 
+ */
+public class EnumConverter<E extends Enum<E>> implements BaseConverter<E> {
+
+    protected final Class<E> type;
+
+    /**
+     * Creates a converter for the constants of the given enum.
+     * 
+     * @param type 
+     */
+    public EnumConverter(Class<E> type) {
+        this.type = type;
+    }
+
+    /**
+     * Converts an Object into the enum constant with the same
+     * name. If no constant has exactly that name, the names are
+     * compared ignoring case. If there is still no match, it
+     * will return null.
+     * 
+     * @param oldObject
+     * @return 
+     */
+    public E transform(Object oldObject) {
+        if (oldObject == null) {
+            return null;
+        }
+
+        if (type.isInstance(oldObject)) {
+            return type.cast(oldObject);
+        }
+
+        String name = oldObject.toString();
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            for (E constant : type.getEnumConstants()) {
+                if (constant.name().equalsIgnoreCase(name)) {
+                    return constant;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.yetanotherx.mapnode.converter;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only view of a List<Object> as a list of ints. Nothing
+ * is copied, each element is converted when it is accessed.
+ * Elements that are null or cannot be converted are read as 0.
+ * 
+ * Use getInt() to read an element without boxing it. Changes
+ * to the backing list are visible through the view.
+ * 
+ * @author yetanotherx
+ */
+public class IntListView extends AbstractList<Integer> implements RandomAccess {
+
+    protected final List<Object> source;
+
+    /**
+     * Creates a view over the given list.
+     * 
+     * @param source 
+     */
+    public IntListView(List<Object> source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns the element at the given index as an int.
+     * 
+     * @param index
+     * @return 
+     */
+    public int getInt(int index) {
+        return IntegerConverter.toInt(source.get(index), 0);
+    }
+
+    /**
+     * Returns the element at the given index as an Integer.
+     * Prefer getInt(), which does not box the value.
+     * 
+     * @param index
+     * @return 
+     */
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    /**
+     * Returns the size of the backing list.
+     * 
+     * @return 
+     */
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    /**
+     * Converts every element into a new int array.
+     * 
+     * @return 
+     */
+    public int[] toIntArray() {
+        int size = source.size();
+        int[] out = new int[size];
+        for (int i = 0; i < size; ++i) {
+            out[i] = IntegerConverter.toInt(source.get(i), 0);
+        }
+        return out;
+    }
+}
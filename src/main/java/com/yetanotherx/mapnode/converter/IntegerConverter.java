@@ -8,10 +8,17 @@ package com.yetanotherx.mapnode.converter;
 public class IntegerConverter implements BaseConverter<Integer> {
 
     /**
-     * Converts an Object into an Integer. If it
-     * cannot be converted to an Integer, it will then
-     * try to parse it as a Double. If it cannot be parsed
-     * as a Double, then it will return null;
+     * Shared instance, registered for Integer in every new
+     * ConverterRegistry. Strings such as "1.5" that are not
+     * valid ints are parsed as doubles and truncated.
+     */
+    public static final IntegerConverter INSTANCE = new IntegerConverter();
+
+    /**
+     * Converts an Object into an Integer. Numbers are converted
+     * directly. Anything else is parsed as an Integer, and if it
+     * cannot be, it will then try to parse it as a Double. If it
+     * cannot be parsed as a Double, then it will return null;
      * 
      * @param oldObject
      * @return 
@@ -21,6 +28,13 @@ public class IntegerConverter implements BaseConverter<Integer> {
             return null;
         }
 
+        if (oldObject instanceof Integer) {
+            return (Integer) oldObject;
+        }
+        if (oldObject instanceof Number) {
+            return (int) ((Number) oldObject).doubleValue();
+        }
+
         try {
             return Integer.parseInt(oldObject.toString());
         } catch (NumberFormatException e) {
@@ -31,4 +45,38 @@ public class IntegerConverter implements BaseConverter<Integer> {
             }
         }
     }
+
+    /**
+     * Converts an Object into an int without boxing the result.
+     * Numbers are converted directly, and only other objects are
+     * parsed (see transform()). If the object is null or cannot be
+     * converted, it will return the given default value.
+     * 
+     * @param oldObject
+     * @param defaultValue
+     * @return 
+     */
+    public static int toInt(Object oldObject, int defaultValue) {
+        if (oldObject == null) {
+            return defaultValue;
+        }
+
+        if (oldObject instanceof Integer) {
+            return ((Integer) oldObject).intValue();
+        }
+        if (oldObject instanceof Number) {
+            return (int) ((Number) oldObject).doubleValue();
+        }
+
+        String value = oldObject.toString();
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            try {
+                return (int) Double.parseDouble(value);
+            } catch (NumberFormatException e2) {
+                return defaultValue;
+            }
+        }
+    }
 }
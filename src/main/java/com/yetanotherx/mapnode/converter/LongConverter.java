@@ -0,0 +1,86 @@
+package com.yetanotherx.mapnode.converter;
+
+/**
+ * Converts Objects to Longs.
+ * 
+ * @author yetanotherx
+ */
+public class LongConverter implements BaseConverter<Long> {
+
+    /**
+     * Shared instance, registered for Long in every new
+     * ConverterRegistry. Smaller integer types are widened
+     * without going through a double, so no precision is lost.
+     */
+    public static final LongConverter INSTANCE = new LongConverter();
+
+    /**
+     * Converts an Object into a Long. Numbers are converted
+     * directly. Anything else is parsed as a Long, and if it
+     * cannot be, it will then try to parse it as a Double. If it
+     * cannot be parsed as a Double, then it will return null;
+     * 
+     * @param oldObject
+     * @return 
+     */
+    public Long transform(Object oldObject) {
+        if (oldObject == null) {
+            return null;
+        }
+
+        if (oldObject instanceof Long) {
+            return (Long) oldObject;
+        }
+        if (oldObject instanceof Integer || oldObject instanceof Short || oldObject instanceof Byte) {
+            return ((Number) oldObject).longValue();
+        }
+        if (oldObject instanceof Number) {
+            return (long) ((Number) oldObject).doubleValue();
+        }
+
+        try {
+            return Long.parseLong(oldObject.toString());
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(oldObject.toString());
+            } catch (NumberFormatException e2) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Converts an Object into a long without boxing the result.
+     * Numbers are converted directly, and only other objects are
+     * parsed (see transform()). If the object is null or cannot be
+     * converted, it will return the given default value.
+     * 
+     * @param oldObject
+     * @param defaultValue
+     * @return 
+     */
+    public static long toLong(Object oldObject, long defaultValue) {
+        if (oldObject == null) {
+            return defaultValue;
+        }
+
+        if (oldObject instanceof Long || oldObject instanceof Integer
+                || oldObject instanceof Short || oldObject instanceof Byte) {
+            return ((Number) oldObject).longValue();
+        }
+        if (oldObject instanceof Number) {
+            return (long) ((Number) oldObject).doubleValue();
+        }
+
+        String value = oldObject.toString();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(value);
+            } catch (NumberFormatException e2) {
+                return defaultValue;
+            }
+        }
+    }
+}
@@ -10,6 +10,13 @@ import java.util.Map;
  */
 public class MapNodeConverter implements BaseConverter<MapNode> {
 
+    /**
+     * Shared instance, used by getMapNodeList(). The nodes it
+     * returns wrap the map itself with the default options,
+     * where MapNode.getMapNode() shares the options of the parent.
+     */
+    public static final MapNodeConverter INSTANCE = new MapNodeConverter();
+
     /**
      * Converts an Object to MapNode. If the object is
      * not an instance of Map, then it will return null.
@@ -7,6 +7,12 @@ package com.yetanotherx.mapnode.converter;
  */
 public class StringConverter implements BaseConverter<String> {
 
+    /**
+     * Shared instance, used by getStringList(). The conversion
+     * is only toString(), so it never fails for non-null values.
+     */
+    public static final StringConverter INSTANCE = new StringConverter();
+
     /**
      * Gets the String value of the object. If the object
      * is null, it will return null. 
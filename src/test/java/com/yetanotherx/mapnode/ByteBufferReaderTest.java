@@ -0,0 +1,39 @@
+package com.yetanotherx.mapnode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import junit.framework.TestCase;
+
+public class ByteBufferReaderTest extends TestCase {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public ByteBufferReaderTest(String testName) {
+        super(testName);
+    }
+
+    public void testRead() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; ++i) {
+            sb.append("key").append(i).append(": \u00E9\u4E2D\uD83D\uDE00\n");
+        }
+        String text = sb.toString();
+
+        ByteBufferReader reader = new ByteBufferReader(ByteBuffer.wrap(text.getBytes(UTF8)), UTF8);
+        StringBuilder out = new StringBuilder();
+        char[] buf = new char[7];
+        int read;
+        while ((read = reader.read(buf, 0, buf.length)) != -1) {
+            out.append(buf, 0, read);
+        }
+        assertEquals(text, out.toString());
+    }
+
+    public void testSkipsByteOrderMark() throws IOException {
+        ByteBufferReader reader = new ByteBufferReader(ByteBuffer.wrap("\uFEFFab".getBytes(UTF8)), UTF8);
+        assertEquals('a', reader.read());
+        assertEquals('b', reader.read());
+        assertEquals(-1, reader.read());
+    }
+}
@@ -0,0 +1,89 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class CompactMapTest extends TestCase {
+
+    public CompactMapTest(String testName) {
+        super(testName);
+    }
+
+    public void testSmall() {
+        CompactMap<String, Object> map = new CompactMap<String, Object>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put("b", 1));
+        assertNull(map.put("a", 2));
+        assertNull(map.put(null, null));
+        assertEquals(1, map.put("b", 3));
+
+        assertEquals(3, map.size());
+        assertEquals(3, map.get("b"));
+        assertTrue(map.containsKey(null));
+        assertFalse(map.containsKey("c"));
+        assertEquals(Arrays.asList("b", "a", null), new ArrayList<String>(map.keySet()));
+        assertFalse(map.isHashed());
+
+        assertEquals(2, map.remove("a"));
+        assertEquals(Arrays.asList("b", null), new ArrayList<String>(map.keySet()));
+        assertNull(map.remove("none"));
+    }
+
+    public void testUpgrade() {
+        CompactMap<String, Object> map = new CompactMap<String, Object>();
+        Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < 20; ++i) {
+            map.put("key" + i, i);
+            expected.put("key" + i, i);
+            assertEquals(i >= CompactMap.THRESHOLD, map.isHashed());
+        }
+
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(map.keySet()));
+
+        map.clear();
+        assertFalse(map.isHashed());
+        assertEquals(0, map.size());
+    }
+
+    public void testIterator() {
+        CompactMap<String, Object> map = EasyHashMap.compact("a", 1, "b", 2, "c", 3);
+        for (Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Object> entry = it.next();
+            if (entry.getKey().equals("b")) {
+                it.remove();
+            } else {
+                entry.setValue(((Integer) entry.getValue()) * 10);
+            }
+        }
+        assertEquals(new EasyHashMap<String, Object>("a", 10, "c", 30), map);
+        assertEquals("{a=10, c=30}", map.toString());
+    }
+
+    public void testMapNode() {
+        MapNode node = new MapNode(new CompactMap<String, Object>(), new MapNodeOptions().setCompactMaps(true));
+        node.loadYaml("list:\n    - {name: a, id: 1}\nmap: {z: 1, y: 2}\n");
+
+        assertTrue(node.getBase() instanceof CompactMap);
+        assertTrue(node.getObject("list.0") instanceof CompactMap);
+        assertEquals("a", node.getString("list.0.name"));
+        assertEquals("{z=1, y=2}", node.getObject("map").toString());
+
+        node.setObject("new.deep.key", "x");
+        assertTrue(node.getObject("new.deep") instanceof CompactMap);
+
+        MapNode plain = new MapNode();
+        plain.loadYaml(node.debug());
+        assertEquals(plain.getBase(), node.getBase());
+
+        List<Object> list = node.getList("list");
+        assertEquals(1, list.size());
+    }
+}
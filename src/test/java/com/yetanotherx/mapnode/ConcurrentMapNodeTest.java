@@ -0,0 +1,136 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.TestCase;
+
+public class ConcurrentMapNodeTest extends TestCase {
+
+    public ConcurrentMapNodeTest(String testName) {
+        super(testName);
+    }
+
+    public void testConvertsBase() {
+        List<Object> list = new ArrayList<Object>();
+        list.add(new EasyHashMap<String, Object>("name", "foo"));
+        ConcurrentMapNode node = new ConcurrentMapNode(new EasyHashMap<String, Object>(
+                "base", new EasyHashMap<String, Object>("list", list, "none", null)));
+
+        assertTrue(node.getBase() instanceof ConcurrentHashMap);
+        assertTrue(node.getObject("base") instanceof ConcurrentHashMap);
+        assertTrue(node.getObject("base.list") instanceof CopyOnWriteArrayList);
+        assertTrue(node.getObject("base.list.0") instanceof ConcurrentHashMap);
+        assertEquals("foo", node.getString("base.list.0.name"));
+        assertFalse(((Map<?, ?>) node.getObject("base")).containsKey("none"));
+    }
+
+    public void testSetObject() {
+        ConcurrentMapNode node = new ConcurrentMapNode();
+        node.setObject("base.core.test", "foo");
+        node.setObject("base.map", new EasyHashMap<String, Object>("a", 1));
+        node.setObject("base.list", new ArrayList<Object>());
+        node.setObject("base.list.0", "bar");
+
+        assertEquals("foo", node.getString("base.core.test"));
+        assertTrue(node.getObject("base.core") instanceof ConcurrentHashMap);
+        assertTrue(node.getObject("base.map") instanceof ConcurrentHashMap);
+        assertEquals(1, node.getInt("base.map.a", 0));
+        assertEquals("bar", node.getString("base.list.0"));
+
+        node.setObject("base.core.test", null);
+        assertFalse(((Map<?, ?>) node.getObject("base.core")).containsKey("test"));
+
+        node.setObject("base.core.test.deeper", "baz");
+        assertEquals("baz", node.getString("base.core.test.deeper"));
+
+        node.removeObject("base.list.0");
+        assertEquals(0, node.getList("base.list").size());
+    }
+
+    public void testGetMapNode() {
+        ConcurrentMapNode node = new ConcurrentMapNode();
+        node.setObject("base.core", "foo");
+
+        MapNode sub = node.getMapNode("base");
+        assertTrue(sub instanceof ConcurrentMapNode);
+        sub.setObject("other", "bar");
+        assertEquals("bar", node.getString("base.other"));
+    }
+
+    public void testLoadYaml() {
+        ConcurrentMapNode node = new ConcurrentMapNode();
+        node.loadYaml("base:\n    list:\n        - {a: 1}\n");
+        assertTrue(node.getBase() instanceof ConcurrentHashMap);
+        assertTrue(node.getObject("base.list") instanceof CopyOnWriteArrayList);
+        assertEquals(1, node.getInt("base.list.0.a", 0));
+    }
+
+    public void testClone() throws CloneNotSupportedException {
+        ConcurrentMapNode node = new ConcurrentMapNode();
+        node.setObject("base.core", "foo");
+
+        ConcurrentMapNode clone = (ConcurrentMapNode) node.clone();
+        clone.setObject("base.core", "bar");
+        assertEquals("foo", node.getString("base.core"));
+        assertEquals("bar", clone.getString("base.core"));
+        assertEquals(node.getOptions(), clone.getOptions());
+    }
+
+    public void testDeepCopy() {
+        ConcurrentMapNode node = new ConcurrentMapNode();
+        node.loadYaml("base:\n    list:\n        - {a: 1}\n");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MapNode[] copies = {node.deepCopy(), node.deepCopy(executor)};
+            for (MapNode copy : copies) {
+                assertTrue(copy instanceof ConcurrentMapNode);
+                assertTrue(copy.getBase() instanceof ConcurrentHashMap);
+                assertTrue(copy.getObject("base.list") instanceof CopyOnWriteArrayList);
+                assertNotSame(node.getObject("base.list.0"), copy.getObject("base.list.0"));
+                assertEquals(node.getBase(), copy.getBase());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testConcurrentSetObject() throws InterruptedException {
+        final ConcurrentMapNode node = new ConcurrentMapNode();
+        final int threads = 8;
+        final int perThread = 500;
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; ++t) {
+            final int id = t;
+            workers[t] = new Thread() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; ++i) {
+                        node.setObject("base.shared." + (i % 10) + ".t" + id + "_" + i, i);
+                        node.getObject("base.shared." + (i % 10));
+                    }
+                }
+            };
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int total = 0;
+        for (int i = 0; i < 10; ++i) {
+            total += node.getMapNode("base.shared." + i).getBase().size();
+        }
+        assertEquals(threads * perThread, total);
+        assertEquals(perThread - 1, node.getInt("base.shared." + ((perThread - 1) % 10) + ".t3_" + (perThread - 1), -1));
+    }
+}
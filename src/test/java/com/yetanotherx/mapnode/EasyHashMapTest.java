@@ -24,4 +24,17 @@ public class EasyHashMapTest extends TestCase {
             assertTrue(true);
         }
     }
+
+    public void testCompact() {
+        HashMap<String, String> map = new HashMap<String, String>();
+        map.put("foo", "bar");
+        map.put("fix", "baz");
+        assertEquals(map, EasyHashMap.<String, String>compact("foo", "bar", "fix", "baz"));
+
+        try {
+            EasyHashMap.<String, String>compact("foo");
+            fail("Exception not thrown.");
+        } catch (MapNodeException e) {
+        }
+    }
 }
@@ -0,0 +1,123 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class KeyPoolTest extends TestCase {
+
+    public KeyPoolTest(String testName) {
+        super(testName);
+    }
+
+    private static Object keyOf(MapNode node, String path) {
+        return ((Map<?, ?>) node.getObject(path)).keySet().iterator().next();
+    }
+
+    public void testIntern() {
+        KeyPool pool = new KeyPool();
+        String first = new String("name");
+        String second = new String("name");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.getDuplicates());
+        assertTrue(pool.getBytesSaved() > 0);
+        assertNull(pool.intern(null));
+        assertNotNull(KeyPool.getGlobal());
+    }
+
+    public void testLoad() {
+        KeyPool pool = new KeyPool();
+        MapNode node = new MapNode(new HashMap<String, Object>(), new MapNodeOptions().setKeyPool(pool));
+        node.loadYaml("list:\n    - {name: a, id: 1}\n    - {name: b, id: 2}\n    - {name: c, id: 3}\n");
+
+        assertSame(keyOf(node, "list.0"), keyOf(node, "list.1"));
+        assertSame(keyOf(node, "list.0"), keyOf(node, "list.2"));
+        assertEquals(4, pool.getDuplicates());
+        assertEquals("{name=a, id=1}", node.getObject("list.0").toString());
+
+        MapNode plain = new MapNode();
+        plain.loadYaml("list:\n    - {name: a, id: 1}\n    - {name: b, id: 2}\n    - {name: c, id: 3}\n");
+        assertEquals(plain, node);
+    }
+
+    public void testSetObject() {
+        KeyPool pool = new KeyPool();
+        MapNode node = new MapNode(new HashMap<String, Object>(), new MapNodeOptions().setKeyPool(pool));
+        node.setObject("first.name", "a");
+        node.setObject(new String("second") + ".name", "b");
+        node.setObject("third", new EasyHashMap<String, Object>(new String("name"), "c"));
+
+        assertSame(keyOf(node, "first"), keyOf(node, "second"));
+        assertSame(keyOf(node, "first"), keyOf(node, "third"));
+        assertEquals(3, node.getBase().size());
+    }
+
+    public void testRecursive() {
+        KeyPool pool = new KeyPool();
+        pool.intern("name");
+        Map<String, Object> shared = new HashMap<String, Object>();
+        shared.put(new String("name"), "a");
+        shared.put("self", shared);
+        List<Object> list = new ArrayList<Object>();
+        list.add(shared);
+        list.add(shared);
+        list.add(list);
+
+        List<?> out = (List<?>) pool.internKeys(list);
+        assertSame(list, out);
+        assertSame(out.get(0), out.get(1));
+        assertNotSame(shared, out.get(0));
+        Map<?, ?> map = (Map<?, ?>) out.get(0);
+        assertSame(map, map.get("self"));
+        assertEquals(1, pool.getDuplicates());
+        assertEquals(2, shared.size());
+    }
+
+    public void testUnmodifiable() {
+        KeyPool pool = new KeyPool();
+        MapNode node = new MapNode(new HashMap<String, Object>(), new MapNodeOptions().setKeyPool(pool));
+        node.setObject("first.name", "a");
+        node.setObject("second", Collections.singletonMap(new String("name"), "b"));
+        node.setObject("third", Collections.singletonList(Collections.singletonMap(new String("name"), "c")));
+
+        assertSame(keyOf(node, "first"), keyOf(node, "second"));
+        assertEquals("c", node.getString("third.0.name"));
+    }
+
+    public void testSharedMaps() {
+        KeyPool pool = new KeyPool();
+        MapNode node = new MapNode(new HashMap<String, Object>(), new MapNodeOptions().setKeyPool(pool));
+        node.setObject("first.name", "a");
+
+        Map<String, Object> value = new HashMap<String, Object>();
+        value.put(new String("name"), "b");
+        node.setObject("second", value);
+        assertEquals(1, value.size());
+        assertNotSame(keyOf(node, "first"), value.keySet().iterator().next());
+        assertSame(keyOf(node, "first"), keyOf(node, "second"));
+        assertNotSame(value, node.getObject("second"));
+        value.put("late", "c");
+        assertNull(node.getObject("second.late"));
+
+        Object first = node.getObject("first");
+        node.setObject("alias", first);
+        assertSame(first, node.getObject("alias"));
+    }
+
+    public void testCursorAndBatch() {
+        KeyPool pool = new KeyPool();
+        MapNode node = new MapNode(new HashMap<String, Object>(), new MapNodeOptions().setKeyPool(pool));
+        node.setObject("first.name", "a");
+        node.cursor().setObject("second", new EasyHashMap<String, Object>(new String("name"), "b"));
+        node.batch().set("third", new EasyHashMap<String, Object>(new String("name"), "c")).commit();
+
+        assertSame(keyOf(node, "first"), keyOf(node, "second"));
+        assertSame(keyOf(node, "first"), keyOf(node, "third"));
+    }
+}
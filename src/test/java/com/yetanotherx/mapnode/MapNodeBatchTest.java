@@ -0,0 +1,161 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class MapNodeBatchTest extends TestCase {
+
+    protected MapNode node;
+
+    public MapNodeBatchTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        node = new MapNode();
+        node.loadYaml("server:\n    host: example.com\n    port: 80\n    legacy: true\nlist: [a, b]\nother:\n    key: value\n");
+    }
+
+    public void testCommit() {
+        Object other = node.getObject("other");
+
+        MapNodeBatch batch = node.batch()
+                .set("server.port", 8080)
+                .set("server.tls.enabled", true)
+                .remove("server.legacy")
+                .set("list.2", "c")
+                .remove("missing.key")
+                .set((String) null, "ignored");
+        assertEquals(5, batch.size());
+        assertEquals(80, node.getInt("server.port"));
+
+        batch.commit();
+        assertEquals(0, batch.size());
+        assertEquals(8080, node.getInt("server.port"));
+        assertTrue(node.getBoolean("server.tls.enabled"));
+        assertNull(node.getObject("server.legacy"));
+        assertEquals("example.com", node.getString("server.host"));
+        assertEquals(Arrays.asList("a", "b", "c"), node.getObject("list"));
+        assertNull(node.getObject("missing"));
+        assertSame(other, node.getObject("other"));
+    }
+
+    public void testCopiesTouchedPaths() {
+        Map<String, Object> oldBase = node.getBase();
+        Object oldServer = node.getObject("server");
+
+        node.batch().set("server.port", 443).commit();
+        assertNotSame(oldBase, node.getBase());
+        assertNotSame(oldServer, node.getObject("server"));
+        assertEquals(80, ((Map<?, ?>) oldServer).get("port"));
+        assertSame(oldBase.get("other"), node.getObject("other"));
+    }
+
+    public void testStaleReferences() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("server", new HashMap<String, Object>());
+        MapNode plain = new MapNode(map);
+        MapNode server = plain.getMapNode("server");
+
+        plain.batch().set("server.port", 443).commit();
+        assertEquals(443, plain.getInt("server.port"));
+        assertNull(((Map<?, ?>) map.get("server")).get("port"));
+        assertTrue(plain.getBase() instanceof HashMap);
+        assertFalse(plain.getBase() instanceof LinkedHashMap);
+
+        server.setObject("host", "example.com");
+        assertNull(plain.getObject("server.host"));
+        plain.getMapNode("server").setObject("host", "example.com");
+        assertEquals("example.com", plain.getString("server.host"));
+    }
+
+    public void testLostWrite() {
+        new MapNodeBatch(node) {
+
+            @Override
+            protected Map<String, Object> apply(Map<String, Object> base, List<Write> ordered) {
+                Map<String, Object> out = super.apply(base, ordered);
+                // Stands in for another thread writing during the commit
+                node.setObject("during", true);
+                return out;
+            }
+        }.set("server.port", 443).commit();
+
+        assertEquals(443, node.getInt("server.port"));
+        assertNull(node.getObject("during"));
+    }
+
+    public void testOrderMatters() {
+        Map<String, Object> replacement = new HashMap<String, Object>();
+        replacement.put("fresh", 1);
+
+        node.batch().set("server.extra", "x").set("server", replacement).set("server.more", 2).commit();
+        assertNull(node.getObject("server.extra"));
+        assertEquals(1, node.getInt("server.fresh"));
+        assertEquals(2, node.getInt("server.more"));
+        assertEquals(1, replacement.size());
+
+        node.batch().remove("list.0").set("list.0", "z").commit();
+        assertEquals(Arrays.asList("z"), node.getObject("list"));
+
+        List<Object> appended = new ArrayList<Object>();
+        node.setObject("appended", appended);
+        node.batch().set("appended.1", "b").set("appended.0", "a").commit();
+        assertEquals(Arrays.asList("a", "b"), node.getObject("appended"));
+    }
+
+    public void testFailureLeavesNodeUnchanged() {
+        Map<String, Object> oldBase = node.getBase();
+        try {
+            node.batch().set("server.port", 1).set("list.5", "x").commit();
+            fail("Expected a MapNodeException");
+        } catch (MapNodeException e) {
+        }
+        assertSame(oldBase, node.getBase());
+        assertEquals(80, node.getInt("server.port"));
+    }
+
+    public void testTransaction() {
+        node.transaction(new MapNodeBatch.Transaction() {
+
+            @Override
+            public void run(MapNodeBatch batch) {
+                batch.set("a.b", 1).set("a.c", 2);
+            }
+        });
+        assertEquals(1, node.getInt("a.b"));
+        assertEquals(2, node.getInt("a.c"));
+
+        try {
+            node.transaction(new MapNodeBatch.Transaction() {
+
+                @Override
+                public void run(MapNodeBatch batch) {
+                    batch.set("a.b", 3);
+                    throw new IllegalStateException();
+                }
+            });
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+        }
+        assertEquals(1, node.getInt("a.b"));
+    }
+
+    public void testRoot() {
+        Map<String, Object> replacement = new HashMap<String, Object>();
+        replacement.put("only", "this");
+        node.batch().set("", replacement).set("added", 1).commit();
+        assertEquals("this", node.getString("only"));
+        assertEquals(1, node.getInt("added"));
+        assertNull(node.getObject("server"));
+
+        node.batch().remove("").commit();
+        assertTrue(node.getBase().isEmpty());
+    }
+}
@@ -0,0 +1,113 @@
+package com.yetanotherx.mapnode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import junit.framework.TestCase;
+import org.yaml.snakeyaml.Yaml;
+
+public class MapNodeBinaryTest extends TestCase {
+
+    protected MapNode baseNode;
+
+    public MapNodeBinaryTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void setUp() throws IOException {
+        InputStream input = MapNode.class.getResourceAsStream("/testYaml.yml");
+        baseNode = new MapNode((Map<String, Object>) new Yaml().load(input));
+        input.close();
+    }
+
+    public void testRoundTrip() {
+        MapNode decoded = MapNode.fromBytes(baseNode.toBytes());
+        assertEquals(baseNode.getBase(), decoded.getBase());
+        assertEquals(baseNode.debug(), decoded.debug());
+
+        MapNode fromYaml = new MapNode();
+        fromYaml.loadYaml(decoded.debug());
+        assertEquals(baseNode.getBase(), fromYaml.getBase());
+    }
+
+    public void testTypes() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("int", -5);
+        map.put("long", Long.MAX_VALUE);
+        map.put("double", -1.5D);
+        map.put("big", new BigInteger("123456789012345678901234567890"));
+        map.put("date", new Date(1234567890L));
+        map.put("null", null);
+        map.put("bool", true);
+        map.put("list", new EasyArrayList<Object>("a", 1, new EasyHashMap<String, Object>("a", "b")));
+
+        Map<String, Object> decoded = MapNode.fromBytes(new MapNode(map).toBytes()).getBase();
+        assertEquals(map, decoded);
+        assertEquals(Arrays.asList(map.keySet().toArray()), Arrays.asList(decoded.keySet().toArray()));
+
+        map.put("bytes", new byte[]{1, 2, 3});
+        decoded = MapNode.fromBytes(new MapNode(map).toBytes()).getBase();
+        assertTrue(Arrays.equals(new byte[]{1, 2, 3}, (byte[]) decoded.get("bytes")));
+    }
+
+    public void testSet() {
+        MapNode node = new MapNode();
+        node.loadYaml("tags: !!set {b, a, c}\n");
+        assertTrue(node.getObject("tags") instanceof LinkedHashSet);
+
+        MapNode decoded = MapNode.fromBytes(node.toBytes());
+        assertEquals(node.getBase(), decoded.getBase());
+        assertTrue(decoded.getObject("tags") instanceof LinkedHashSet);
+        assertEquals(Arrays.asList("b", "a", "c"), Arrays.asList(((LinkedHashSet<?>) decoded.getObject("tags")).toArray()));
+    }
+
+    public void testSharedStrings() {
+        EasyArrayList<Object> list = new EasyArrayList<Object>();
+        for (int i = 0; i < 100; ++i) {
+            list.add(new EasyHashMap<String, Object>("name", "weight", "id", i));
+        }
+        MapNode node = new MapNode(new EasyHashMap<String, Object>("list", list));
+        assertTrue(node.toBytes().length < node.debug().length() / 2);
+    }
+
+    public void testByteBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        buffer.put((byte) 42);
+        buffer.put(baseNode.toByteBuffer());
+        buffer.flip();
+        buffer.get();
+
+        int position = buffer.position();
+        assertEquals(baseNode.getBase(), MapNode.fromBytes(buffer).getBase());
+        assertEquals(position, buffer.position());
+    }
+
+    public void testInvalid() {
+        try {
+            MapNode.fromBytes(new byte[]{1, 2, 3, 4});
+            fail("Expected MapNodeException");
+        } catch (MapNodeException e) {
+        }
+
+        byte[] bytes = baseNode.toBytes();
+        try {
+            MapNode.fromBytes(Arrays.copyOf(bytes, bytes.length - 3));
+            fail("Expected MapNodeException");
+        } catch (MapNodeException e) {
+        }
+
+        try {
+            new MapNode(new EasyHashMap<String, Object>("foo", new Object())).toBytes();
+            fail("Expected MapNodeException");
+        } catch (MapNodeException e) {
+        }
+    }
+}
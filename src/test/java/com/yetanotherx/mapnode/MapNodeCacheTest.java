@@ -0,0 +1,111 @@
+package com.yetanotherx.mapnode;
+
+import junit.framework.TestCase;
+
+public class MapNodeCacheTest extends TestCase {
+
+    public MapNodeCacheTest(String testName) {
+        super(testName);
+    }
+
+    public void testDisabledByDefault() {
+        MapNode node = new MapNode();
+        assertNull(node.getCache());
+    }
+
+    public void testHitsAndMisses() {
+        MapNode node = new MapNode(new EasyHashMap<String, Object>(
+                "base", new EasyHashMap<String, Object>("core", "foo")),
+                new MapNodeOptions().setCacheSize(10));
+
+        assertEquals("foo", node.getObject("base.core"));
+        assertEquals("foo", node.getObject("base.core"));
+        assertEquals("foo", node.getObject(MapNodePath.compile("base.core", node.getOptions())));
+        assertEquals(null, node.getObject("base.none"));
+        assertEquals(null, node.getObject("base.none"));
+
+        MapNodeCache cache = node.getCache();
+        assertEquals(3, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    public void testEviction() {
+        MapNode node = new MapNode(new EasyHashMap<String, Object>(), new MapNodeOptions().setCacheSize(2));
+        node.getObject("a.a");
+        node.getObject("b.b");
+        node.getObject("a.a");
+        node.getObject("c.c");
+
+        MapNodeCache cache = node.getCache();
+        assertEquals(2, cache.size());
+        node.getObject("a.a");
+        assertEquals(2, cache.getHits());
+        node.getObject("b.b");
+        assertEquals(4, cache.getMisses());
+    }
+
+    public void testInvalidation() {
+        MapNode node = new MapNode(new EasyHashMap<String, Object>(), new MapNodeOptions().setCacheSize(10));
+
+        assertEquals(null, node.getObject("base.core"));
+        node.setObject("base.core", "foo");
+        assertEquals("foo", node.getObject("base.core"));
+
+        node.setObject("base", new EasyHashMap<String, Object>("core", "bar"));
+        assertEquals("bar", node.getObject("base.core"));
+
+        node.removeObject("base.core");
+        assertEquals(null, node.getObject("base.core"));
+
+        node.setBase(new EasyHashMap<String, Object>("base", new EasyHashMap<String, Object>("core", "baz")));
+        assertEquals("baz", node.getObject("base.core"));
+
+        node.loadYaml("base:\n    core: bat");
+        assertEquals("bat", node.getObject("base.core"));
+
+        node.reset();
+        assertEquals(null, node.getObject("base.core"));
+    }
+
+    public void testSegmentsWithSeparator() {
+        MapNode node = new MapNode(new EasyHashMap<String, Object>(
+                "a", new EasyHashMap<String, Object>("b", new EasyHashMap<String, Object>("c", "deep")),
+                "a.b", new EasyHashMap<String, Object>("c", "flat")),
+                new MapNodeOptions().setCacheSize(10));
+
+        assertEquals("deep", node.getObject("a.b.c"));
+        assertEquals("flat", node.getObject(MapNodePath.of(".", "a.b", "c")));
+        assertEquals("deep", node.getObject(MapNodePath.compile("a.b.c", ".")));
+        assertEquals("deep", node.getObject(MapNodePath.of(".", "a", "b", "c")));
+        assertEquals(1, node.getCache().size());
+    }
+
+    public void testSeparatorChange() {
+        MapNodeOptions options = new MapNodeOptions().setCacheSize(10);
+        MapNode node = new MapNode(new EasyHashMap<String, Object>(
+                "a", new EasyHashMap<String, Object>("b", "dotted"),
+                "a/b", "slashed",
+                "a.b/c", "mixed"),
+                options);
+
+        assertEquals("dotted", node.getObject("a.b"));
+        options.setSeparatorChar("/");
+        assertEquals(null, node.getObject("a.b"));
+        assertEquals(null, node.getObject(MapNodePath.compile("a.b/c", ".")));
+        assertEquals("mixed", node.getObject(MapNodePath.of(".", "a.b/c")));
+    }
+
+    public void testCacheSize() {
+        MapNodeOptions options = new MapNodeOptions().setCacheSize(5);
+        assertEquals(5, options.getCacheSize());
+        assertEquals(5, ((MapNodeOptions) options.clone()).getCacheSize());
+        assertEquals(new MapNodeOptions(), options);
+
+        try {
+            options.setCacheSize(-1);
+            fail("Expected MapNodeException");
+        } catch (MapNodeException e) {
+        }
+    }
+}
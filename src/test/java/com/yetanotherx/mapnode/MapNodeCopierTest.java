@@ -0,0 +1,109 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.TestCase;
+
+public class MapNodeCopierTest extends TestCase {
+
+    public MapNodeCopierTest(String testName) {
+        super(testName);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testCopy() {
+        MapNode node = new MapNode();
+        node.loadYaml("b: {x: 1, y: [1, {z: 2}]}\na: text\nc: [3, 4]\n");
+
+        Map<String, Object> copy = MapNodeCopier.copy(node.getBase());
+        assertEquals(node.getBase(), copy);
+        assertEquals(node.getBase().toString(), copy.toString());
+        assertNotSame(node.getObject("b"), copy.get("b"));
+        assertNotSame(node.getObject("b.y.1"), ((List<Object>) ((Map<String, Object>) copy.get("b")).get("y")).get(1));
+        assertSame(node.getObject("a"), copy.get("a"));
+        assertEquals("text", MapNodeCopier.copy("text"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testSortedAndUnmodifiable() {
+        Map<String, Object> sorted = new TreeMap<String, Object>(Collections.reverseOrder());
+        sorted.put("a", 1);
+        sorted.put("b", Collections.unmodifiableList(new ArrayList<Object>(Collections.singletonList("x"))));
+
+        Map<String, Object> copy = MapNodeCopier.copy(sorted);
+        assertTrue(copy instanceof TreeMap);
+        assertEquals("b", copy.keySet().iterator().next());
+        ((List<Object>) copy.get("b")).add("y");
+        assertEquals(1, ((List<Object>) sorted.get("b")).size());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testDeepTree() {
+        Map<String, Object> root = new LinkedHashMap<String, Object>();
+        Map<String, Object> current = root;
+        for (int i = 0; i < 100000; ++i) {
+            Map<String, Object> child = new LinkedHashMap<String, Object>();
+            current.put("child", child);
+            current = child;
+        }
+        current.put("leaf", "end");
+
+        Map<String, Object> copy = MapNodeCopier.copy(root);
+        for (int i = 0; i < 100000; ++i) {
+            copy = (Map<String, Object>) copy.get("child");
+        }
+        assertEquals("end", copy.get("leaf"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testSharedAndRecursive() {
+        List<Object> shared = new ArrayList<Object>();
+        Map<String, Object> root = new LinkedHashMap<String, Object>();
+        root.put("first", shared);
+        root.put("second", shared);
+        root.put("self", root);
+
+        Map<String, Object> copy = MapNodeCopier.copy(root);
+        assertSame(copy.get("first"), copy.get("second"));
+        assertNotSame(shared, copy.get("first"));
+        assertSame(copy, copy.get("self"));
+    }
+
+    public void testParallel() {
+        MapNode node = new MapNode();
+        for (int i = 0; i < 20; ++i) {
+            for (int j = 0; j < 100; ++j) {
+                node.setObject("key" + i + ".sub" + j, j);
+            }
+        }
+        node.setObject("scalar", "value");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            MapNode copy = node.deepCopy(executor);
+            assertEquals(node, copy);
+            assertNotSame(node.getObject("key3"), copy.getObject("key3"));
+            assertEquals(new ArrayList<String>(node.getBase().keySet()), new ArrayList<String>(copy.getBase().keySet()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testClone() throws CloneNotSupportedException {
+        MapNode node = new MapNode(new LinkedHashMap<String, Object>());
+        node.setObject("a.b", "c");
+
+        MapNode clone = (MapNode) node.clone();
+        clone.setObject("a.b", "d");
+        assertEquals("c", node.getString("a.b"));
+        assertEquals("d", clone.getString("a.b"));
+        assertEquals(node.getOptions(), clone.getOptions());
+        assertNotSame(node.getOptions(), clone.getOptions());
+    }
+}
@@ -0,0 +1,147 @@
+package com.yetanotherx.mapnode;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+public class MapNodeCursorTest extends TestCase {
+
+    protected MapNode node;
+
+    public MapNodeCursorTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        node = new MapNode();
+        node.loadYaml("servers:\n    eu:\n        host: eu.example.com\n        port: 8080\n        tls: true\n    us:\n        host: us.example.com\nlist:\n    - {name: a}\n    - {name: b}\n");
+    }
+
+    public void testMove() {
+        MapNodeCursor cursor = node.cursor();
+        assertSame(node.getBase(), cursor.getCurrent());
+        assertEquals(0, cursor.getDepth());
+        assertFalse(cursor.parent());
+
+        assertTrue(cursor.moveTo("servers.eu"));
+        assertEquals(2, cursor.getDepth());
+        assertEquals("servers.eu", cursor.getPath().toString());
+        assertSame(node.getObject("servers.eu"), cursor.getCurrent());
+
+        assertFalse(cursor.moveTo("host"));
+        assertFalse(cursor.moveTo("missing.key"));
+        assertFalse(cursor.moveTo((String) null));
+        assertEquals(2, cursor.getDepth());
+
+        assertTrue(cursor.parent());
+        assertTrue(cursor.moveTo("us"));
+        assertEquals("us.example.com", cursor.getString("host"));
+
+        cursor.root();
+        assertTrue(cursor.moveTo("list.1"));
+        assertEquals("b", cursor.getString("name"));
+    }
+
+    public void testGetters() {
+        MapNodeCursor cursor = node.cursor();
+        cursor.moveTo("servers");
+
+        assertEquals("eu.example.com", cursor.getString("eu.host"));
+        assertTrue(cursor.moveTo("eu"));
+        assertEquals(8080, cursor.getInt("port", 0));
+        assertEquals(Integer.valueOf(8080), cursor.getInteger("port"));
+        assertEquals(8080L, cursor.getLong("port", 0L));
+        assertEquals(8080.0, cursor.getDouble("port", 0.0), 0.0);
+        assertTrue(cursor.getBoolean("tls", false));
+        assertEquals("none", cursor.getString("missing", "none"));
+        assertEquals(Integer.valueOf(8080), cursor.getAs("port", Integer.class));
+        assertNull(cursor.getInteger("host"));
+        assertSame(cursor.getCurrent(), cursor.getObject(""));
+        assertNull(cursor.getObject((String) null));
+    }
+
+    public void testSet() throws InterruptedException {
+        node.setOptions(new MapNodeOptions().setCacheSize(16).setCacheHashes(true));
+        int hash = node.hashCode();
+        assertEquals("eu.example.com", node.getObject("servers.eu.host"));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Set<MapNodePath> seen = new HashSet<MapNodePath>();
+        node.setListenerExecutor(new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        node.addListener("servers.eu", new MapNodeListener() {
+
+            @Override
+            public void changed(MapNode node, Set<MapNodePath> paths) {
+                seen.addAll(paths);
+                latch.countDown();
+            }
+        });
+
+        MapNodeCursor cursor = node.cursor();
+        cursor.moveTo("servers.eu");
+        cursor.setObject("host", "new.example.com");
+        cursor.setObject("limits.max", 10);
+        cursor.removeObject("tls");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("new.example.com", node.getObject("servers.eu.host"));
+        assertEquals(10, node.getInt("servers.eu.limits.max"));
+        assertNull(node.getObject("servers.eu.tls"));
+        assertFalse(hash == node.hashCode());
+        assertTrue(seen.contains(MapNodePath.compile("servers.eu.host", node.getOptions())));
+        assertTrue(seen.contains(MapNodePath.compile("servers.eu.tls", node.getOptions())));
+    }
+
+    public void testRemoveMissing() {
+        final Set<MapNodePath> seen = new HashSet<MapNodePath>();
+        node.setListenerExecutor(new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        node.addListener("servers", new MapNodeListener() {
+
+            @Override
+            public void changed(MapNode node, Set<MapNodePath> paths) {
+                seen.addAll(paths);
+            }
+        });
+
+        MapNodeCursor cursor = node.cursor();
+        cursor.removeObject("servers.asia.host");
+        cursor.removeObject("servers.eu.limits.max");
+        assertTrue(seen.isEmpty());
+
+        cursor.removeObject("servers.eu.tls");
+        assertTrue(seen.contains(MapNodePath.compile("servers.eu.tls", node.getOptions())));
+    }
+
+    public void testBaseReplaced() {
+        MapNodeCursor cursor = node.cursor();
+        cursor.moveTo("servers.eu");
+
+        node.batch().set("servers.eu.port", 9090).commit();
+        assertEquals(9090, cursor.getInt("port", 0));
+        assertEquals(2, cursor.getDepth());
+
+        Map<String, Object> base = new HashMap<String, Object>();
+        base.put("servers", new HashMap<String, Object>());
+        node.setBase(base);
+        assertEquals(1, cursor.getDepth());
+        assertSame(base.get("servers"), cursor.getCurrent());
+    }
+}
@@ -0,0 +1,134 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class MapNodeHashesTest extends TestCase {
+
+    public MapNodeHashesTest(String testName) {
+        super(testName);
+    }
+
+    private MapNode createNode(boolean cacheHashes) {
+        List<Object> list = new ArrayList<Object>();
+        list.add(new EasyHashMap<String, Object>("name", "foo"));
+        list.add(null);
+        return new MapNode(new EasyHashMap<String, Object>(
+                "base", new EasyHashMap<String, Object>("core", "test", "list", list),
+                "other", new EasyHashMap<String, Object>("key", 5)),
+                new MapNodeOptions().setCacheHashes(cacheHashes));
+    }
+
+    public void testDisabledByDefault() {
+        assertNull(new MapNode().getHashes());
+    }
+
+    public void testSameAsUncached() {
+        MapNode cached = createNode(true);
+        MapNode plain = createNode(false);
+
+        assertEquals(plain.hashCode(), cached.hashCode());
+        assertEquals(cached.getBase().hashCode(), cached.getHashes().hashCode(cached.getBase()));
+        assertEquals(5, cached.getHashes().size());
+        assertEquals(plain, cached);
+    }
+
+    public void testInvalidation() {
+        MapNode cached = createNode(true);
+        MapNode plain = createNode(false);
+        cached.hashCode();
+
+        String[][] changes = {
+            {"base.core", "changed"},
+            {"base.list.0.name", "bar"},
+            {"other", "scalar"},
+            {"new.deep.key", "x"}
+        };
+        for (String[] change : changes) {
+            cached.setObject(change[0], change[1]);
+            plain.setObject(change[0], change[1]);
+            assertEquals(change[0], plain.hashCode(), cached.hashCode());
+        }
+
+        cached.removeObject("base.list.0");
+        plain.removeObject("base.list.0");
+        assertEquals(plain.hashCode(), cached.hashCode());
+
+        cached.removeObject("new");
+        plain.removeObject("new");
+        assertEquals(plain.hashCode(), cached.hashCode());
+
+        cached.loadYaml("a: [1, 2]");
+        plain.loadYaml("a: [1, 2]");
+        assertEquals(plain.hashCode(), cached.hashCode());
+    }
+
+    public void testEqualsMismatch() {
+        MapNode first = createNode(true);
+        MapNode second = createNode(true);
+        assertEquals(first, second);
+
+        second.setObject("base.core", "changed");
+        assertFalse(first.equals(second));
+        assertFalse(second.equals(first));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testManualInvalidation() {
+        MapNode cached = createNode(true);
+        int before = cached.hashCode();
+
+        ((Map<String, Object>) cached.getObject("base")).put("core", "changed");
+        assertEquals(before, cached.hashCode());
+
+        cached.invalidateHashes();
+        assertFalse(before == cached.hashCode());
+        assertEquals(createNode(false).getOptions().hashCode(), cached.getOptions().hashCode());
+    }
+
+    public void testSubNodes() {
+        MapNode cached = createNode(true);
+        MapNode plain = createNode(false);
+        cached.hashCode();
+
+        MapNode sub = cached.getMapNode("base");
+        assertSame(cached.getHashes(), sub.getHashes());
+        sub.setObject("core", "changed");
+        sub.getMapNode("list.0").setObject("name", "bar");
+        plain.setObject("base.core", "changed");
+        plain.setObject("base.list.0.name", "bar");
+        assertEquals(plain.hashCode(), cached.hashCode());
+        assertEquals(plain, cached);
+    }
+
+    public void testSharedContainers() {
+        MapNode cached = new MapNode(new HashMap<String, Object>(), new MapNodeOptions().setCacheHashes(true));
+        cached.loadYaml("a: &shared {x: 1}\nb:\n    c: *shared\n");
+        MapNode plain = new MapNode();
+        plain.loadYaml("a: &shared {x: 1}\nb:\n    c: *shared\n");
+        assertEquals(plain.hashCode(), cached.hashCode());
+
+        cached.setObject("a.x", 2);
+        plain.setObject("a.x", 2);
+        assertEquals(2, cached.getInt("b.c.x"));
+        assertEquals(plain.hashCode(), cached.hashCode());
+
+        cached.removeObject("a");
+        plain.removeObject("a");
+        cached.setObject("b.c.x", 3);
+        plain.setObject("b.c.x", 3);
+        assertEquals(plain.hashCode(), cached.hashCode());
+    }
+
+    public void testPrune() {
+        MapNode cached = createNode(true);
+        cached.hashCode();
+        cached.removeObject("base");
+        cached.hashCode();
+        assertEquals(2, cached.getHashes().size());
+        assertEquals(1, cached.getHashes().parents.size());
+    }
+}
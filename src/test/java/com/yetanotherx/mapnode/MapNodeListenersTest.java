@@ -0,0 +1,230 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+public class MapNodeListenersTest extends TestCase {
+
+    public MapNodeListenersTest(String testName) {
+        super(testName);
+    }
+
+    private static class QueueExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        public int runAll() {
+            int count = tasks.size();
+            List<Runnable> run = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+            for (Runnable task : run) {
+                task.run();
+            }
+            return count;
+        }
+    }
+
+    private static class RecordingListener implements MapNodeListener {
+
+        private final List<Set<MapNodePath>> calls = new ArrayList<Set<MapNodePath>>();
+
+        @Override
+        public void changed(MapNode node, Set<MapNodePath> paths) {
+            calls.add(new HashSet<MapNodePath>(paths));
+        }
+    }
+
+    private static Set<MapNodePath> paths(String... paths) {
+        Set<MapNodePath> out = new HashSet<MapNodePath>();
+        for (String path : paths) {
+            out.add(MapNodePath.compile(path, "."));
+        }
+        return out;
+    }
+
+    public void testBatching() {
+        MapNode node = new MapNode();
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener listener = new RecordingListener();
+        node.setListenerExecutor(executor);
+        node.addListener("base", listener);
+
+        node.setObject("base.a", 1);
+        node.setObject("base.b", 2);
+        node.setObject("base.a", 3);
+        node.setObject("other", 4);
+
+        assertEquals(1, executor.runAll());
+        assertEquals(1, listener.calls.size());
+        assertEquals(paths("base.a", "base.b"), listener.calls.get(0));
+
+        assertEquals(0, executor.runAll());
+        assertEquals(1, listener.calls.size());
+    }
+
+    public void testMatching() {
+        MapNode node = new MapNode();
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener listener = new RecordingListener();
+        node.setListenerExecutor(executor);
+        node.addListener("base.core", listener);
+
+        node.setObject("base", new EasyHashMap<String, Object>());
+        node.setObject("base.core.deep", "x");
+        node.setObject("base.coreother", "x");
+        node.removeObject("base.core.deep");
+        node.loadYaml("base: {}");
+        executor.runAll();
+
+        assertEquals(1, listener.calls.size());
+        assertEquals(paths("base", "base.core.deep", ""), listener.calls.get(0));
+    }
+
+    public void testRemoveListener() {
+        MapNode node = new MapNode();
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener listener = new RecordingListener();
+        node.setListenerExecutor(executor);
+        node.addListener("", listener);
+        node.removeListener(listener);
+
+        node.setObject("a", 1);
+        assertEquals(0, executor.runAll());
+        assertEquals(0, listener.calls.size());
+    }
+
+    public void testDefaultExecutor() throws InterruptedException {
+        MapNode node = new MapNode();
+        final CountDownLatch latch = new CountDownLatch(1);
+        node.addListener("a", new MapNodeListener() {
+
+            @Override
+            public void changed(MapNode node, Set<MapNodePath> paths) {
+                latch.countDown();
+            }
+        });
+
+        node.setObject("a", 1);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    public void testListenerExceptions() {
+        MapNode node = new MapNode();
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener listener = new RecordingListener();
+        node.setListenerExecutor(executor);
+        node.addListener("a", new MapNodeListener() {
+
+            @Override
+            public void changed(MapNode node, Set<MapNodePath> paths) {
+                throw new IllegalStateException("failing listener");
+            }
+        });
+        node.addListener("a", listener);
+
+        final List<Throwable> reported = new ArrayList<Throwable>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                reported.add(e);
+            }
+        });
+        try {
+            node.setObject("a", 1);
+            assertEquals(1, executor.runAll());
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+
+        assertEquals(1, reported.size());
+        assertEquals("failing listener", reported.get(0).getMessage());
+        assertEquals(1, listener.calls.size());
+    }
+
+    public void testRejectedDispatch() {
+        MapNode node = new MapNode();
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+        RecordingListener listener = new RecordingListener();
+        node.setListenerExecutor(stopped);
+        node.addListener("", listener);
+
+        final List<Throwable> reported = new ArrayList<Throwable>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                reported.add(e);
+            }
+        });
+        try {
+            node.setObject("a", 1);
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+        assertEquals(1, node.getInt("a"));
+        assertEquals(1, reported.size());
+        assertTrue(reported.get(0) instanceof RejectedExecutionException);
+
+        QueueExecutor executor = new QueueExecutor();
+        node.setListenerExecutor(executor);
+        node.setObject("b", 2);
+        assertEquals(1, executor.runAll());
+        assertEquals(1, listener.calls.size());
+        assertEquals(paths("a", "b"), listener.calls.get(0));
+    }
+
+    public void testRemoveMissing() {
+        MapNode node = new MapNode();
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener listener = new RecordingListener();
+        node.setListenerExecutor(executor);
+        node.addListener("", listener);
+
+        node.removeObject("a");
+        node.removeObject("a.b.c");
+        node.removeObject(MapNodePath.compile("a.b", "."));
+        node.cursor().removeObject("a.b");
+        assertEquals(0, executor.runAll());
+
+        node.setObject("a.b", null);
+        executor.runAll();
+        node.removeObject("a.b");
+        executor.runAll();
+        assertEquals(2, listener.calls.size());
+        assertEquals(paths("a.b"), listener.calls.get(1));
+    }
+
+    public void testNullPath() {
+        MapNode node = new MapNode();
+        try {
+            node.addListener((String) null, new RecordingListener());
+            fail("Expected MapNodeException");
+        } catch (MapNodeException e) {
+        }
+        try {
+            node.addListener((MapNodePath) null, new RecordingListener());
+            fail("Expected MapNodeException");
+        } catch (MapNodeException e) {
+        }
+    }
+}
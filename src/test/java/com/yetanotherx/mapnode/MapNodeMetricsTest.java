@@ -0,0 +1,102 @@
+package com.yetanotherx.mapnode;
+
+import com.yetanotherx.mapnode.MapNodeMetrics.Operation;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class MapNodeMetricsTest extends TestCase {
+
+    public MapNodeMetricsTest(String testName) {
+        super(testName);
+    }
+
+    private static long sum(long[] values) {
+        long out = 0;
+        for (long value : values) {
+            out += value;
+        }
+        return out;
+    }
+
+    public void testOperations() {
+        MapNodeMetrics metrics = new MapNodeMetrics();
+        MapNode node = new MapNode(new HashMap<String, Object>(), new MapNodeOptions().setMetrics(metrics));
+
+        node.loadYaml("a:\n    b:\n        c: 1\nlist: [1, 2]\n");
+        assertEquals(1, metrics.getCount(Operation.LOAD));
+
+        assertEquals(1, node.getInt("a.b.c"));
+        assertEquals(2, node.getInt(MapNodePath.compile("list.1", node.getOptions())));
+        assertNull(node.getObject((String) null));
+        assertEquals(2, metrics.getCount(Operation.GET));
+
+        node.setObject("x", "y");
+        node.setObject("a.b.d", "e");
+        node.removeObject("a.b.d");
+        assertEquals(2, metrics.getCount(Operation.SET));
+        assertEquals(1, metrics.getCount(Operation.REMOVE));
+
+        node.debug();
+        node.toBytes();
+        assertEquals(2, metrics.getCount(Operation.DUMP));
+
+        long[] depths = metrics.getDepthHistogram();
+        assertEquals(1, depths[1]);
+        assertEquals(1, depths[2]);
+        assertEquals(3, depths[3]);
+
+        assertEquals(2, sum(metrics.getLatencyHistogram(Operation.GET)));
+        assertTrue(metrics.getTotalTime(Operation.LOAD) > 0);
+        assertTrue(metrics.getLatencyPercentile(Operation.LOAD, 50) > 0);
+        assertEquals(0, new MapNodeMetrics().getLatencyPercentile(Operation.GET, 50));
+    }
+
+    public void testConverterFailures() {
+        MapNodeMetrics metrics = new MapNodeMetrics();
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("name", "foo");
+        map.put("number", 5);
+        MapNode node = new MapNode(map, new MapNodeOptions().setMetrics(metrics));
+
+        assertNull(node.getInteger("name"));
+        assertNull(node.getDouble("name"));
+        assertEquals(Integer.valueOf(5), node.getInteger("number"));
+        assertNull(node.getInteger("missing"));
+        assertEquals(2, metrics.getConverterFailures());
+    }
+
+    public void testHottestPaths() {
+        MapNodeMetrics metrics = new MapNodeMetrics(2);
+        MapNode node = new MapNode(new HashMap<String, Object>(), new MapNodeOptions().setMetrics(metrics));
+
+        for (int i = 0; i < 3; ++i) {
+            node.getObject("hot.path");
+        }
+        node.getObject("cold");
+        node.getObject("untracked");
+
+        List<Map.Entry<String, Long>> hottest = metrics.getHottestPaths(5);
+        assertEquals(2, hottest.size());
+        assertEquals("hot.path", hottest.get(0).getKey());
+        assertEquals(Long.valueOf(3), hottest.get(0).getValue());
+        assertEquals("cold", hottest.get(1).getKey());
+        assertEquals(1, metrics.getHottestPaths(1).size());
+        assertEquals(1, metrics.getUntrackedPathCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(Operation.GET));
+        assertTrue(metrics.getHottestPaths(5).isEmpty());
+    }
+
+    public void testDisabled() {
+        MapNodeOptions options = new MapNodeOptions();
+        assertNull(options.getMetrics());
+        assertEquals(options, new MapNodeOptions().setMetrics(new MapNodeMetrics()));
+
+        MapNodeMetrics metrics = new MapNodeMetrics();
+        MapNodeOptions clone = (MapNodeOptions) options.setMetrics(metrics).clone();
+        assertSame(metrics, clone.getMetrics());
+    }
+}
@@ -65,5 +65,47 @@ public class MapNodeOptionsTest extends TestCase {
         baseNode.setOptions(new MapNodeOptions().setSeparatorChar("*"));
         result = baseNode.getString("list*key");
         assertEquals(result, "value");
+
+        try {
+            new MapNodeOptions().setSeparatorChar("");
+            fail("Expected MapNodeException");
+        } catch (MapNodeException e) {
+        }
+    }
+
+    public void testLazyLists() {
+        baseNode.setOptions(new MapNodeOptions().setLazyLists(true));
+        List<Integer> result = baseNode.getIntegerList("intList");
+        assertEquals(result, new EasyArrayList<Integer>(1, 3));
+
+        try {
+            result.add(5);
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+        }
+
+        baseNode.setOptions(new MapNodeOptions().setLazyLists(false));
+        result = baseNode.getIntegerList("intList");
+        result.add(5);
+        assertEquals(result, new EasyArrayList<Integer>(1, 3, 5));
+    }
+
+    public void testMemoizeLazyLists() {
+        MapNodeOptions options = new MapNodeOptions().setLazyLists(true).setMemoizeLazyLists(true);
+        assertTrue(options.shouldMemoizeLazyLists());
+        assertTrue(((MapNodeOptions) options.clone()).shouldMemoizeLazyLists());
+        assertEquals(new MapNodeOptions(), options);
+
+        baseNode.setOptions(options);
+        List<Integer> result = baseNode.getIntegerList("intList");
+        assertEquals(Integer.valueOf(1), result.get(0));
+        baseNode.setObject("intList.0", 7);
+        assertEquals(Integer.valueOf(1), result.get(0));
+
+        baseNode.setOptions(new MapNodeOptions().setLazyLists(true));
+        result = baseNode.getIntegerList("intList");
+        assertEquals(Integer.valueOf(7), result.get(0));
+        baseNode.setObject("intList.0", 1);
+        assertEquals(Integer.valueOf(1), result.get(0));
     }
 }
@@ -0,0 +1,102 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import junit.framework.TestCase;
+
+public class MapNodePatchTest extends TestCase {
+
+    public MapNodePatchTest(String testName) {
+        super(testName);
+    }
+
+    private static MapNodePath path(String path) {
+        return MapNodePath.compile(path, ".");
+    }
+
+    public void testDiff() {
+        MapNode from = new MapNode();
+        from.loadYaml("a: 1\nb: {c: 2, d: 3}\nlist: [1, 2]\nresized: [1]\ngone: x\n");
+        MapNode to = new MapNode();
+        to.loadYaml("a: 1\nb: {c: 5, e: 6}\nlist: [1, 4]\nresized: [1, 2]\nnew: y\n");
+
+        MapNodePatch patch = from.diff(to);
+        List<MapNodePatch.Operation> expected = Arrays.asList(
+                new MapNodePatch.Operation(MapNodePatch.Type.REMOVE, path("gone"), null),
+                new MapNodePatch.Operation(MapNodePatch.Type.REMOVE, path("b.d"), null),
+                new MapNodePatch.Operation(MapNodePatch.Type.REPLACE, path("b.c"), 5),
+                new MapNodePatch.Operation(MapNodePatch.Type.ADD, path("b.e"), 6),
+                new MapNodePatch.Operation(MapNodePatch.Type.REPLACE, path("list.1"), 4),
+                new MapNodePatch.Operation(MapNodePatch.Type.REPLACE, path("resized"), Arrays.asList(1, 2)),
+                new MapNodePatch.Operation(MapNodePatch.Type.ADD, path("new"), "y"));
+
+        assertEquals(expected.size(), patch.size());
+        assertTrue(patch.getOperations().containsAll(expected));
+
+        from.apply(patch);
+        assertEquals(to.getBase(), from.getBase());
+        assertTrue(from.diff(to).isEmpty());
+    }
+
+    public void testIdenticalSubtrees() {
+        List<Object> shared = new ArrayList<Object>();
+        shared.add("x");
+        MapNode from = new MapNode(new EasyHashMap<String, Object>("shared", shared, "a", 1));
+        MapNode to = new MapNode(new EasyHashMap<String, Object>("shared", shared, "a", 2));
+
+        assertEquals(1, from.diff(to).size());
+        assertTrue(from.diff(from).isEmpty());
+    }
+
+    public void testSnapshots() {
+        MapNode node = new MapNode();
+        node.loadYaml("a: {b: 1}\nc: {d: 2}\n");
+        MapNodeSnapshot first = node.snapshot();
+        MapNodeSnapshot second = first.with("a.b", 3).without("c.d");
+
+        MapNodePatch patch = first.diff(second);
+        assertEquals(2, patch.size());
+
+        node.apply(patch);
+        assertEquals(second.getBase(), node.getBase());
+    }
+
+    public void testApplyCopiesValues() {
+        MapNode from = new MapNode();
+        MapNode to = new MapNode();
+        to.loadYaml("a: {b: 1}\nlist: [{c: 2}]\n");
+
+        from.apply(from.diff(to));
+        from.setObject("a.b", 5);
+        from.setObject("list.0.c", 6);
+        assertEquals(1, to.getInt("a.b"));
+        assertEquals(2, to.getInt("list.0.c"));
+
+        MapNodeSnapshot snapshot = to.snapshot();
+        MapNode node = new MapNode();
+        node.apply(node.diff(snapshot));
+        node.setObject("a.b", 7);
+        node.setObject("a.new", 8);
+        assertEquals(7, node.getInt("a.b"));
+        assertEquals(1, snapshot.getInt("a.b"));
+
+        ConcurrentMapNode concurrent = new ConcurrentMapNode();
+        concurrent.apply(concurrent.diff(to));
+        assertEquals(to.getBase(), concurrent.getBase());
+        assertTrue(concurrent.getObject("a") instanceof ConcurrentHashMap);
+    }
+
+    public void testNonStringKeys() {
+        MapNode from = new MapNode();
+        from.loadYaml("1: one\n");
+        MapNode to = new MapNode();
+        to.loadYaml("1: uno\n");
+
+        List<MapNodePatch.Operation> expected = Arrays.asList(
+                new MapNodePatch.Operation(MapNodePatch.Type.REPLACE, path("1"), "uno"));
+        assertEquals(expected, from.diff(to).getOperations());
+        assertTrue(from.diff(from).isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package com.yetanotherx.mapnode;
+
+import junit.framework.TestCase;
+
+public class MapNodePathTest extends TestCase {
+
+    public MapNodePathTest(String testName) {
+        super(testName);
+    }
+
+    public void testCompile() {
+        MapNodePath path = MapNodePath.compile("base.core.test", new MapNodeOptions());
+        assertEquals(3, path.size());
+        assertEquals("base", path.getSegment(0));
+        assertEquals("core", path.getSegment(1));
+        assertEquals("test", path.getSegment(2));
+        assertEquals("base.core.test", path.toString());
+
+        path = MapNodePath.compile("base*core", new MapNodeOptions().setSeparatorChar("*"));
+        assertEquals(2, path.size());
+        assertEquals("core", path.getSegment(1));
+
+        assertEquals(1, MapNodePath.compile("base", ".").size());
+        assertEquals(2, MapNodePath.compile("base.core..", ".").size());
+        assertEquals(3, MapNodePath.compile("base..core", ".").size());
+        assertNull(MapNodePath.compile(null, "."));
+        assertSame(MapNodePath.ROOT, MapNodePath.compile("", "."));
+        assertTrue(MapNodePath.ROOT.isRoot());
+
+        try {
+            MapNodePath.compile("a.b", "");
+            fail("Expected MapNodeException");
+        } catch (MapNodeException e) {
+        }
+    }
+
+    public void testOf() {
+        MapNodePath path = MapNodePath.of(".", "base", "core");
+        assertEquals("base.core", path.getPath());
+        assertEquals(MapNodePath.compile("base.core", "."), path);
+    }
+
+    public void testEquals() {
+        assertEquals(MapNodePath.compile("a.b", "."), MapNodePath.compile("a*b", "*"));
+        assertEquals(MapNodePath.compile("a.b", ".").hashCode(), MapNodePath.compile("a*b", "*").hashCode());
+        assertFalse(MapNodePath.compile("a.b", ".").equals(MapNodePath.compile("a.c", ".")));
+    }
+}
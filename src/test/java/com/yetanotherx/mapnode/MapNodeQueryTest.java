@@ -0,0 +1,100 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import junit.framework.TestCase;
+
+public class MapNodeQueryTest extends TestCase {
+
+    protected MapNode node;
+
+    public MapNodeQueryTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        node = new MapNode();
+        node.loadYaml("servers:\n    eu: {host: eu.example.com, port: 80}\n    us: {host: us.example.com, port: 81}\n    asia: {host: asia.example.com}\n"
+                + "plugins:\n    enabled: true\n    auth:\n        enabled: false\n        ldap: {enabled: true}\n"
+                + "list: [a, b, c, d]\n");
+    }
+
+    private List<String> paths(String query) {
+        List<String> out = new ArrayList<String>();
+        for (MapNodeQuery.Match match : MapNodeQuery.compile(query, node.getOptions()).getMatches(node)) {
+            out.add(match.toString());
+        }
+        return out;
+    }
+
+    public void testWildcard() {
+        assertEquals(Arrays.asList("servers.eu.port=80", "servers.us.port=81"), paths("servers.*.port"));
+        assertEquals(Arrays.asList("list.0=a", "list.1=b", "list.2=c", "list.3=d"), paths("list.*"));
+        assertEquals(Arrays.asList("servers.eu.host=eu.example.com"), paths("servers.eu.host"));
+        assertTrue(paths("servers.*.missing").isEmpty());
+        assertTrue(paths("list.*.deeper").isEmpty());
+    }
+
+    public void testAnyDepth() {
+        assertEquals(Arrays.asList("plugins.enabled=true", "plugins.auth.enabled=false", "plugins.auth.ldap.enabled=true"), paths("plugins.**.enabled"));
+        assertEquals(paths("plugins.**.enabled"), paths("plugins.**.**.enabled"));
+        assertEquals(3, paths("**.port").size() + paths("**.list.0").size());
+        assertEquals(3, paths("**.host").size());
+    }
+
+    public void testDuplicatePaths() {
+        MapNode tree = new MapNode();
+        tree.loadYaml("a:\n    b: 1\n");
+        List<String> out = new ArrayList<String>();
+        for (MapNodeQuery.Match match : MapNodeQuery.compile("**.*.**", tree.getOptions()).getMatches(tree)) {
+            out.add(match.getPath().toString());
+        }
+        assertEquals(Arrays.asList("a", "a.b"), out);
+        assertEquals(Arrays.asList("plugins.auth.ldap.enabled=true"), paths("**.ldap.**.enabled"));
+        assertEquals(paths("plugins.**.enabled"), paths("**.plugins.**.enabled"));
+    }
+
+    public void testRange() {
+        assertEquals(Arrays.asList("list.1=b", "list.2=c"), paths("list.[1:3]"));
+        assertEquals(Arrays.asList("list.2=c", "list.3=d"), paths("list.[2:]"));
+        assertEquals(Arrays.asList("list.0=a"), paths("list.[:1]"));
+        assertEquals(4, paths("list.[:]").size());
+        assertTrue(paths("list.[9:]").isEmpty());
+        assertTrue(paths("servers.[0:1]").isEmpty());
+
+        try {
+            MapNodeQuery.compile("list.[a:b]", node.getOptions());
+            fail("Expected a MapNodeException");
+        } catch (MapNodeException e) {
+        }
+    }
+
+    public void testLazy() {
+        Iterator<MapNodeQuery.Match> it = MapNodeQuery.compile("**", node.getOptions()).iterator(node);
+        assertTrue(it.hasNext());
+        MapNodeQuery.Match first = it.next();
+        assertTrue(first.getPath().isRoot());
+        assertSame(node.getBase(), first.getValue());
+
+        List<Object> ports = node.query("servers.*.port").map(MapNodeQuery.Match::getValue).collect(Collectors.toList());
+        assertEquals(Arrays.<Object>asList(80, 81), ports);
+        assertEquals("servers.eu", node.query("servers.*").findFirst().get().getPath().getPath());
+        assertNull(MapNodeQuery.compile(null, "."));
+        assertEquals("servers.*.port", MapNodeQuery.compile("servers.*.port", ".").toString());
+    }
+
+    public void testRecursive() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("value", 1);
+        map.put("self", map);
+        MapNode recursive = new MapNode(map);
+
+        assertEquals(1, MapNodeQuery.compile("**.value", ".").getMatches(recursive).size());
+    }
+}
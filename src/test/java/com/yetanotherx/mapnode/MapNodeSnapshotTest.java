@@ -0,0 +1,115 @@
+package com.yetanotherx.mapnode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class MapNodeSnapshotTest extends TestCase {
+
+    public MapNodeSnapshotTest(String testName) {
+        super(testName);
+    }
+
+    private MapNode createNode() {
+        List<Object> list = new ArrayList<Object>();
+        list.add(new EasyHashMap<String, Object>("name", "foo"));
+        list.add("bar");
+        return new MapNode(new EasyHashMap<String, Object>(
+                "base", new EasyHashMap<String, Object>("core", "test", "list", list),
+                "other", new EasyHashMap<String, Object>("key", "value")));
+    }
+
+    public void testSnapshot() {
+        MapNode node = createNode();
+        MapNodeSnapshot snapshot = node.snapshot();
+
+        assertTrue(snapshot.getBase() instanceof PersistentMap);
+        assertEquals(node.getBase(), snapshot.getBase());
+        assertEquals(node.getBase().hashCode(), snapshot.getBase().hashCode());
+        assertEquals("foo", snapshot.getString("base.list.0.name"));
+
+        node.setObject("base.core", "changed");
+        assertEquals("test", snapshot.getString("base.core"));
+        assertSame(snapshot, snapshot.snapshot());
+    }
+
+    public void testWith() {
+        MapNodeSnapshot snapshot = createNode().snapshot();
+        MapNodeSnapshot changed = snapshot.with("base.core", "changed");
+
+        assertEquals("test", snapshot.getString("base.core"));
+        assertEquals("changed", changed.getString("base.core"));
+        assertSame(snapshot.getObject("other"), changed.getObject("other"));
+        assertSame(snapshot.getObject("base.list"), changed.getObject("base.list"));
+
+        MapNodeSnapshot created = snapshot.with("new.deep.key", "x");
+        assertEquals("x", created.getString("new.deep.key"));
+        assertTrue(created.getObject("new.deep") instanceof PersistentMap);
+
+        MapNodeSnapshot listed = snapshot.with("base.list.0.name", "baz").with("base.list.2", "end");
+        assertEquals("baz", listed.getString("base.list.0.name"));
+        assertEquals("end", listed.getString("base.list.2"));
+        assertEquals("foo", snapshot.getString("base.list.0.name"));
+        assertEquals(2, snapshot.getList("base.list").size());
+
+        assertSame(snapshot, snapshot.with("base.list.5", "x"));
+        assertSame(snapshot, snapshot.with("base.core", "test"));
+        assertSame(snapshot, snapshot.with((String) null, "x"));
+
+        Map<String, Object> map = new EasyHashMap<String, Object>("a", "b");
+        MapNodeSnapshot withMap = snapshot.with("base.map", map);
+        map.put("a", "c");
+        assertEquals("b", withMap.getString("base.map.a"));
+    }
+
+    public void testWithout() {
+        MapNodeSnapshot snapshot = createNode().snapshot();
+        MapNodeSnapshot removed = snapshot.without("base.core");
+
+        assertNull(removed.getObject("base.core"));
+        assertEquals("test", snapshot.getString("base.core"));
+        assertSame(snapshot, snapshot.without("base.none.deeper"));
+        assertEquals(1, snapshot.without("base.list.0").getList("base.list").size());
+        assertEquals(0, snapshot.without("").getBase().size());
+    }
+
+    public void testImmutable() {
+        MapNodeSnapshot snapshot = createNode().snapshot();
+        try {
+            snapshot.setObject("base.core", "x");
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            snapshot.setObject("core", "x");
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            snapshot.removeObject("base");
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            snapshot.getList("base.list").add("x");
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            snapshot.getMapNode("base").setObject("core", "x");
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals("test", snapshot.getString("base.core"));
+    }
+
+    public void testDeepCopy() {
+        MapNode node = new MapNode();
+        node.loadYaml("a: {b: 1}\n");
+        MapNodeSnapshot snapshot = node.snapshot();
+
+        assertSame(snapshot, snapshot.deepCopy());
+        assertTrue(snapshot.getObject("a") instanceof PersistentMap);
+    }
+}
@@ -4,6 +4,13 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -47,10 +54,53 @@ public class MapNodeTest extends TestCase {
         assertEquals("[foo, bar]", baseNode.getObject("children").toString());
         assertEquals("[{foo=bar, baz=bat}, {bar=foo, bat=baz}]", baseNode.getObject("keyldren").toString());
         assertEquals("{foo=bar, baz=bat}", baseNode.getObject("keyldren.0").toString());
-        assertEquals(null, baseNode.getObject(null));
+        assertEquals(null, baseNode.getObject((String) null));
         assertEquals(baseNode.getBase().toString(), baseNode.getObject("").toString());
     }
 
+    public void testGetObjectFromCompiledPath() {
+        MapNodeOptions options = baseNode.getOptions();
+        assertEquals("foo", baseNode.getObject(MapNodePath.compile("core", options)));
+        assertEquals("value", baseNode.getObject(MapNodePath.compile("list.key", options)));
+        assertEquals("{foo=bar, baz=bat}", baseNode.getObject(MapNodePath.compile("keyldren.0", options)).toString());
+        assertEquals(null, baseNode.getObject(MapNodePath.compile("core.foo", options)));
+        assertEquals(null, baseNode.getObject(MapNodePath.compile("keyldren.2", options)));
+        assertEquals(null, baseNode.getObject(MapNodePath.compile("keyldren.foo", options)));
+        assertEquals("bat", baseNode.getObject(MapNodePath.compile("keyldren.0.baz", options)));
+        assertEquals(null, baseNode.getObject((MapNodePath) null));
+        assertEquals(baseNode.getBase(), baseNode.getObject(MapNodePath.ROOT));
+
+        assertEquals("value", baseNode.getString(MapNodePath.compile("list.key", options)));
+        assertEquals(4, baseNode.getInteger(MapNodePath.compile("inty", options)).intValue());
+        assertEquals(new EasyArrayList<Integer>(1, 3), baseNode.getIntegerList(MapNodePath.compile("intList", options)));
+    }
+
+    public void testGetAll() {
+        Map<String, Object> all = baseNode.getAll(Arrays.asList("keyldren.0.foo", "list.key", "keyldren.1.bat", "core", "keyldren.5.foo", "missing.key", "", null, "core"));
+        assertEquals(Arrays.asList("keyldren.0.foo", "list.key", "keyldren.1.bat", "core", "keyldren.5.foo", "missing.key", ""), Arrays.asList(all.keySet().toArray()));
+        assertEquals("bar", all.get("keyldren.0.foo"));
+        assertEquals("value", all.get("list.key"));
+        assertEquals("baz", all.get("keyldren.1.bat"));
+        assertEquals("foo", all.get("core"));
+        assertNull(all.get("keyldren.5.foo"));
+        assertNull(all.get("missing.key"));
+        assertSame(baseNode.getBase(), all.get(""));
+        assertTrue(baseNode.getAll(Arrays.<String>asList()).isEmpty());
+    }
+
+    public void testSetObjectCreatesMaps() {
+        MapNode newNode = new MapNode();
+        newNode.setObject("base.test.core", "foo");
+        assertEquals("{base={test={core=foo}}}", newNode.getBase().toString());
+
+        MapNodePath path = MapNodePath.compile("base.test.core", newNode.getOptions());
+        newNode.setObject(path, "bar");
+        assertEquals("bar", newNode.getObject(path));
+
+        newNode.removeObject(path);
+        assertEquals("{base={test={}}}", newNode.getBase().toString());
+    }
+
     public void testSetObjectWithPath() throws CloneNotSupportedException {
         MapNode newNode = (MapNode) this.baseNode.clone();
 
@@ -75,15 +125,32 @@ public class MapNodeTest extends TestCase {
         assertEquals("[{fiz=bur, biz=bit}, {bit=biz, bir=fio}]", newNode.getObject("keyldren").toString());
 
         newNode.setObject("keyldren.0", new EasyHashMap<String, Object>("fio", "bir", "biz", "bit"));
-        //assertEquals("{fio=bir, biz=bit}", newNode.getObject("keyldren.0").toString());
-        //TODO: Setting list values doesn't work yet.
+        assertEquals(new EasyHashMap<String, Object>("fio", "bir", "biz", "bit"), newNode.getObject("keyldren.0"));
 
         newNode.setObject("", new EasyHashMap<String, Object>("fiz", "faz"));
-        newNode.setObject(null, new EasyHashMap<String, Object>("fiz", "faz"));
+        newNode.setObject((String) null, new EasyHashMap<String, Object>("fiz", "faz"));
         assertEquals(newNode.getBase().toString(), newNode.getObject("").toString());
 
     }
 
+    public void testSetObjectInList() throws CloneNotSupportedException {
+        MapNode newNode = (MapNode) this.baseNode.clone();
+
+        newNode.setObject("keyldren.0", new EasyHashMap<String, Object>("fio", "bir"));
+        assertEquals(new EasyHashMap<String, Object>("fio", "bir"), newNode.getObject("keyldren.0"));
+
+        newNode.setObject("keyldren.1.bar", "fia");
+        assertEquals("fia", newNode.getObject("keyldren.1.bar"));
+
+        newNode.setObject("keyldren.2", "appended");
+        assertEquals("appended", newNode.getObject("keyldren.2"));
+        newNode.setObject("keyldren.5", "ignored");
+        assertEquals(3, newNode.getList("keyldren").size());
+
+        newNode.setObject("keyldren.2.key", "value");
+        assertEquals("value", newNode.getObject("keyldren.2.key"));
+    }
+
     public void testRemoveObjectWithPath() throws CloneNotSupportedException {
         MapNode newNode = (MapNode) this.baseNode.clone();
 
@@ -94,11 +161,13 @@ public class MapNodeTest extends TestCase {
         assertEquals(null, newNode.getObject("list.key"));
         assertEquals(new LinkedHashMap<String, Object>(), newNode.getObject("list"));
 
-        //TODO: removeObject doesn't work on lists
+        newNode.removeObject("children.0");
+        assertEquals(new EasyArrayList<Object>("bar"), newNode.getObject("children"));
+
         newNode.removeObject("children");
         assertEquals(null, newNode.getObject("children"));
 
-        newNode.removeObject(null);
+        newNode.removeObject((String) null);
         assertNotSame(null, newNode.getObject("keyldren"));
 
         newNode.removeObject("");
@@ -111,7 +180,7 @@ public class MapNodeTest extends TestCase {
         assertEquals("4", this.baseNode.getString("inty"));
         assertEquals("4.5", this.baseNode.getString("doubley"));
         assertEquals(this.baseNode.base.toString(), this.baseNode.getString(""));
-        assertEquals(null, this.baseNode.getString(null));
+        assertEquals(null, this.baseNode.getString((String) null));
     }
 
     public void testGetInteger() {
@@ -120,7 +189,7 @@ public class MapNodeTest extends TestCase {
         assertEquals(4, this.baseNode.getInteger("inty").intValue());
         assertEquals(4, this.baseNode.getInteger("doubley").intValue());
         assertEquals(null, this.baseNode.getInteger(""));
-        assertEquals(null, this.baseNode.getInteger(null));
+        assertEquals(null, this.baseNode.getInteger((String) null));
     }
 
     public void testGetDouble() {
@@ -129,7 +198,7 @@ public class MapNodeTest extends TestCase {
         assertEquals(4.0D, this.baseNode.getDouble("inty").doubleValue());
         assertEquals(4.5D, this.baseNode.getDouble("doubley").doubleValue());
         assertEquals(null, this.baseNode.getDouble(""));
-        assertEquals(null, this.baseNode.getDouble(null));
+        assertEquals(null, this.baseNode.getDouble((String) null));
     }
 
     public void testGetBoolean() {
@@ -139,7 +208,29 @@ public class MapNodeTest extends TestCase {
         assertEquals(false, this.baseNode.getBoolean("doubley").booleanValue());
         assertEquals(true, this.baseNode.getBoolean("booley").booleanValue());
         assertEquals(false, this.baseNode.getBoolean("").booleanValue());
-        assertEquals(null, this.baseNode.getBoolean(null));
+        assertEquals(null, this.baseNode.getBoolean((String) null));
+    }
+
+    public void testGetPrimitives() {
+        assertEquals(4, this.baseNode.getInt("inty"));
+        assertEquals(4, this.baseNode.getInt("doubley"));
+        assertEquals(0, this.baseNode.getInt("notExist"));
+        assertEquals(-1, this.baseNode.getInt("core", -1));
+        assertEquals(4, this.baseNode.getInt(MapNodePath.compile("inty", baseNode.getOptions()), -1));
+
+        assertEquals(4L, this.baseNode.getLong("inty"));
+        assertEquals(-1L, this.baseNode.getLong("core", -1L));
+        assertEquals(4L, this.baseNode.getLong(MapNodePath.compile("inty", baseNode.getOptions())));
+
+        assertEquals(4.5D, this.baseNode.getDouble("doubley", -1.0D));
+        assertEquals(4.0D, this.baseNode.getDouble("inty", -1.0D));
+        assertEquals(-1.0D, this.baseNode.getDouble("core", -1.0D));
+        assertEquals(-1.0D, this.baseNode.getDouble("notExist", -1.0D));
+
+        assertEquals(true, this.baseNode.getBoolean("booley", false));
+        assertEquals(false, this.baseNode.getBoolean("core", true));
+        assertEquals(true, this.baseNode.getBoolean("notExist", true));
+        assertEquals(true, this.baseNode.getBoolean(MapNodePath.compile("booley", baseNode.getOptions()), false));
     }
 
     public void testGetMapNode() {
@@ -147,7 +238,7 @@ public class MapNodeTest extends TestCase {
         assertEquals(new MapNode(new EasyHashMap<String, Object>("key", "value")).toString(), this.baseNode.getMapNode("list").toString());
         assertEquals(null, this.baseNode.getMapNode("core"));
         assertEquals(this.baseNode, this.baseNode.getMapNode(""));
-        assertEquals(null, this.baseNode.getMapNode(null));
+        assertEquals(null, this.baseNode.getMapNode((String) null));
     }
 
     public void testGetList() {
@@ -155,7 +246,7 @@ public class MapNodeTest extends TestCase {
         assertEquals(new EasyArrayList<String>("foo", "bar"), this.baseNode.getList("children"));
         assertEquals(null, this.baseNode.getList("core"));
         assertEquals(null, this.baseNode.getList(""));
-        assertEquals(null, this.baseNode.getList(null));
+        assertEquals(null, this.baseNode.getList((String) null));
     }
 
     public void testGetIntegerList() {
@@ -163,7 +254,7 @@ public class MapNodeTest extends TestCase {
         assertEquals(new EasyArrayList<Integer>(1, 3), this.baseNode.getIntegerList("intList"));
         assertEquals(null, this.baseNode.getIntegerList("core"));
         assertEquals(null, this.baseNode.getIntegerList(""));
-        assertEquals(null, this.baseNode.getIntegerList(null));
+        assertEquals(null, this.baseNode.getIntegerList((String) null));
     }
 
     public void testGetDoubleList() {
@@ -171,7 +262,33 @@ public class MapNodeTest extends TestCase {
         assertEquals(new EasyArrayList<Double>(1.3D, 3.5D), this.baseNode.getDoubleList("doubleList"));
         assertEquals(null, this.baseNode.getDoubleList("core"));
         assertEquals(null, this.baseNode.getDoubleList(""));
-        assertEquals(null, this.baseNode.getDoubleList(null));
+        assertEquals(null, this.baseNode.getDoubleList((String) null));
+    }
+
+    public void testGetPrimitiveArrays() {
+        assertEquals(null, this.baseNode.getIntArray("notExist"));
+        assertTrue(Arrays.equals(new int[]{1, 3}, this.baseNode.getIntArray("intList")));
+        assertTrue(Arrays.equals(new int[]{1, 3}, this.baseNode.getIntArray("doubleList")));
+        assertEquals(null, this.baseNode.getIntArray("core"));
+        assertTrue(Arrays.equals(new double[]{1.3D, 3.5D}, this.baseNode.getDoubleArray("doubleList")));
+        assertTrue(Arrays.equals(new double[]{1.3D, 3.5D}, this.baseNode.getDoubleArray(MapNodePath.compile("doubleList", baseNode.getOptions()))));
+        assertEquals(null, this.baseNode.getDoubleArray("core"));
+
+        this.baseNode.getOptions().setReturnEmpty(true);
+        assertEquals(0, this.baseNode.getIntArray("notExist").length);
+        assertEquals(0, this.baseNode.getDoubleArray("notExist").length);
+    }
+
+    public void testGetPrimitiveListViews() {
+        assertEquals(null, this.baseNode.getIntListView("notExist"));
+        assertEquals(new EasyArrayList<Integer>(1, 3), this.baseNode.getIntListView("intList"));
+        assertEquals(3, this.baseNode.getIntListView("intList").getInt(1));
+        assertEquals(new EasyArrayList<Double>(1.3D, 3.5D), this.baseNode.getDoubleListView("doubleList"));
+        assertEquals(3.5D, this.baseNode.getDoubleListView(MapNodePath.compile("doubleList", baseNode.getOptions())).getDouble(1));
+
+        this.baseNode.getOptions().setReturnEmpty(true);
+        assertEquals(0, this.baseNode.getIntListView("notExist").size());
+        assertEquals(0, this.baseNode.getDoubleListView("notExist").size());
     }
 
     public void testGetBooleanList() {
@@ -179,7 +296,7 @@ public class MapNodeTest extends TestCase {
         assertEquals(new EasyArrayList<Boolean>(false, true), this.baseNode.getBooleanList("boolList"));
         assertEquals(null, this.baseNode.getBooleanList("core"));
         assertEquals(null, this.baseNode.getBooleanList(""));
-        assertEquals(null, this.baseNode.getBooleanList(null));
+        assertEquals(null, this.baseNode.getBooleanList((String) null));
     }
 
     public void testGetStringList() {
@@ -187,7 +304,7 @@ public class MapNodeTest extends TestCase {
         assertEquals(new EasyArrayList<String>("foo", "bar"), this.baseNode.getStringList("children"));
         assertEquals(null, this.baseNode.getStringList("core"));
         assertEquals(null, this.baseNode.getStringList(""));
-        assertEquals(null, this.baseNode.getStringList(null));
+        assertEquals(null, this.baseNode.getStringList((String) null));
     }
 
     public void testGetMapNodeList() {
@@ -195,7 +312,24 @@ public class MapNodeTest extends TestCase {
         assertEquals(new EasyArrayList<MapNode>(new MapNode(new EasyHashMap<String, Object>("key", "value"))), this.baseNode.getMapNodeList("mapNodeList"));
         assertEquals(null, this.baseNode.getMapNodeList("core"));
         assertEquals(null, this.baseNode.getMapNodeList(""));
-        assertEquals(null, this.baseNode.getMapNodeList(null));
+        assertEquals(null, this.baseNode.getMapNodeList((String) null));
+    }
+
+    public void testGetAs() {
+        assertEquals(4, this.baseNode.getAs("inty", Integer.class).intValue());
+        assertEquals("4.5", this.baseNode.getAs("doubley", String.class));
+        assertEquals(Boolean.TRUE, this.baseNode.getAs("booley", Boolean.class));
+        assertEquals(null, this.baseNode.getAs("core", Integer.class));
+        assertEquals(7, this.baseNode.getAs("core", Integer.class, 7).intValue());
+        assertEquals(7, this.baseNode.getAs("notExist", Integer.class, 7).intValue());
+        assertEquals(Thread.State.NEW, this.baseNode.getAs(MapNodePath.compile("list.key", baseNode.getOptions()), Thread.State.class, Thread.State.NEW));
+    }
+
+    public void testGetListOf() {
+        assertEquals(null, this.baseNode.getListOf("notExist", Integer.class));
+        assertEquals(new EasyArrayList<Integer>(1, 3), this.baseNode.getListOf("intList", Integer.class));
+        assertEquals(new EasyArrayList<String>("1.3", "3.5"), this.baseNode.getListOf("doubleList", String.class));
+        assertEquals(null, this.baseNode.getListOf("core", Integer.class));
     }
 
     public void testDebug() throws IOException {
@@ -214,6 +348,76 @@ public class MapNodeTest extends TestCase {
         assertEquals(baseNode.toString(), out.trim());
     }
     
+    public void testLoadYamlStreams() throws IOException {
+        MapNode node = new MapNode();
+        node.loadYaml(MapNode.class.getResourceAsStream("/testYaml.yml"));
+        assertEquals(baseNode.getBase(), node.getBase());
+        assertTrue(node.getLastLoadTime() > 0);
+
+        node.loadYaml(new StringReader("core: bar"));
+        assertEquals("bar", node.getString("core"));
+
+        Path file = Files.createTempFile("mapnode", ".yml");
+        try {
+            Files.write(file, baseNode.debug().getBytes("UTF-8"));
+            node.loadYaml(file);
+            assertEquals(baseNode.getBase(), node.getBase());
+        } finally {
+            Files.delete(file);
+        }
+
+        node.loadYaml(new StringReader(""));
+        assertEquals(new HashMap<String, Object>(), node.getBase());
+    }
+
+    public void testSaveAndLoad() throws IOException {
+        Path dir = Files.createTempDirectory("mapnode");
+        Path file = dir.resolve("saved.yml");
+        try {
+            baseNode.save(file);
+            MapNode node = new MapNode();
+            node.load(file);
+            assertEquals(baseNode.getBase(), node.getBase());
+
+            node.setObject("core", "bar\u00e9");
+            node.save(file);
+            MapNode reloaded = new MapNode();
+            reloaded.load(file);
+            assertEquals("bar\u00e9", reloaded.getString("core"));
+
+            DirectoryStream<Path> files = Files.newDirectoryStream(dir);
+            int count = 0;
+            for (Path p : files) {
+                ++count;
+            }
+            files.close();
+            assertEquals(1, count);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    public void testSavePermissions() throws IOException {
+        Path dir = Files.createTempDirectory("mapnode");
+        Path file = dir.resolve("saved.yml");
+        try {
+            if (Files.getFileAttributeView(dir, PosixFileAttributeView.class) == null) {
+                return;
+            }
+
+            baseNode.save(file);
+            assertTrue(Files.getPosixFilePermissions(file).containsAll(PosixFilePermissions.fromString("rw-------")));
+
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+            baseNode.save(file);
+            assertEquals(PosixFilePermissions.fromString("rw-r-----"), Files.getPosixFilePermissions(file));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
     public void testClone() throws CloneNotSupportedException {
         MapNode newNode = (MapNode) baseNode.clone();
         
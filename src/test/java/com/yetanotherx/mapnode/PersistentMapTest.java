@@ -0,0 +1,94 @@
+package com.yetanotherx.mapnode;
+
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class PersistentMapTest extends TestCase {
+
+    public PersistentMapTest(String testName) {
+        super(testName);
+    }
+
+    public void testPlusAndMinus() {
+        PersistentMap empty = PersistentMap.EMPTY;
+        PersistentMap one = empty.plus("a", 1);
+        PersistentMap two = one.plus("b", null);
+
+        assertEquals(0, empty.size());
+        assertEquals(1, one.size());
+        assertEquals(2, two.size());
+        assertEquals(1, two.get("a"));
+        assertTrue(two.containsKey("b"));
+        assertNull(two.get("b"));
+        assertFalse(one.containsKey("b"));
+
+        assertSame(two, two.plus("a", two.get("a")));
+        assertSame(two, two.minus("none"));
+        assertEquals(1, two.minus("a").size());
+        assertFalse(two.minus("a").containsKey("a"));
+        assertSame(PersistentMap.EMPTY, one.minus("a"));
+    }
+
+    public void testManyKeys() {
+        Map<String, Object> expected = new HashMap<String, Object>();
+        PersistentMap map = PersistentMap.EMPTY;
+        for (int i = 0; i < 5000; ++i) {
+            map = map.plus("key" + i, i);
+            expected.put("key" + i, i);
+        }
+        assertEquals(5000, map.size());
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+
+        for (int i = 0; i < 5000; i += 2) {
+            map = map.minus("key" + i);
+            expected.remove("key" + i);
+        }
+        assertEquals(2500, map.size());
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.entrySet().size());
+    }
+
+    public void testCollisions() {
+        // "Aa" and "BB" have the same hash code
+        PersistentMap map = PersistentMap.EMPTY.plus("Aa", 1).plus("BB", 2).plus("C#", 3);
+        assertEquals(3, map.size());
+        assertEquals(1, map.get("Aa"));
+        assertEquals(2, map.get("BB"));
+        assertEquals(3, map.get("C#"));
+
+        map = map.minus("Aa");
+        assertEquals(2, map.size());
+        assertNull(map.get("Aa"));
+        assertEquals(2, map.get("BB"));
+        assertEquals(2, map.size());
+    }
+
+    public void testCopyOf() {
+        Map<Object, Object> source = new HashMap<Object, Object>();
+        source.put("a", "b");
+        source.put(1, "c");
+        PersistentMap map = PersistentMap.copyOf(source);
+
+        assertEquals("b", map.get("a"));
+        assertEquals("c", map.get("1"));
+        assertSame(map, PersistentMap.copyOf(map));
+    }
+
+    public void testImmutable() {
+        PersistentMap map = PersistentMap.EMPTY.plus("a", 1);
+        try {
+            map.put("b", 2);
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            map.remove("a");
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals(1, map.size());
+    }
+}
@@ -0,0 +1,184 @@
+package com.yetanotherx.mapnode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import junit.framework.TestCase;
+
+public class ReloadingMapNodeTest extends TestCase {
+
+    private Path dir;
+    private Path file;
+
+    public ReloadingMapNodeTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = Files.createTempDirectory("mapnode");
+        file = dir.resolve("config.yml");
+        write("base:\n    core: first\n");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir.resolve("config.yml.new"));
+        Files.deleteIfExists(dir);
+    }
+
+    private void write(String yaml) throws IOException {
+        Path temp = dir.resolve("config.yml.new");
+        Files.write(temp, yaml.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public void testInitialLoad() throws IOException {
+        ReloadingMapNode node = new ReloadingMapNode(file);
+        try {
+            assertEquals("first", node.getString("base.core"));
+            assertEquals(0, node.getReloadCount());
+        } finally {
+            node.close();
+        }
+    }
+
+    public void testManualReload() throws IOException {
+        ReloadingMapNode node = new ReloadingMapNode(file);
+        try {
+            node.setDebounce(60000);
+            write("base:\n    core: second\n");
+            node.reload();
+            assertEquals("second", node.getString("base.core"));
+
+            write("base: [unclosed\n");
+            try {
+                node.reload();
+                fail();
+            } catch (RuntimeException e) {
+                assertSame(e, node.getLastError());
+            }
+            assertEquals("second", node.getString("base.core"));
+            assertTrue(node.getFailureCount() >= 1);
+        } finally {
+            node.close();
+        }
+    }
+
+    public void testParseOutsideMonitor() throws IOException {
+        final AtomicBoolean locked = new AtomicBoolean();
+        ReloadingMapNode node = new ReloadingMapNode(file) {
+
+            @Override
+            public void loadYaml(Path input) throws IOException {
+                locked.compareAndSet(false, Thread.holdsLock(this));
+                super.loadYaml(input);
+            }
+        };
+        try {
+            node.setDebounce(60000);
+            write("base:\n    core: second\n");
+            node.reload();
+            assertEquals("second", node.getString("base.core"));
+            assertFalse(locked.get());
+        } finally {
+            node.close();
+        }
+    }
+
+    public void testListenerExceptions() throws IOException {
+        ReloadingMapNode node = new ReloadingMapNode(file);
+        final List<String> calls = new ArrayList<String>();
+        final List<Throwable> reported = new ArrayList<Throwable>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        try {
+            node.setDebounce(60000);
+            node.addListener(new ReloadingMapNode.Listener() {
+
+                @Override
+                public void reloaded(ReloadingMapNode node) {
+                    throw new IllegalStateException("failing listener");
+                }
+
+                @Override
+                public void reloadFailed(ReloadingMapNode node, Exception error) {
+                    throw new IllegalStateException("failing listener");
+                }
+            });
+            node.addListener(new ReloadingMapNode.Listener() {
+
+                @Override
+                public void reloaded(ReloadingMapNode node) {
+                    calls.add("reloaded");
+                }
+
+                @Override
+                public void reloadFailed(ReloadingMapNode node, Exception error) {
+                    calls.add("failed");
+                }
+            });
+            thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+                @Override
+                public void uncaughtException(Thread t, Throwable e) {
+                    reported.add(e);
+                }
+            });
+
+            write("base:\n    core: second\n");
+            node.reload();
+            write("base: [unclosed\n");
+            try {
+                node.reload();
+                fail();
+            } catch (RuntimeException e) {
+                assertSame(e, node.getLastError());
+            }
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+            node.close();
+        }
+        assertEquals(Arrays.asList("reloaded", "failed"), calls);
+        assertEquals(2, reported.size());
+        assertEquals("second", node.getString("base.core"));
+    }
+
+    public void testWatch() throws IOException, InterruptedException {
+        ReloadingMapNode node = new ReloadingMapNode(file);
+        try {
+            node.setDebounce(20);
+            final CountDownLatch latch = new CountDownLatch(1);
+            node.addListener(new ReloadingMapNode.Listener() {
+
+                @Override
+                public void reloaded(ReloadingMapNode node) {
+                    if ("second".equals(node.getString("base.core"))) {
+                        latch.countDown();
+                    }
+                }
+
+                @Override
+                public void reloadFailed(ReloadingMapNode node, Exception error) {
+                }
+            });
+
+            write("base:\n    core: second\n");
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertEquals("second", node.getString("base.core"));
+            assertTrue(node.getReloadCount() >= 1);
+            assertTrue(node.getLastReloadLatency() > 0);
+        } finally {
+            node.close();
+        }
+    }
+}
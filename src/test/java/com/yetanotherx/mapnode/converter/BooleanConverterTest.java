@@ -18,4 +18,11 @@ public class BooleanConverterTest extends TestCase {
         assertEquals(false, conv.transform("tue").booleanValue());
         assertEquals(false, conv.transform("").booleanValue());
     }
+
+    public void testToBoolean() {
+        assertEquals(true, BooleanConverter.toBoolean(Boolean.TRUE, false));
+        assertEquals(true, BooleanConverter.toBoolean("true", false));
+        assertEquals(false, BooleanConverter.toBoolean("text", true));
+        assertEquals(true, BooleanConverter.toBoolean(null, true));
+    }
 }
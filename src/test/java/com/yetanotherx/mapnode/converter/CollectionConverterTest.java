@@ -33,4 +33,15 @@ public class CollectionConverterTest extends TestCase {
         cc.transform(new DoubleConverter(), oldMap, newMapTemp);
         assertEquals(newMap, newMapTemp);
     }
+
+    public void testView() {
+        List<Object> oldMap = new ArrayList<Object>();
+        oldMap.add("0.3");
+        oldMap.add("text");
+
+        List<Double> view = CollectionConverter.<Double>getInstance().view(DoubleConverter.INSTANCE, oldMap, false);
+        assertEquals(2, view.size());
+        assertEquals(0.3D, view.get(0));
+        assertEquals(null, view.get(1));
+    }
 }
@@ -0,0 +1,52 @@
+package com.yetanotherx.mapnode.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class ConvertedListViewTest extends TestCase {
+
+    public ConvertedListViewTest(String testName) {
+        super(testName);
+    }
+
+    public void testView() {
+        List<Object> source = new ArrayList<Object>(Arrays.<Object>asList("1", "2", "text"));
+        ConvertedListView<Integer> view = new ConvertedListView<Integer>(IntegerConverter.INSTANCE, source, false);
+
+        assertEquals(3, view.size());
+        assertEquals(1, view.get(0).intValue());
+        assertEquals(null, view.get(2));
+        assertEquals(Arrays.asList(1, 2, null), view);
+
+        source.set(0, "5");
+        assertEquals(5, view.get(0).intValue());
+
+        try {
+            view.add(1);
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    public void testMemoize() {
+        final int[] calls = new int[1];
+        BaseConverter<String> counting = new BaseConverter<String>() {
+
+            public String transform(Object oldObject) {
+                ++calls[0];
+                return String.valueOf(oldObject);
+            }
+        };
+
+        List<Object> source = new ArrayList<Object>(Arrays.<Object>asList(1, 2, 3));
+        ConvertedListView<String> view = new ConvertedListView<String>(counting, source, true);
+
+        assertEquals("2", view.get(1));
+        assertEquals("2", view.get(1));
+        assertEquals(1, calls[0]);
+        assertEquals(Arrays.asList("1", "2", "3"), view);
+        assertEquals(3, calls[0]);
+    }
+}
@@ -0,0 +1,85 @@
+package com.yetanotherx.mapnode.converter;
+
+import com.yetanotherx.mapnode.MapNode;
+import com.yetanotherx.mapnode.MapNodeException;
+import com.yetanotherx.mapnode.MapNodeOptions;
+import java.util.Arrays;
+import java.util.HashMap;
+import junit.framework.TestCase;
+
+public class ConverterRegistryTest extends TestCase {
+
+    public ConverterRegistryTest(String testName) {
+        super(testName);
+    }
+
+    public void testBuiltIns() {
+        ConverterRegistry registry = new ConverterRegistry();
+
+        assertSame(IntegerConverter.INSTANCE, registry.get(Integer.class));
+        assertSame(StringConverter.INSTANCE, registry.get(String.class));
+        assertEquals(4, registry.convert("4", Integer.class).intValue());
+        assertEquals(4.5D, registry.convert("4.5", Double.class).doubleValue());
+        assertEquals(Boolean.TRUE, registry.convert("true", Boolean.class));
+        assertEquals(new MapNode(new HashMap<String, Object>()), registry.convert(new HashMap<String, Object>(), MapNode.class));
+        assertEquals(null, registry.convert(null, Integer.class));
+    }
+
+    public void testRegister() {
+        ConverterRegistry registry = new ConverterRegistry();
+        assertNull(registry.get(Short.class));
+
+        try {
+            registry.convert("4", Short.class);
+            fail("Expected MapNodeException");
+        } catch (MapNodeException e) {
+        }
+
+        registry.register(Short.class, new BaseConverter<Short>() {
+
+            public Short transform(Object oldObject) {
+                return Short.parseShort(oldObject.toString());
+            }
+        });
+        assertEquals(4, registry.convert("4", Short.class).shortValue());
+
+        Short same = 5;
+        assertSame(same, registry.convert(same, Short.class));
+
+        registry.unregister(Short.class);
+        assertNull(registry.get(Short.class));
+        assertEquals(4L, registry.convert("4", Long.class).longValue());
+    }
+
+    public void testEnums() {
+        ConverterRegistry registry = new ConverterRegistry();
+
+        assertEquals(Thread.State.RUNNABLE, registry.convert("RUNNABLE", Thread.State.class));
+        assertSame(registry.get(Thread.State.class), registry.get(Thread.State.class));
+    }
+
+    public void testDefault() {
+        assertSame(ConverterRegistry.getDefault(), ConverterRegistry.getDefault());
+    }
+
+    public void testBuiltInTypeOverride() {
+        ConverterRegistry registry = new ConverterRegistry();
+        registry.register(Boolean.class, new BaseConverter<Boolean>() {
+
+            public Boolean transform(Object oldObject) {
+                return oldObject.equals("yes") || oldObject.equals("true");
+            }
+        });
+
+        HashMap<String, Object> map = new HashMap<String, Object>();
+        map.put("flag", "yes");
+        map.put("flags", Arrays.asList("yes", "no"));
+        MapNode node = new MapNode(map, new MapNodeOptions().setConverterRegistry(registry));
+
+        assertEquals(Boolean.TRUE, node.getBoolean("flag"));
+        assertEquals(Arrays.asList(true, false), node.getBooleanList("flags"));
+        assertEquals(Boolean.FALSE, new MapNode(map).getBoolean("flag"));
+        assertFalse(node.equals(new MapNode(map)));
+        assertEquals(node.getOptions(), new MapNodeOptions().setConverterRegistry(registry));
+    }
+}
@@ -17,4 +17,20 @@ public class DoubleConverterTest extends TestCase {
         assertEquals(null, conv.transform(""));
         assertEquals(123.45687587687688D, conv.transform("123.4568758768768756648548654868675875876586758765"));
     }
+
+    public void testNumbers() {
+        DoubleConverter conv = new DoubleConverter();
+        Double half = 0.5D;
+
+        assertSame(half, conv.transform(half));
+        assertEquals(4.0D, conv.transform(4));
+    }
+
+    public void testToDouble() {
+        assertEquals(4.0D, DoubleConverter.toDouble(4, -1.0D));
+        assertEquals(4.5D, DoubleConverter.toDouble(4.5D, -1.0D));
+        assertEquals(0.3D, DoubleConverter.toDouble("0.3", -1.0D));
+        assertEquals(-1.0D, DoubleConverter.toDouble("text", -1.0D));
+        assertEquals(-1.0D, DoubleConverter.toDouble(null, -1.0D));
+    }
 }
@@ -0,0 +1,35 @@
+package com.yetanotherx.mapnode.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class DoubleListViewTest extends TestCase {
+
+    public DoubleListViewTest(String testName) {
+        super(testName);
+    }
+
+    public void testView() {
+        List<Object> source = new ArrayList<Object>(Arrays.<Object>asList(1, "2.5", 3.5D, "text", null));
+        DoubleListView view = new DoubleListView(source);
+
+        assertEquals(5, view.size());
+        assertEquals(1.0D, view.getDouble(0));
+        assertEquals(2.5D, view.getDouble(1));
+        assertEquals(3.5D, view.getDouble(2));
+        assertEquals(0.0D, view.getDouble(3));
+        assertEquals(0.0D, view.get(4).doubleValue());
+        assertTrue(Arrays.equals(new double[]{1.0D, 2.5D, 3.5D, 0.0D, 0.0D}, view.toDoubleArray()));
+
+        source.set(0, 7);
+        assertEquals(7.0D, view.getDouble(0));
+
+        try {
+            view.set(0, 1.0D);
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.yetanotherx.mapnode.converter;
+
+import java.lang.annotation.RetentionPolicy;
+import junit.framework.TestCase;
+
+public class EnumConverterTest extends TestCase {
+
+    public EnumConverterTest(String testName) {
+        super(testName);
+    }
+
+    public void testTransform() {
+        EnumConverter<RetentionPolicy> conv = new EnumConverter<RetentionPolicy>(RetentionPolicy.class);
+
+        assertEquals(RetentionPolicy.SOURCE, conv.transform("SOURCE"));
+        assertEquals(RetentionPolicy.RUNTIME, conv.transform("runtime"));
+        assertEquals(RetentionPolicy.CLASS, conv.transform(RetentionPolicy.CLASS));
+        assertEquals(null, conv.transform("text"));
+        assertEquals(null, conv.transform(null));
+    }
+}
@@ -0,0 +1,35 @@
+package com.yetanotherx.mapnode.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class IntListViewTest extends TestCase {
+
+    public IntListViewTest(String testName) {
+        super(testName);
+    }
+
+    public void testView() {
+        List<Object> source = new ArrayList<Object>(Arrays.<Object>asList(1, "2", 3.5D, "text", null));
+        IntListView view = new IntListView(source);
+
+        assertEquals(5, view.size());
+        assertEquals(1, view.getInt(0));
+        assertEquals(2, view.getInt(1));
+        assertEquals(3, view.getInt(2));
+        assertEquals(0, view.getInt(3));
+        assertEquals(0, view.get(4).intValue());
+        assertTrue(Arrays.equals(new int[]{1, 2, 3, 0, 0}, view.toIntArray()));
+
+        source.set(0, 7);
+        assertEquals(7, view.getInt(0));
+
+        try {
+            view.add(1);
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+}
@@ -16,4 +16,22 @@ public class IntegerConverterTest extends TestCase {
         assertEquals(null, conv.transform("text"));
         assertEquals(null, conv.transform(""));
     }
+
+    public void testNumbers() {
+        IntegerConverter conv = new IntegerConverter();
+        Integer four = 4;
+
+        assertSame(four, conv.transform(four));
+        assertEquals(4, conv.transform(4.5D).intValue());
+        assertEquals(4, conv.transform(4L).intValue());
+    }
+
+    public void testToInt() {
+        assertEquals(4, IntegerConverter.toInt(4, -1));
+        assertEquals(4, IntegerConverter.toInt(4.5D, -1));
+        assertEquals(4, IntegerConverter.toInt("4", -1));
+        assertEquals(0, IntegerConverter.toInt("0.3", -1));
+        assertEquals(-1, IntegerConverter.toInt("text", -1));
+        assertEquals(-1, IntegerConverter.toInt(null, -1));
+    }
 }
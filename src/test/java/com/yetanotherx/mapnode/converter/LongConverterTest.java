@@ -0,0 +1,30 @@
+package com.yetanotherx.mapnode.converter;
+
+import junit.framework.TestCase;
+
+public class LongConverterTest extends TestCase {
+    
+    public LongConverterTest(String testName) {
+        super(testName);
+    }
+
+    public void testTransform() {
+        LongConverter conv = new LongConverter();
+        
+        assertEquals(0L, conv.transform("0.3").longValue());
+        assertEquals(1L, conv.transform("1").longValue());
+        assertEquals(8589934592L, conv.transform("8589934592").longValue());
+        assertEquals(4L, conv.transform(4).longValue());
+        assertEquals(4L, conv.transform(4.5D).longValue());
+        assertEquals(null, conv.transform("text"));
+        assertEquals(null, conv.transform(""));
+    }
+
+    public void testToLong() {
+        assertEquals(4L, LongConverter.toLong(4, -1L));
+        assertEquals(8589934592L, LongConverter.toLong(8589934592L, -1L));
+        assertEquals(4L, LongConverter.toLong("4", -1L));
+        assertEquals(-1L, LongConverter.toLong("text", -1L));
+        assertEquals(-1L, LongConverter.toLong(null, -1L));
+    }
+}